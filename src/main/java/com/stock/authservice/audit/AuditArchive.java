@@ -0,0 +1,510 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.config.AuditConfig;
+import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.repository.AuditLogCriteria;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for audit entries past the hot window: each aged audit_logs partition is written to
+ * a compressed {@link AuditArchiveSegment} before the partition is dropped.
+ * <p>
+ * The segment is stored in the database in chunks (audit_archive_files and audit_archive_chunks)
+ * in the same transaction that checks it against the partition, so the partition is only dropped
+ * once a durable copy every node can reach has been committed. The compressed segment is a
+ * fraction of the size of the partition and its indexes. Each node keeps the segments as files in
+ * {@code audit.archive.directory}, a cache that {@link #sync} fills and prunes from the database.
+ * <p>
+ * Searches that reach past the hot window read through to the segments. Segments whose time
+ * range or Bloom filters rule out the criteria are skipped without touching the file, and within
+ * a segment only the row groups that could still make the requested page are decompressed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditArchive {
+
+    private static final String SEGMENT_PREFIX = "audit-archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int CHUNK_BYTES = 4 * 1024 * 1024;
+
+    private static final String INSERT_CHUNK_SQL =
+            "INSERT INTO audit_archive_chunks (id, file_name, chunk_index, data) " +
+            "VALUES (gen_random_uuid()::text, ?, ?, ?)";
+
+    private static final String INSERT_FILE_SQL =
+            "INSERT INTO audit_archive_files (id, name, row_count, max_timestamp, size_bytes, created_at) " +
+            "VALUES (gen_random_uuid()::text, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL =
+            "SELECT id, user_id, username, action, resource_type, resource_id, ip_address, user_agent, " +
+            "status, error_message, details, timestamp FROM ";
+
+    private static final Comparator<AuditLog> ASCENDING =
+            Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final AuditConfig auditConfig;
+
+    private final List<AuditArchiveSegment> segments = new CopyOnWriteArrayList<>();
+    private final Object syncLock = new Object();
+    private Path directory;
+
+    @PostConstruct
+    public void load() {
+        if (!auditConfig.getArchive().isEnabled()) {
+            return;
+        }
+        directory = Paths.get(auditConfig.getArchive().getDirectory());
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> listing = Files.list(directory)) {
+                for (Path path : listing.collect(Collectors.toList())) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        // Left behind by an interrupted archive run or download
+                        Files.delete(path);
+                    } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                        segments.add(AuditArchiveSegment.open(path));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to load audit archive from {}", directory, e);
+        }
+        if (!segments.isEmpty()) {
+            log.info("Loaded {} audit archive segments", segments.size());
+        }
+    }
+
+    /**
+     * Whether any local segment could hold rows. Only looks at this node's copies, so it is safe
+     * on the request path; segments archived by other nodes show up after the next {@link #sync}.
+     */
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * Brings the local segment files in line with the database: downloads segments archived by
+     * other nodes and deletes local files whose segment has been removed. Runs on startup and
+     * every {@code audit.archive.sync-interval-ms}, outside any caller's transaction.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${audit.archive.sync-interval-ms:10000}",
+            initialDelayString = "${audit.archive.sync-interval-ms:10000}")
+    public void sync() {
+        if (directory == null) {
+            return;
+        }
+        synchronized (syncLock) {
+            try {
+                Map<String, Long> stored = new HashMap<>();
+                jdbcTemplate.query("SELECT name, row_count FROM audit_archive_files",
+                        (RowCallbackHandler) rs -> stored.put(rs.getString("name"), rs.getLong("row_count")));
+
+                LocalDateTime retentionCutoff = LocalDateTime.now()
+                        .minusDays(auditConfig.getPartitioning().getRetentionDays());
+                for (AuditArchiveSegment segment : segments) {
+                    String name = segment.getPath().getFileName().toString();
+                    Long rows = stored.get(name);
+                    if (rows == null && !segment.getMaxTimestamp().isBefore(retentionCutoff)) {
+                        // Written to local disk only, before segments were stored in the database
+                        storeLocal(name, segment);
+                        stored.put(name, segment.getRowCount());
+                    } else if (rows == null || rows != segment.getRowCount()) {
+                        segments.remove(segment);
+                        Files.deleteIfExists(segment.getPath());
+                    }
+                }
+                for (Map.Entry<String, Long> entry : stored.entrySet()) {
+                    Path target = directory.resolve(entry.getKey());
+                    if (segments.stream().noneMatch(segment -> segment.getPath().equals(target))) {
+                        download(entry.getKey(), target);
+                        segments.add(AuditArchiveSegment.open(target));
+                        log.info("Fetched audit archive segment {}", entry.getKey());
+                    }
+                }
+            } catch (IOException | UncheckedIOException | DataAccessException e) {
+                log.error("Failed to sync audit archive into {}", directory, e);
+            }
+        }
+    }
+
+    // ==================== TIERING ====================
+
+    /**
+     * Copies every row of {@code partition} into a segment and stores it in the database. Returns
+     * true once a stored segment holds as many rows as the partition, i.e. when the partition may
+     * be dropped.
+     */
+    public boolean archivePartition(String partition) {
+        if (directory == null) {
+            return false;
+        }
+        Path target = directory.resolve(SEGMENT_PREFIX + partition + SEGMENT_SUFFIX);
+        Path temp = directory.resolve(SEGMENT_PREFIX + partition + SEGMENT_SUFFIX + TEMP_SUFFIX);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            Boolean archived = transaction.execute(status -> {
+                try {
+                    return archiveLocked(partition, target, temp);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (Files.exists(temp)) {
+                // Committed: the file written for the upload becomes this node's copy
+                synchronized (syncLock) {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    segments.removeIf(segment -> segment.getPath().equals(target));
+                    segments.add(AuditArchiveSegment.open(target));
+                }
+            }
+            return Boolean.TRUE.equals(archived);
+        } catch (Exception e) {
+            log.error("Failed to archive partition {}", partition, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Cleaned up on the next start
+            }
+            return false;
+        }
+    }
+
+    /** Deletes the segments whose newest entry is older than {@code cutoff}. */
+    public void deleteOlderThan(LocalDateTime cutoff) {
+        if (directory == null) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<String> names = jdbcTemplate.queryForList(
+                    "DELETE FROM audit_archive_files WHERE max_timestamp < ? RETURNING name",
+                    String.class, Timestamp.valueOf(cutoff));
+            for (String name : names) {
+                jdbcTemplate.update("DELETE FROM audit_archive_chunks WHERE file_name = ?", name);
+                log.info("Deleted stored audit archive segment {}", name);
+            }
+        });
+
+        // Other nodes drop their copies on the next sync
+        for (AuditArchiveSegment segment : segments) {
+            if (segment.getMaxTimestamp().isBefore(cutoff)) {
+                segments.remove(segment);
+                try {
+                    Files.deleteIfExists(segment.getPath());
+                    log.info("Deleted audit archive segment {}", segment.getPath().getFileName());
+                } catch (IOException e) {
+                    log.error("Failed to delete audit archive segment {}", segment.getPath(), e);
+                }
+            }
+        }
+    }
+
+    // ==================== QUERY ====================
+
+    /**
+     * Returns up to {@code limit} archived entries matching {@code criteria} that come after the
+     * cursor position ({@code afterTimestamp}, {@code afterId}) in (timestamp, id) order, descending
+     * unless {@code ascending}. A null cursor starts from the beginning. When {@code bound} is set,
+     * the caller already has a full page that ends at that timestamp, so only entries that could
+     * sort before it are looked at.
+     */
+    public List<AuditLog> search(AuditLogCriteria criteria, LocalDateTime afterTimestamp, String afterId,
+                                 boolean ascending, int limit, LocalDateTime bound) {
+        Comparator<AuditLog> order = ascending ? ASCENDING : ASCENDING.reversed();
+        List<Candidate> candidates = candidates(criteria);
+        candidates.sort(ascending
+                ? Comparator.comparing((Candidate c) -> c.group.getMinTimestamp())
+                : Comparator.comparing((Candidate c) -> c.group.getMaxTimestamp()).reversed());
+
+        List<AuditLog> results = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            LocalDateTime groupMin = candidate.group.getMinTimestamp();
+            LocalDateTime groupMax = candidate.group.getMaxTimestamp();
+            // Nearest edge of the group in the requested direction
+            LocalDateTime groupNear = ascending ? groupMin : groupMax;
+            LocalDateTime groupFar = ascending ? groupMax : groupMin;
+
+            if (afterTimestamp != null && isBefore(groupFar, afterTimestamp, ascending)) {
+                continue;
+            }
+            if (bound != null && isBefore(bound, groupNear, ascending)) {
+                continue;
+            }
+            if (results.size() >= limit && isBefore(results.get(limit - 1).getTimestamp(), groupNear, ascending)) {
+                // Groups are visited nearest first, so no later group can improve the page
+                break;
+            }
+
+            for (AuditLog row : readRowGroup(candidate)) {
+                if (criteria.matches(row) && isAfterCursor(row, afterTimestamp, afterId, ascending)) {
+                    results.add(row);
+                }
+            }
+            results.sort(order);
+            if (results.size() > limit) {
+                results.subList(limit, results.size()).clear();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Hands every archived entry matching {@code criteria} to {@code consumer} in (timestamp, id)
+     * order, one row group in memory at a time. Segments come from non-overlapping partitions, so
+     * visiting row groups by their oldest entry keeps the order across segments.
+     */
+    public void forEachMatching(AuditLogCriteria criteria, Consumer<AuditLog> consumer) {
+        if (isEmpty()) {
+            return;
+        }
+        List<Candidate> candidates = candidates(criteria);
+        candidates.sort(Comparator.comparing((Candidate c) -> c.group.getMinTimestamp()));
+        for (Candidate candidate : candidates) {
+            for (AuditLog row : readRowGroup(candidate)) {
+                if (criteria.matches(row)) {
+                    consumer.accept(row);
+                }
+            }
+        }
+    }
+
+    public long count(AuditLogCriteria criteria) {
+        long count = 0;
+        for (Candidate candidate : candidates(criteria)) {
+            boolean fullyInRange = criteria.isTimeRangeOnly()
+                    && (criteria.getStartDate() == null || !candidate.group.getMinTimestamp().isBefore(criteria.getStartDate()))
+                    && (criteria.getEndDate() == null || !candidate.group.getMaxTimestamp().isAfter(criteria.getEndDate()));
+            if (fullyInRange) {
+                count += candidate.group.getRows();
+                continue;
+            }
+            count += readRowGroup(candidate).stream().filter(criteria::matches).count();
+        }
+        return count;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private boolean archiveLocked(String partition, Path target, Path temp) throws IOException {
+        // Another node may be archiving the same partition
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, target.getFileName().toString()))) {
+            return false;
+        }
+
+        Map<String, Object> stats = jdbcTemplate.queryForMap("SELECT count(*) AS row_count, " +
+                "count(DISTINCT user_id) AS user_ids, count(DISTINCT action) AS actions, " +
+                "count(DISTINCT ip_address) AS ip_addresses FROM " + partition);
+        long expected = ((Number) stats.get("row_count")).longValue();
+        String name = target.getFileName().toString();
+        if (expected == 0 || isStored(name, expected)) {
+            // A previous run stored the segment but did not get to drop the partition
+            return true;
+        }
+
+        long written = writeSegment(partition, temp, stats);
+        if (written != expected) {
+            Files.deleteIfExists(temp);
+            log.warn("Archive of {} wrote {} rows, expected {}; keeping the partition", partition, written, expected);
+            return false;
+        }
+        upload(name, temp, written);
+        log.info("Archived {} rows from {} to {} ({} bytes)", written, partition, name, Files.size(temp));
+        return true;
+    }
+
+    private void upload(String name, Path file, long rowCount) throws IOException {
+        // Replaces a stored copy whose row count no longer matches, e.g. after late inserts
+        jdbcTemplate.update("DELETE FROM audit_archive_chunks WHERE file_name = ?", name);
+        jdbcTemplate.update("DELETE FROM audit_archive_files WHERE name = ?", name);
+
+        byte[] buffer = new byte[CHUNK_BYTES];
+        int chunkIndex = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int length;
+            while ((length = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                jdbcTemplate.update(INSERT_CHUNK_SQL, name, chunkIndex++, Arrays.copyOf(buffer, length));
+            }
+        }
+        LocalDateTime maxTimestamp = AuditArchiveSegment.open(file).getMaxTimestamp();
+        jdbcTemplate.update(INSERT_FILE_SQL, name, rowCount, Timestamp.valueOf(maxTimestamp), Files.size(file),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private void storeLocal(String name, AuditArchiveSegment segment) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(?))) l",
+                    Integer.class, name);
+            if (isStored(name, segment.getRowCount())) {
+                return;
+            }
+            try {
+                upload(name, segment.getPath(), segment.getRowCount());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Stored local audit archive segment {}", name);
+    }
+
+    private void download(String name, Path target) throws IOException {
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            // One chunk in memory at a time; the cursor needs a transaction
+            transaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "SELECT data FROM audit_archive_chunks WHERE file_name = ? ORDER BY chunk_index",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(1);
+                statement.setString(1, name);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    out.write(rs.getBytes("data"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private long writeSegment(String partition, Path temp, Map<String, Object> stats) {
+        AuditConfig.Archive config = auditConfig.getArchive();
+        try (AuditArchiveSegment.Writer writer = new AuditArchiveSegment.Writer(temp, config.getRowGroupSize(),
+                ((Number) stats.get("user_ids")).longValue(),
+                ((Number) stats.get("actions")).longValue(),
+                ((Number) stats.get("ip_addresses")).longValue())) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        SELECT_SQL + partition + " ORDER BY timestamp, id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(auditConfig.getExport().getFetchSize());
+                return statement;
+            }, resultSet -> {
+                try {
+                    writer.add(AuditLog.builder()
+                            .id(resultSet.getString("id"))
+                            .userId(resultSet.getString("user_id"))
+                            .username(resultSet.getString("username"))
+                            .action(resultSet.getString("action"))
+                            .resourceType(resultSet.getString("resource_type"))
+                            .resourceId(resultSet.getString("resource_id"))
+                            .ipAddress(resultSet.getString("ip_address"))
+                            .userAgent(resultSet.getString("user_agent"))
+                            .status(resultSet.getString("status"))
+                            .errorMessage(resultSet.getString("error_message"))
+                            .details(resultSet.getString("details"))
+                            .timestamp(resultSet.getTimestamp("timestamp").toLocalDateTime())
+                            .build());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isStored(String name, long expectedRows) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT row_count FROM audit_archive_files WHERE name = ?", Long.class, name);
+        return !rows.isEmpty() && rows.get(0) == expectedRows;
+    }
+
+    private List<Candidate> candidates(AuditLogCriteria criteria) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (AuditArchiveSegment segment : segments) {
+            if (!segment.mightMatch(criteria)) {
+                continue;
+            }
+            for (AuditArchiveSegment.RowGroup group : segment.getRowGroups()) {
+                if (criteria.getStartDate() != null && group.getMaxTimestamp().isBefore(criteria.getStartDate())) {
+                    continue;
+                }
+                if (criteria.getEndDate() != null && group.getMinTimestamp().isAfter(criteria.getEndDate())) {
+                    continue;
+                }
+                candidates.add(new Candidate(segment, group));
+            }
+        }
+        return candidates;
+    }
+
+    private static List<AuditLog> readRowGroup(Candidate candidate) {
+        try {
+            return candidate.segment.readRowGroup(candidate.group);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read audit archive segment " + candidate.segment.getPath(), e);
+        }
+    }
+
+    // True when a comes strictly before b in the requested direction
+    private static boolean isBefore(LocalDateTime a, LocalDateTime b, boolean ascending) {
+        return ascending ? a.isBefore(b) : a.isAfter(b);
+    }
+
+    private static boolean isAfterCursor(AuditLog row, LocalDateTime afterTimestamp, String afterId, boolean ascending) {
+        if (afterTimestamp == null) {
+            return true;
+        }
+        int compare = ASCENDING.compare(row, AuditLog.builder().timestamp(afterTimestamp).id(afterId).build());
+        return ascending ? compare > 0 : compare < 0;
+    }
+
+    private static final class Candidate {
+        private final AuditArchiveSegment segment;
+        private final AuditArchiveSegment.RowGroup group;
+
+        private Candidate(AuditArchiveSegment segment, AuditArchiveSegment.RowGroup group) {
+            this.segment = segment;
+            this.group = group;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.repository.AuditLogCriteria;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One archived partition: an immutable file of audit entries in timestamp order.
+ * <p>
+ * Entries are stored in row groups of a few thousand rows. Within a group each column is
+ * deflated separately, so similar values compress together. A footer at the end of the file
+ * lists the groups with their timestamp range and byte offsets, followed by Bloom filters on
+ * user id, action and IP address. Only the footer is kept in memory; a search opens just the
+ * groups whose time range and filters could match.
+ * <pre>
+ * magic, version | row group* | footer | footer offset (8 bytes)
+ * </pre>
+ */
+final class AuditArchiveSegment {
+
+    private static final int MAGIC = 0x41554441; // "AUDA"
+    private static final int VERSION = 1;
+    private static final int STRING_COLUMNS = 11;
+    private static final int COLUMNS = STRING_COLUMNS + 1;
+
+    private final Path path;
+    private final long rowCount;
+    private final LocalDateTime minTimestamp;
+    private final LocalDateTime maxTimestamp;
+    private final List<RowGroup> rowGroups;
+    private final BloomFilter userIds;
+    private final BloomFilter actions;
+    private final BloomFilter ipAddresses;
+
+    private AuditArchiveSegment(Path path, long rowCount, LocalDateTime minTimestamp, LocalDateTime maxTimestamp,
+                                List<RowGroup> rowGroups, BloomFilter userIds, BloomFilter actions,
+                                BloomFilter ipAddresses) {
+        this.path = path;
+        this.rowCount = rowCount;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.rowGroups = rowGroups;
+        this.userIds = userIds;
+        this.actions = actions;
+        this.ipAddresses = ipAddresses;
+    }
+
+    static AuditArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not an audit archive segment: " + path);
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+            channel.read(trailer, channel.size() - Long.BYTES);
+            long footerOffset = trailer.getLong(0);
+            byte[] footer = readFully(channel, footerOffset, (int) (channel.size() - Long.BYTES - footerOffset));
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer));
+            long rowCount = in.readLong();
+            LocalDateTime minTimestamp = fromMicros(in.readLong());
+            LocalDateTime maxTimestamp = fromMicros(in.readLong());
+            int groupCount = in.readInt();
+            List<RowGroup> groups = new ArrayList<>(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                LocalDateTime groupMin = fromMicros(in.readLong());
+                LocalDateTime groupMax = fromMicros(in.readLong());
+                int rows = in.readInt();
+                long offset = in.readLong();
+                int[] columnLengths = new int[COLUMNS];
+                for (int column = 0; column < COLUMNS; column++) {
+                    columnLengths[column] = in.readInt();
+                }
+                groups.add(new RowGroup(groupMin, groupMax, rows, offset, columnLengths));
+            }
+            return new AuditArchiveSegment(path, rowCount, minTimestamp, maxTimestamp,
+                    Collections.unmodifiableList(groups),
+                    BloomFilter.readFrom(in), BloomFilter.readFrom(in), BloomFilter.readFrom(in));
+        }
+    }
+
+    // ==================== QUERY ====================
+
+    /** False when no entry in this segment can match; true means it might. */
+    boolean mightMatch(AuditLogCriteria criteria) {
+        if (criteria.getStartDate() != null && maxTimestamp.isBefore(criteria.getStartDate())) {
+            return false;
+        }
+        if (criteria.getEndDate() != null && minTimestamp.isAfter(criteria.getEndDate())) {
+            return false;
+        }
+        if (criteria.getUserId() != null && !userIds.mightContain(criteria.getUserId())) {
+            return false;
+        }
+        if (criteria.getIpAddress() != null && !ipAddresses.mightContain(criteria.getIpAddress())) {
+            return false;
+        }
+        return criteria.getActions() == null || criteria.getActions().stream().anyMatch(actions::mightContain);
+    }
+
+    List<AuditLog> readRowGroup(RowGroup group) throws IOException {
+        int totalLength = 0;
+        for (int length : group.columnLengths) {
+            totalLength += length;
+        }
+        byte[] data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = readFully(channel, group.offset, totalLength);
+        }
+
+        String[][] columns = new String[STRING_COLUMNS][];
+        int position = 0;
+        for (int column = 0; column < STRING_COLUMNS; column++) {
+            try (DataInputStream in = inflate(data, position, group.columnLengths[column])) {
+                columns[column] = new String[group.rows];
+                for (int row = 0; row < group.rows; row++) {
+                    int length = in.readInt();
+                    columns[column][row] = length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+                }
+            }
+            position += group.columnLengths[column];
+        }
+
+        List<AuditLog> rows = new ArrayList<>(group.rows);
+        try (DataInputStream in = inflate(data, position, group.columnLengths[STRING_COLUMNS])) {
+            for (int row = 0; row < group.rows; row++) {
+                rows.add(AuditLog.builder()
+                        .id(columns[0][row])
+                        .userId(columns[1][row])
+                        .username(columns[2][row])
+                        .action(columns[3][row])
+                        .resourceType(columns[4][row])
+                        .resourceId(columns[5][row])
+                        .ipAddress(columns[6][row])
+                        .userAgent(columns[7][row])
+                        .status(columns[8][row])
+                        .errorMessage(columns[9][row])
+                        .details(columns[10][row])
+                        .timestamp(fromMicros(in.readLong()))
+                        .build());
+            }
+        }
+        return rows;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    LocalDateTime getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    LocalDateTime getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    List<RowGroup> getRowGroups() {
+        return rowGroups;
+    }
+
+    // ==================== WRITE ====================
+
+    /**
+     * Writes a segment file. Rows must be added in (timestamp, id) order; the Bloom filters are
+     * sized from the expected number of distinct values.
+     */
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final int rowGroupSize;
+        private final List<AuditLog> pending;
+        private final List<RowGroup> groups = new ArrayList<>();
+        private final BloomFilter userIds;
+        private final BloomFilter actions;
+        private final BloomFilter ipAddresses;
+
+        private long position;
+        private long rowCount;
+        private LocalDateTime minTimestamp;
+        private LocalDateTime maxTimestamp;
+
+        Writer(Path path, int rowGroupSize, long distinctUserIds, long distinctActions, long distinctIpAddresses)
+                throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+            this.rowGroupSize = rowGroupSize;
+            this.pending = new ArrayList<>(rowGroupSize);
+            this.userIds = BloomFilter.forExpectedEntries(distinctUserIds);
+            this.actions = BloomFilter.forExpectedEntries(distinctActions);
+            this.ipAddresses = BloomFilter.forExpectedEntries(distinctIpAddresses);
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            position = 8;
+        }
+
+        void add(AuditLog row) throws IOException {
+            pending.add(row);
+            if (row.getUserId() != null) {
+                userIds.add(row.getUserId());
+            }
+            if (row.getAction() != null) {
+                actions.add(row.getAction());
+            }
+            if (row.getIpAddress() != null) {
+                ipAddresses.add(row.getIpAddress());
+            }
+            if (pending.size() == rowGroupSize) {
+                flushRowGroup();
+            }
+        }
+
+        /** Writes the last row group and the footer. Returns the number of rows written. */
+        long finish() throws IOException {
+            if (!pending.isEmpty()) {
+                flushRowGroup();
+            }
+
+            long footerOffset = position;
+            out.writeLong(rowCount);
+            out.writeLong(rowCount == 0 ? 0 : toMicros(minTimestamp));
+            out.writeLong(rowCount == 0 ? 0 : toMicros(maxTimestamp));
+            out.writeInt(groups.size());
+            for (RowGroup group : groups) {
+                out.writeLong(toMicros(group.minTimestamp));
+                out.writeLong(toMicros(group.maxTimestamp));
+                out.writeInt(group.rows);
+                out.writeLong(group.offset);
+                for (int length : group.columnLengths) {
+                    out.writeInt(length);
+                }
+            }
+            userIds.writeTo(out);
+            actions.writeTo(out);
+            ipAddresses.writeTo(out);
+            out.writeLong(footerOffset);
+            out.flush();
+            return rowCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void flushRowGroup() throws IOException {
+            long offset = position;
+            int[] columnLengths = new int[COLUMNS];
+            for (int column = 0; column < STRING_COLUMNS; column++) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream values = deflate(bytes)) {
+                    for (AuditLog row : pending) {
+                        String value = stringColumn(row, column);
+                        if (value == null) {
+                            values.writeInt(-1);
+                        } else {
+                            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                            values.writeInt(encoded.length);
+                            values.write(encoded);
+                        }
+                    }
+                }
+                columnLengths[column] = writeColumn(bytes);
+            }
+
+            ByteArrayOutputStream timestamps = new ByteArrayOutputStream();
+            try (DataOutputStream values = deflate(timestamps)) {
+                for (AuditLog row : pending) {
+                    values.writeLong(toMicros(row.getTimestamp()));
+                }
+            }
+            columnLengths[STRING_COLUMNS] = writeColumn(timestamps);
+
+            LocalDateTime groupMin = pending.get(0).getTimestamp();
+            LocalDateTime groupMax = pending.get(pending.size() - 1).getTimestamp();
+            groups.add(new RowGroup(groupMin, groupMax, pending.size(), offset, columnLengths));
+            minTimestamp = minTimestamp == null ? groupMin : minTimestamp;
+            maxTimestamp = groupMax;
+            rowCount += pending.size();
+            pending.clear();
+        }
+
+        private int writeColumn(ByteArrayOutputStream bytes) throws IOException {
+            bytes.writeTo(out);
+            position += bytes.size();
+            return bytes.size();
+        }
+
+        private static String stringColumn(AuditLog row, int column) {
+            return switch (column) {
+                case 0 -> row.getId();
+                case 1 -> row.getUserId();
+                case 2 -> row.getUsername();
+                case 3 -> row.getAction();
+                case 4 -> row.getResourceType();
+                case 5 -> row.getResourceId();
+                case 6 -> row.getIpAddress();
+                case 7 -> row.getUserAgent();
+                case 8 -> row.getStatus();
+                case 9 -> row.getErrorMessage();
+                default -> row.getDetails();
+            };
+        }
+    }
+
+    static final class RowGroup {
+        private final LocalDateTime minTimestamp;
+        private final LocalDateTime maxTimestamp;
+        private final int rows;
+        private final long offset;
+        private final int[] columnLengths;
+
+        private RowGroup(LocalDateTime minTimestamp, LocalDateTime maxTimestamp, int rows, long offset,
+                         int[] columnLengths) {
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.rows = rows;
+            this.offset = offset;
+            this.columnLengths = columnLengths;
+        }
+
+        LocalDateTime getMinTimestamp() {
+            return minTimestamp;
+        }
+
+        LocalDateTime getMaxTimestamp() {
+            return maxTimestamp;
+        }
+
+        int getRows() {
+            return rows;
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static DataOutputStream deflate(OutputStream target) {
+        return new DataOutputStream(new DeflaterOutputStream(target, new Deflater(Deflater.BEST_COMPRESSION)) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                def.end();
+            }
+        });
+    }
+
+    private static DataInputStream inflate(byte[] data, int offset, int length) {
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data, offset, length)));
+    }
+
+    private static byte[] readFully(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of audit archive segment");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,264 @@
+package com.stock.authservice.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of audit records in fixed-size memory-mapped segment files.
+ * <p>
+ * Each record is framed as {@code [length][crc32c][payload]}. The length is written last, so a
+ * record torn by a crash reads as the end of the journal: on open, the tail segment is scanned
+ * and the write position set after the last record whose CRC matches. Records never span
+ * segments; a zero length means the rest of the segment is unused.
+ * <p>
+ * Positions are global byte offsets, and segment files are named after the position they start
+ * at. A single reader ships records and reports how far it got with {@link #checkpoint}, which
+ * is persisted and lets fully shipped segments be deleted.
+ * <p>
+ * Appends are serialized by a lock held only for the copy into the mapping. Records survive a
+ * process crash as soon as they are appended. Surviving an OS crash depends on the page cache
+ * being flushed; the journal does not fsync.
+ */
+@Slf4j
+final class AuditJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "audit-journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "audit-journal.checkpoint";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final NavigableMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final FileChannel checkpointChannel;
+
+    private volatile long writePosition;
+    private volatile long checkpoint;
+
+    private AuditJournal(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    static AuditJournal open(Path directory, int segmentSize, int maxSegments) throws IOException {
+        Files.createDirectories(directory);
+        AuditJournal journal = new AuditJournal(directory, segmentSize, maxSegments);
+        journal.recover();
+        return journal;
+    }
+
+    // ==================== WRITE ====================
+
+    /**
+     * Appends one record. Returns false when the record cannot be taken because the journal
+     * already holds {@code maxSegments} segments of unshipped data, or the record is empty or
+     * larger than a segment.
+     */
+    boolean append(byte[] payload) {
+        int frameLength = HEADER_BYTES + payload.length;
+        if (payload.length == 0 || frameLength > segmentSize) {
+            return false;
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+
+        appendLock.lock();
+        try {
+            long position = writePosition;
+            int offset = (int) (position % segmentSize);
+            long base = position - offset;
+            if (offset + frameLength > segmentSize) {
+                // Leave the tail unused (it reads as length 0) and start the next segment
+                base += segmentSize;
+                position = base;
+                offset = 0;
+            }
+            // The previous record may have ended exactly on a segment boundary
+            if (!segments.containsKey(base)) {
+                if (segments.size() >= maxSegments) {
+                    return false;
+                }
+                mapSegment(base);
+            }
+
+            MappedByteBuffer segment = segments.get(base);
+            segment.putInt(offset + 4, (int) crc.getValue());
+            segment.put(offset + HEADER_BYTES, payload);
+            segment.putInt(offset, payload.length);
+            writePosition = position + frameLength;
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to create audit journal segment", e);
+            return false;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // ==================== READ ====================
+
+    /**
+     * Reads up to {@code maxRecords} records starting at {@code position} into {@code out} and
+     * returns the position after the last one read.
+     */
+    long read(long position, int maxRecords, List<byte[]> out) {
+        int read = 0;
+        while (read < maxRecords && position < writePosition) {
+            int offset = (int) (position % segmentSize);
+            long base = position - offset;
+            MappedByteBuffer segment = segments.get(base);
+            int length = offset + HEADER_BYTES <= segmentSize ? segment.getInt(offset) : 0;
+            if (length == 0) {
+                position = base + segmentSize;
+                continue;
+            }
+
+            byte[] payload = new byte[length];
+            segment.get(offset + HEADER_BYTES, payload);
+            out.add(payload);
+            read++;
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * Records that everything before {@code position} has been shipped and deletes the
+     * segments that lie entirely before it.
+     */
+    void checkpoint(long position) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES).putLong(0, position);
+        checkpointChannel.write(value, 0);
+        checkpoint = position;
+
+        long activeBase = writePosition - (writePosition % segmentSize);
+        for (Map.Entry<Long, MappedByteBuffer> entry : segments.headMap(activeBase).entrySet()) {
+            if (entry.getKey() + segmentSize > position) {
+                break;
+            }
+            segments.remove(entry.getKey());
+            Files.deleteIfExists(segmentPath(entry.getKey()));
+        }
+    }
+
+    long checkpointPosition() {
+        return checkpoint;
+    }
+
+
+    /** Bytes appended but not yet checkpointed. */
+    long lag() {
+        return writePosition - checkpoint;
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpointChannel.close();
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+    }
+
+    // ==================== RECOVERY ====================
+
+    private void recover() throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES);
+        long savedCheckpoint = checkpointChannel.read(value, 0) == Long.BYTES ? value.getLong(0) : 0;
+
+        List<Long> bases;
+        try (Stream<Path> listing = Files.list(directory)) {
+            bases = listing
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        if (bases.isEmpty()) {
+            long base = savedCheckpoint - (savedCheckpoint % segmentSize);
+            mapSegment(base);
+            writePosition = savedCheckpoint;
+            checkpoint = savedCheckpoint;
+            return;
+        }
+
+        for (long base : bases) {
+            mapSegment(base);
+        }
+
+        long tailBase = bases.get(bases.size() - 1);
+        writePosition = tailBase + scanTail(segments.get(tailBase));
+        checkpoint = Math.min(Math.max(savedCheckpoint, bases.get(0)), writePosition);
+
+        if (writePosition > checkpoint) {
+            log.info("Audit journal has {} unshipped bytes to replay", writePosition - checkpoint);
+        }
+    }
+
+    /**
+     * Returns the offset after the last intact record in the segment. Anything after it is
+     * zeroed so that a later recovery cannot mistake stale bytes for records.
+     */
+    private int scanTail(MappedByteBuffer segment) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = segment.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentSize) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            segment.get(offset + HEADER_BYTES, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+                log.warn("Audit journal record at offset {} is torn, discarding the rest of the segment", offset);
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+
+        for (int i = offset; i < segmentSize; i++) {
+            if (segment.get(i) != 0) {
+                segment.put(i, (byte) 0);
+            }
+        }
+        return offset;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void mapSegment(long base) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(base),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segments.put(base, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", base) + SEGMENT_SUFFIX);
+    }
+}
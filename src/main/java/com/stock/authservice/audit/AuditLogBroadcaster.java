@@ -0,0 +1,229 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.config.AuditConfig;
+import com.stock.authservice.dto.response.AuditLogResponse;
+import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.exception.RateLimitExceededException;
+import com.stock.authservice.repository.AuditLogCriteria;
+import com.stock.authservice.util.JsonUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes audit entries to live Server-Sent Events subscribers as the writer stores them.
+ * <p>
+ * {@link #publish} runs on the writer thread and never blocks it: each subscriber has a bounded
+ * queue, and entries that do not fit are dropped and counted. A subscriber's queue is drained by
+ * at most one sender task at a time, so a slow client only holds up its own stream. Before the
+ * next entry the client gets a {@code dropped} event with the number it missed.
+ * <p>
+ * Subscribers see entries stored by this node only.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogBroadcaster {
+
+    private static final String EVENT_AUDIT = "audit";
+    private static final String EVENT_DROPPED = "dropped";
+
+    private final AuditConfig auditConfig;
+    private final MeterRegistry meterRegistry;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Reserved before a subscriber is added and released when it is removed, so concurrent
+    // subscribes cannot overshoot the cap
+    private final AtomicInteger subscriberSlots = new AtomicInteger();
+
+    private ThreadPoolExecutor senders;
+    private Counter deliveredCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // One task per subscriber at most, so the pool never needs to queue
+        senders = new ThreadPoolExecutor(0, auditConfig.getStream().getMaxSubscribers(),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "audit-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("audit.stream.subscribers", subscribers, List::size).register(meterRegistry);
+        deliveredCounter = meterRegistry.counter("audit.stream.delivered");
+        droppedCounter = meterRegistry.counter("audit.stream.dropped");
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            remove(subscriber);
+            subscriber.emitter.complete();
+        }
+    }
+
+    // ==================== SUBSCRIBE ====================
+
+    public SseEmitter subscribe(String action, String status, String userId) {
+        AuditConfig.Stream config = auditConfig.getStream();
+        if (subscriberSlots.incrementAndGet() > config.getMaxSubscribers()) {
+            subscriberSlots.decrementAndGet();
+            throw new RateLimitExceededException("Too many audit stream subscribers",
+                    TimeUnit.MILLISECONDS.toSeconds(config.getHeartbeatIntervalMs()));
+        }
+
+        AuditLogCriteria criteria = AuditLogCriteria.builder()
+                .actions(action != null ? Set.of(action) : null)
+                .status(status)
+                .userId(userId)
+                .build();
+        SseEmitter emitter = new SseEmitter(config.getTimeoutMs());
+        Subscriber subscriber = new Subscriber(emitter, criteria, new ArrayBlockingQueue<>(config.getBufferSize()));
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> {
+            remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> remove(subscriber));
+        subscribers.add(subscriber);
+
+        log.debug("Audit stream subscriber added ({} active)", subscribers.size());
+        return emitter;
+    }
+
+    // ==================== PUBLISH ====================
+
+    /**
+     * Offers stored entries to every subscriber whose filter matches them. Never blocks.
+     */
+    public void publish(List<AuditLog> entries) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            boolean queued = false;
+            for (AuditLog entry : entries) {
+                if (!subscriber.criteria.matches(entry)) {
+                    continue;
+                }
+                if (subscriber.queue.offer(entry)) {
+                    queued = true;
+                } else {
+                    subscriber.dropped.incrementAndGet();
+                    droppedCounter.increment();
+                }
+            }
+            if (queued) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    // Keeps idle streams open through proxies that close silent connections
+    @Scheduled(fixedDelayString = "${audit.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    // ==================== SEND ====================
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.sending.set(false);
+                if (!senders.isShutdown()) {
+                    // Every thread is still busy with a removed subscriber's last send; the entries
+                    // stay queued for the next publish or heartbeat
+                    log.debug("Audit stream send deferred: sender pool is full");
+                }
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            if (subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            AuditLog entry;
+            while ((entry = subscriber.queue.poll()) != null) {
+                long dropped = subscriber.dropped.getAndSet(0);
+                if (dropped > 0) {
+                    subscriber.emitter.send(SseEmitter.event().name(EVENT_DROPPED).data(dropped));
+                }
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(entry.getId())
+                        .name(EVENT_AUDIT)
+                        .data(JsonUtil.toJson(AuditLogResponse.from(entry))));
+                deliveredCounter.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed
+            remove(subscriber);
+            subscriber.queue.clear();
+            log.debug("Audit stream subscriber removed: {}", e.getMessage());
+        } finally {
+            subscriber.sending.set(false);
+        }
+
+        if (!subscriber.queue.isEmpty() && subscribers.contains(subscriber)) {
+            schedule(subscriber);
+        }
+    }
+
+    // Gives the slot back once per subscriber, whichever of the callbacks and the sender gets here first
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriberSlots.decrementAndGet();
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AuditLogCriteria criteria;
+        private final BlockingQueue<AuditLog> queue;
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+
+        private Subscriber(SseEmitter emitter, AuditLogCriteria criteria, BlockingQueue<AuditLog> queue) {
+            this.emitter = emitter;
+            this.criteria = criteria;
+            this.queue = queue;
+        }
+    }
+}
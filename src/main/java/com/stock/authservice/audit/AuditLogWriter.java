@@ -0,0 +1,474 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.config.AuditConfig;
+import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.util.JsonUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Takes audit entries off the request path. Callers append to a local journal
+ * ({@link AuditJournal}), which keeps entries across restarts and database outages. One writer
+ * thread ships the journal to the database and checkpoints what was written. When the journal
+ * is disabled, cannot be opened or is full, entries go to a bounded lock-free ring buffer
+ * instead; the same thread drains it and writes each batch with a single array insert when the
+ * batch fills up or the flush interval passes, whichever comes first. The same statement keeps
+ * the hourly statistics rollups up to date, and stored batches are handed to
+ * {@link AuditLogBroadcaster} for live subscribers.
+ * <p>
+ * When the buffer is full the configured overflow policy applies: {@code block} waits for
+ * space (then spills), {@code drop} discards and counts, {@code spill} appends to an NDJSON
+ * file. Batches the database rejects are spilled too, and spill files are replayed by the
+ * writer once inserts succeed again, so entries are only lost under the {@code drop} policy.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogWriter {
+
+    // One statement per batch: the entries go in as arrays, and the hourly rollups are bumped
+    // from what was actually inserted. DO NOTHING keeps spill replay idempotent after a partially
+    // applied file, and rows skipped that way are not counted twice.
+    private static final String INSERT_SQL =
+            "WITH inserted AS (" +
+            "  INSERT INTO audit_logs (id, user_id, username, action, resource_type, resource_id, ip_address, " +
+            "    user_agent, status, error_message, details, timestamp) " +
+            "  SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], " +
+            "    ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::text[], ?::timestamp[]) " +
+            "  ON CONFLICT DO NOTHING " +
+            "  RETURNING user_id, username, action, status, timestamp" +
+            "), by_action AS (" +
+            "  INSERT INTO audit_action_rollups (id, bucket_start, action, status, event_count) " +
+            "  SELECT gen_random_uuid()::text, date_trunc('hour', timestamp), action, COALESCE(status, ''), count(*) " +
+            "  FROM inserted GROUP BY 2, 3, 4 " +
+            "  ON CONFLICT (bucket_start, action, status) " +
+            "  DO UPDATE SET event_count = audit_action_rollups.event_count + EXCLUDED.event_count" +
+            "), by_user AS (" +
+            "  INSERT INTO audit_user_rollups (id, bucket_start, user_id, username, event_count) " +
+            "  SELECT gen_random_uuid()::text, date_trunc('hour', timestamp), user_id, MAX(username), count(*) " +
+            "  FROM inserted WHERE user_id IS NOT NULL GROUP BY 2, 3 " +
+            "  ON CONFLICT (bucket_start, user_id) " +
+            "  DO UPDATE SET event_count = audit_user_rollups.event_count + EXCLUDED.event_count, " +
+            "    username = COALESCE(EXCLUDED.username, audit_user_rollups.username)" +
+            ") SELECT count(*) FROM inserted";
+
+    // First start only: seeds the rollups from the entries already in audit_logs
+    private static final String BACKFILL_ACTION_ROLLUPS_SQL =
+            "INSERT INTO audit_action_rollups (id, bucket_start, action, status, event_count) " +
+            "SELECT gen_random_uuid()::text, date_trunc('hour', timestamp), action, COALESCE(status, ''), count(*) " +
+            "FROM audit_logs WHERE NOT EXISTS (SELECT 1 FROM audit_action_rollups) GROUP BY 2, 3, 4 " +
+            "ON CONFLICT DO NOTHING";
+
+    private static final String BACKFILL_USER_ROLLUPS_SQL =
+            "INSERT INTO audit_user_rollups (id, bucket_start, user_id, username, event_count) " +
+            "SELECT gen_random_uuid()::text, date_trunc('hour', timestamp), user_id, MAX(username), count(*) " +
+            "FROM audit_logs WHERE user_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM audit_user_rollups) " +
+            "GROUP BY 2, 3 ON CONFLICT DO NOTHING";
+
+    private static final String SPILL_PREFIX = "audit-spill-";
+    private static final String SPILL_SUFFIX = ".ndjson";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditConfig auditConfig;
+    private final MeterRegistry meterRegistry;
+    private final AuditLogBroadcaster broadcaster;
+
+    private final Object spillLock = new Object();
+
+    private MpscRingBuffer<AuditLog> buffer;
+    private AuditJournal journal;
+    private final AtomicInteger journalUnshipped = new AtomicInteger();
+    private long journalRetryAt;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private Path spillDirectory;
+    private Path spillFile;
+    private BufferedWriter spillWriter;
+
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+    private Counter spilledCounter;
+    private Counter failedBatchCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void start() {
+        AuditConfig.Writer config = auditConfig.getWriter();
+        buffer = new MpscRingBuffer<>(config.getCapacity());
+        spillDirectory = Paths.get(config.getSpillDirectory());
+
+        Gauge.builder("audit.buffer.size", buffer, MpscRingBuffer::size).register(meterRegistry);
+        writtenCounter = meterRegistry.counter("audit.events.written");
+        droppedCounter = meterRegistry.counter("audit.events.dropped");
+        spilledCounter = meterRegistry.counter("audit.events.spilled");
+        failedBatchCounter = meterRegistry.counter("audit.batches.failed");
+        batchTimer = meterRegistry.timer("audit.batch.write");
+
+        AuditConfig.Journal journalConfig = auditConfig.getJournal();
+        if (journalConfig.isEnabled()) {
+            try {
+                journal = AuditJournal.open(Paths.get(journalConfig.getDirectory()),
+                        journalConfig.getSegmentSizeBytes(), journalConfig.getMaxSegments());
+                Gauge.builder("audit.journal.lag.bytes", journal, AuditJournal::lag).register(meterRegistry);
+            } catch (IOException e) {
+                log.error("Failed to open audit journal, using the in-memory buffer only", e);
+            }
+        }
+
+        running = true;
+        writerThread = new Thread(this::run, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        log.info("Audit writer started (journal {}, capacity {}, batch {}, overflow {})",
+                journal != null ? "on" : "off", buffer.capacity(), config.getBatchSize(), config.getOverflow());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeSpillWriter();
+        // Whatever is left in the journal is shipped on the next start
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Failed to close audit journal", e);
+            }
+        }
+    }
+
+    // ==================== ENQUEUE ====================
+
+    public void submit(AuditLog auditLog) {
+        // Assigned here because rows are written with JDBC, bypassing Hibernate's generators
+        if (auditLog.getId() == null) {
+            auditLog.setId(UUID.randomUUID().toString());
+        }
+        if (auditLog.getTimestamp() == null) {
+            auditLog.setTimestamp(LocalDateTime.now());
+        }
+
+        if (!running) {
+            // Shutting down; the writer may already have drained for the last time
+            spill(List.of(auditLog));
+            return;
+        }
+
+        if (journal != null && journal.append(JsonUtil.toJsonBytes(auditLog))) {
+            if (journalUnshipped.incrementAndGet() == auditConfig.getWriter().getBatchSize()) {
+                LockSupport.unpark(writerThread);
+            }
+            return;
+        }
+
+        if (buffer.offer(auditLog)) {
+            if (buffer.size() >= auditConfig.getWriter().getBatchSize()) {
+                LockSupport.unpark(writerThread);
+            }
+            return;
+        }
+        handleOverflow(auditLog);
+    }
+
+    private void handleOverflow(AuditLog auditLog) {
+        switch (auditConfig.getWriter().getOverflow().toLowerCase()) {
+            case "drop" -> droppedCounter.increment();
+            case "block" -> {
+                long deadline = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(auditConfig.getWriter().getBlockTimeoutMs());
+                LockSupport.unpark(writerThread);
+                while (System.nanoTime() < deadline) {
+                    if (buffer.offer(auditLog)) {
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                }
+                spill(List.of(auditLog));
+            }
+            default -> spill(List.of(auditLog));
+        }
+    }
+
+    // ==================== WRITER LOOP ====================
+
+    private void run() {
+        AuditConfig.Writer config = auditConfig.getWriter();
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMs());
+        long replayIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getReplayIntervalMs());
+        List<AuditLog> pending = new ArrayList<>(config.getBatchSize());
+        long lastFlush = System.nanoTime();
+        long lastReplay = System.nanoTime();
+
+        // On the writer thread so it cannot interleave with this node's own rollup updates
+        backfillRollups();
+
+        while (running || buffer.size() > 0) {
+            if (journal != null && running && System.nanoTime() - journalRetryAt >= 0
+                    && shipJournal(config.getBatchSize(), replayIntervalNanos) == config.getBatchSize()) {
+                // A full batch came out of the journal; there is probably more behind it
+                continue;
+            }
+
+            buffer.drainTo(pending, config.getBatchSize() - pending.size());
+
+            long now = System.nanoTime();
+            // On shutdown, write whatever is pending instead of waiting for the timer
+            boolean flushDue = !running || now - lastFlush >= flushIntervalNanos;
+            if (pending.size() >= config.getBatchSize() || (flushDue && !pending.isEmpty())) {
+                write(pending);
+                pending.clear();
+                lastFlush = now;
+                continue;
+            }
+
+            if (now - lastReplay >= replayIntervalNanos) {
+                replaySpillFiles();
+                lastReplay = System.nanoTime();
+            }
+
+            if (pending.isEmpty()) {
+                lastFlush = now;
+            }
+            if (running && buffer.size() == 0) {
+                LockSupport.parkNanos(Math.max(flushIntervalNanos - (System.nanoTime() - lastFlush), 1));
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            write(pending);
+        }
+    }
+
+    /**
+     * Writes the next batch from the journal and checkpoints past it. On failure the checkpoint
+     * stays put, so the same records are retried after {@code retryNanos}; the insert ignores
+     * rows that already made it. Returns the number of records shipped.
+     */
+    private int shipJournal(int maxRecords, long retryNanos) {
+        journalUnshipped.set(0);
+        List<byte[]> records = new ArrayList<>(maxRecords);
+        long next = journal.read(journal.checkpointPosition(), maxRecords, records);
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        List<AuditLog> batch = records.stream()
+                .map(bytes -> JsonUtil.fromJsonBytes(bytes, AuditLog.class))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        try {
+            if (!batch.isEmpty()) {
+                batchTimer.record(() -> insert(batch));
+            }
+            journal.checkpoint(next);
+            writtenCounter.increment(batch.size());
+            broadcaster.publish(batch);
+            return records.size();
+        } catch (Exception e) {
+            failedBatchCounter.increment();
+            log.error("Failed to ship {} journaled audit entries, retrying later: {}", batch.size(), e.getMessage());
+            journalRetryAt = System.nanoTime() + retryNanos;
+            return 0;
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
+        try {
+            batchTimer.record(() -> insert(batch));
+            writtenCounter.increment(batch.size());
+            broadcaster.publish(batch);
+        } catch (Exception e) {
+            failedBatchCounter.increment();
+            log.error("Failed to write {} audit entries, spilling to disk", batch.size(), e);
+            spill(batch);
+        }
+    }
+
+    private void insert(List<AuditLog> batch) {
+        int size = batch.size();
+        String[][] columns = new String[11][size];
+        Timestamp[] timestamps = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            AuditLog auditLog = batch.get(i);
+            columns[0][i] = auditLog.getId();
+            columns[1][i] = auditLog.getUserId();
+            columns[2][i] = auditLog.getUsername();
+            columns[3][i] = auditLog.getAction();
+            columns[4][i] = auditLog.getResourceType();
+            columns[5][i] = auditLog.getResourceId();
+            columns[6][i] = auditLog.getIpAddress();
+            columns[7][i] = auditLog.getUserAgent();
+            columns[8][i] = auditLog.getStatus();
+            columns[9][i] = auditLog.getErrorMessage();
+            columns[10][i] = auditLog.getDetails();
+            timestamps[i] = Timestamp.valueOf(auditLog.getTimestamp());
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (int column = 0; column < columns.length; column++) {
+                    statement.setArray(column + 1, connection.createArrayOf(column == 10 ? "text" : "varchar",
+                            columns[column]));
+                }
+                statement.setArray(columns.length + 1, connection.createArrayOf("timestamp", timestamps));
+                statement.executeQuery().close();
+            }
+            return null;
+        });
+    }
+
+    private void backfillRollups() {
+        try {
+            int actionRows = jdbcTemplate.update(BACKFILL_ACTION_ROLLUPS_SQL);
+            int userRows = jdbcTemplate.update(BACKFILL_USER_ROLLUPS_SQL);
+            if (actionRows + userRows > 0) {
+                log.info("Backfilled audit rollups ({} action buckets, {} user buckets)", actionRows, userRows);
+            }
+        } catch (Exception e) {
+            log.warn("Audit rollup backfill failed: {}", e.getMessage());
+        }
+    }
+
+    // ==================== SPILL ====================
+
+    void spill(List<AuditLog> entries) {
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) {
+                    Files.createDirectories(spillDirectory);
+                    Path file = spillDirectory.resolve(SPILL_PREFIX + System.currentTimeMillis() + "-"
+                            + UUID.randomUUID().toString().substring(0, 8) + SPILL_SUFFIX);
+                    spillWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    spillFile = file;
+                }
+                for (AuditLog entry : entries) {
+                    spillWriter.write(JsonUtil.toJson(entry));
+                    spillWriter.newLine();
+                }
+                spillWriter.flush();
+                spilledCounter.increment(entries.size());
+            } catch (IOException e) {
+                droppedCounter.increment(entries.size());
+                log.error("Failed to spill {} audit entries, dropping them", entries.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Replays closed spill files oldest first and deletes each one once it is fully written.
+     * Stops at the first failure so the file is retried on the next run. Writer thread only.
+     */
+    void replaySpillFiles() {
+        if (!Files.isDirectory(spillDirectory)) {
+            return;
+        }
+
+        // Rotate, so that new spills go to a fresh file from here on
+        closeSpillWriter();
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(spillDirectory)) {
+            files = listing
+                    .filter(path -> path.getFileName().toString().startsWith(SPILL_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SPILL_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("Failed to list audit spill directory {}", spillDirectory, e);
+            return;
+        }
+
+        // A spill may have opened a new file since the rotation. Only this thread closes files,
+        // so that one is still open and is left for the next run; everything else is complete.
+        Path active;
+        synchronized (spillLock) {
+            active = spillFile;
+        }
+        if (active != null) {
+            files.removeIf(file -> file.getFileName().equals(active.getFileName()));
+        }
+
+        int batchSize = auditConfig.getWriter().getBatchSize();
+        for (Path file : files) {
+            try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                List<AuditLog> batch = new ArrayList<>(batchSize);
+                long replayed = 0;
+                for (String line : (Iterable<String>) lines::iterator) {
+                    AuditLog entry = line.isBlank() ? null : JsonUtil.fromJson(line, AuditLog.class);
+                    if (entry == null) {
+                        continue;
+                    }
+                    batch.add(entry);
+                    if (batch.size() == batchSize) {
+                        insert(batch);
+                        replayed += batch.size();
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    insert(batch);
+                    replayed += batch.size();
+                }
+                Files.delete(file);
+                writtenCounter.increment(replayed);
+                log.info("Replayed {} spilled audit entries from {}", replayed, file.getFileName());
+            } catch (Exception e) {
+                log.warn("Audit spill replay stopped at {}: {}", file.getFileName(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void closeSpillWriter() {
+        synchronized (spillLock) {
+            if (spillWriter == null) {
+                return;
+            }
+            try {
+                spillWriter.close();
+            } catch (IOException e) {
+                log.warn("Failed to close audit spill file", e);
+            }
+            spillWriter = null;
+            spillFile = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.config.AuditSearchFunctionContributor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the full-text index over audit details and error messages.
+ * <p>
+ * It is a GIN index on the tsvector expression rather than a stored column, so entries stay
+ * searchable from the moment they are inserted without the entity having to map (and load) the
+ * vector. The 'simple' configuration does no stemming or stop-word removal, which suits ids,
+ * addresses and error codes better than a language dictionary.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditSearchIndex {
+
+    public static final String INDEX_NAME = "idx_audit_search";
+
+    public static final String INDEX_DEFINITION = "USING GIN ("
+            + String.format(AuditSearchFunctionContributor.SEARCH_DOCUMENT, "details", "error_message") + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + INDEX_NAME + " ON audit_logs " + INDEX_DEFINITION);
+        } catch (DataAccessException e) {
+            log.error("Failed to create audit full-text index", e);
+        }
+    }
+}
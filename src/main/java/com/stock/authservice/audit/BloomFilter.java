@@ -0,0 +1,85 @@
+package com.stock.authservice.audit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size Bloom filter over strings, about 1% false positives at the expected entry count.
+ * Bit positions come from double hashing a single 64-bit hash of the UTF-8 bytes.
+ */
+final class BloomFilter {
+
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_COUNT = 7;
+
+    private final long[] words;
+    private final int bitCount;
+
+    private BloomFilter(long[] words) {
+        this.words = words;
+        this.bitCount = words.length * Long.SIZE;
+    }
+
+    static BloomFilter forExpectedEntries(long expectedEntries) {
+        long bits = Math.max(Long.SIZE, Math.min(expectedEntries * BITS_PER_ENTRY, Integer.MAX_VALUE - Long.SIZE));
+        return new BloomFilter(new long[(int) ((bits + Long.SIZE - 1) / Long.SIZE)]);
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = bitIndex(hash, i);
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = bitIndex(hash, i);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    static BloomFilter readFrom(DataInput in) throws IOException {
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(words);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private int bitIndex(long hash, int i) {
+        int combined = (int) hash + i * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer to spread the bits
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
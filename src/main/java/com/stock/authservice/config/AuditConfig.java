@@ -0,0 +1,83 @@
+package com.stock.authservice.config;
+
+import com.stock.authservice.constants.SecurityConstants;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "audit")
+@Data
+public class AuditConfig {
+
+    private Writer writer = new Writer();
+    private Journal journal = new Journal();
+    private Partitioning partitioning = new Partitioning();
+    private Export export = new Export();
+    private Archive archive = new Archive();
+    private Stream stream = new Stream();
+
+    @Data
+    public static class Writer {
+        // Ring buffer slots; rounded up to a power of two
+        private int capacity = 65536;
+        // Rows per JDBC batch; a full batch is written without waiting for the timer
+        private int batchSize = 500;
+        private long flushIntervalMs = 200;
+        // What enqueue does when the buffer is full: block | drop | spill
+        private String overflow = "spill";
+        // How long "block" waits for space before spilling instead
+        private long blockTimeoutMs = 1000;
+        // NDJSON files for overflow and failed batches, replayed once the database accepts writes again
+        private String spillDirectory = "./data/audit-spill";
+        private long replayIntervalMs = 10000;
+    }
+
+    @Data
+    public static class Journal {
+        // Entries go to the on-disk journal first and are shipped to the database from there
+        private boolean enabled = true;
+        private String directory = "./data/audit-journal";
+        private int segmentSizeBytes = 64 * 1024 * 1024;
+        // Unshipped segments kept before falling back to the in-memory buffer
+        private int maxSegments = 32;
+    }
+
+    @Data
+    public static class Partitioning {
+        private boolean enabled = true;
+        // Whole monthly partitions are dropped once their newest possible entry is older than this
+        private int retentionDays = SecurityConstants.AUDIT_LOG_RETENTION_DAYS;
+        // Months created ahead of the current one
+        private int premakeMonths = 2;
+        private long maintenanceIntervalMs = 3600000;
+    }
+
+    @Data
+    public static class Export {
+        // Rows pulled from the database cursor per round trip
+        private int fetchSize = 1000;
+    }
+
+    @Data
+    public static class Archive {
+        // Partitions older than archive-after-days are moved to segment files, then dropped
+        private boolean enabled = true;
+        // Local copies of the segments; the database holds the shared, durable one
+        private String directory = "./data/audit-archive";
+        private int archiveAfterDays = 90;
+        private int rowGroupSize = 8192;
+        // How often each node fetches segments archived by other nodes
+        private long syncIntervalMs = 10000;
+    }
+
+    @Data
+    public static class Stream {
+        // Entries queued per live subscriber; beyond this they are dropped and counted
+        private int bufferSize = 1000;
+        private int maxSubscribers = 50;
+        // Clients reconnect after this
+        private long timeoutMs = 1800000;
+        private long heartbeatIntervalMs = 15000;
+    }
+}
@@ -0,0 +1,29 @@
+package com.stock.authservice.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers {@code audit_text_matches(details, errorMessage, query)} for criteria queries.
+ * <p>
+ * The rendered expression is the one idx_audit_search is built on, so PostgreSQL answers it from
+ * the GIN index. Keep the two in sync ({@code AuditSearchIndex}). Registered through
+ * META-INF/services.
+ */
+public class AuditSearchFunctionContributor implements FunctionContributor {
+
+    public static final String FUNCTION_NAME = "audit_text_matches";
+
+    public static final String SEARCH_DOCUMENT =
+            "to_tsvector('simple', coalesce(%s, '') || ' ' || coalesce(%s, ''))";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                FUNCTION_NAME,
+                String.format(SEARCH_DOCUMENT, "?1", "?2") + " @@ websearch_to_tsquery('simple', ?3)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
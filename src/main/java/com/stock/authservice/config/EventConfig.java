@@ -0,0 +1,54 @@
+package com.stock.authservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "events")
+@Data
+public class EventConfig {
+
+    private Outbox outbox = new Outbox();
+    private Breaker breaker = new Breaker();
+    private Producer producer = new Producer();
+    private Login login = new Login();
+    private Codec codec = new Codec();
+
+    @Data
+    public static class Outbox {
+        // Outbox rows published (and deleted) per relay transaction
+        private int batchSize = 500;
+        private long relayIntervalMs = 200;
+        // How long the relay waits for the broker to acknowledge a batch
+        private long sendTimeoutMs = 30000;
+    }
+
+    @Data
+    public static class Breaker {
+        // Failed relay batches in a row before the relay stops calling the broker
+        private int failureThreshold = 3;
+        // Pause before a single-event probe; events wait in the outbox meanwhile
+        private long openMs = 30000;
+    }
+
+    @Data
+    public static class Producer {
+        // Upper bound on send() blocking for metadata or buffer space, e.g. while the broker is down
+        private long maxBlockMs = 5000;
+        private int deliveryTimeoutMs = 20000;
+    }
+
+    @Data
+    public static class Login {
+        // Publish the separate login and session records instead of one envelope, for consumers
+        // that have not moved to UserLoginEnvelope yet
+        private boolean compatibilityMode = false;
+    }
+
+    @Data
+    public static class Codec {
+        // binary | json; JSON is larger but readable with console consumers
+        private String format = "binary";
+    }
+}
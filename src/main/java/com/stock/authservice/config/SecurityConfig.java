@@ -2,6 +2,7 @@ package com.stock.authservice.config;
 
 import com.stock.authservice.security.JwtAuthenticationEntryPoint;
 import com.stock.authservice.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -88,6 +89,9 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configure(http))
                 .authorizeHttpRequests(auth -> auth
+                        // Completion of streamed responses (SSE, exports); the original request was authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Public endpoints
                         .requestMatchers(
                                 "/api/auth/login",
@@ -0,0 +1,61 @@
+package com.stock.authservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "session")
+@Data
+public class SessionConfig {
+
+    // jpa | redis
+    private String store = "jpa";
+    private Cleanup cleanup = new Cleanup();
+    private Redis redis = new Redis();
+    private Activity activity = new Activity();
+    private Expiry expiry = new Expiry();
+    private Partitioning partitioning = new Partitioning();
+
+    @Data
+    public static class Cleanup {
+        // Rows expired or purged per statement (and per commit)
+        private int batchSize = 1000;
+        private int retentionDays = 30;
+        private long expireIntervalMs = 60000;
+        private long purgeIntervalMs = 3600000;
+    }
+
+    @Data
+    public static class Redis {
+        // Expired hashes are kept this long so the sweeper can still persist their terminal state
+        private long expiredGraceSeconds = 3600;
+    }
+
+    @Data
+    public static class Activity {
+        // Coalesce lastActivity touches in memory and flush them as one JDBC batch
+        private boolean writeBehind = true;
+        // Flush interval, i.e. the maximum age of an unflushed touch
+        private long maxStalenessMs = 30000;
+    }
+
+    @Data
+    public static class Expiry {
+        // In-process timing wheel for session and temporary-token expiry
+        private boolean enabled = true;
+        private long tickMs = 1000;
+        private int wheelSize = 512;
+        private int levels = 3;
+        // Expired unused tokens are kept this long so their links report "expired", not "not found"
+        private long expiredTokenRetentionMs = 86400000;
+    }
+
+    @Data
+    public static class Partitioning {
+        // Daily created_at partitions for user_sessions, dropped whole once past retention
+        private boolean enabled = true;
+        private int premakeDays = 7;
+        private long maintenanceIntervalMs = 3600000;
+    }
+}
@@ -0,0 +1,72 @@
+package com.stock.authservice.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps user_session_keys in step with user_sessions through a row trigger, so every write path
+ * (JPA saves, native upserts, bulk deletes) maintains it without knowing about it. Inserting a
+ * session whose token digest is already taken fails on the key table's unique index, which is
+ * what keeps digests unique once user_sessions is partitioned.
+ * <p>
+ * Runs after the schema update and before the server takes requests. The first run also copies
+ * the sessions that predate the trigger. Partitions dropped whole bypass the trigger;
+ * {@code SessionPartitionMaintainer} removes their keys itself.
+ */
+@Component
+// Copies session digests, so they have to be filled in first
+@DependsOn({"entityManagerFactory", "tokenSchemaMigration"})
+@RequiredArgsConstructor
+@Slf4j
+public class SessionKeyMigration {
+
+    public static final String TRIGGER = "user_session_keys_sync";
+    public static final String CREATE_TRIGGER_SQL = "CREATE TRIGGER " + TRIGGER +
+            " AFTER INSERT OR DELETE ON user_sessions FOR EACH ROW EXECUTE FUNCTION " + TRIGGER + "()";
+
+    private static final String SYNC_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION " + TRIGGER + "() RETURNS trigger AS $$ " +
+            "BEGIN " +
+            "  IF TG_OP = 'INSERT' THEN " +
+            "    INSERT INTO user_session_keys (session_id, session_token_hash, created_at) " +
+            "    VALUES (NEW.id, NEW.session_token_hash, NEW.created_at); " +
+            "  ELSE " +
+            "    DELETE FROM user_session_keys WHERE session_id = OLD.id; " +
+            "  END IF; " +
+            "  RETURN NULL; " +
+            "END $$ LANGUAGE plpgsql";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void installKeySync() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Only one node installs; the others find the trigger once the lock is released
+            jdbcTemplate.queryForObject("SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(?))) l",
+                    Integer.class, TRIGGER);
+            jdbcTemplate.execute(SYNC_FUNCTION_SQL);
+            if (triggerExists()) {
+                return;
+            }
+
+            // Creating the trigger blocks session writes until the copy below commits
+            jdbcTemplate.execute(CREATE_TRIGGER_SQL);
+            int copied = jdbcTemplate.update(
+                    "INSERT INTO user_session_keys (session_id, session_token_hash, created_at) " +
+                            "SELECT id, session_token_hash, created_at FROM user_sessions ON CONFLICT DO NOTHING");
+            log.info("Installed {} and copied {} existing session keys", TRIGGER, copied);
+        });
+    }
+
+    private boolean triggerExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_trigger WHERE tgrelid = to_regclass('user_sessions') AND tgname = ?)",
+                Boolean.class, TRIGGER));
+    }
+}
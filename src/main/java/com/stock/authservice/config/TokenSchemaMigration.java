@@ -0,0 +1,68 @@
+package com.stock.authservice.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Drops token columns the entities no longer map, the plaintext columns left behind by the
+ * switch to SHA-256 digests, along with the refresh token indexes and tables that lookups by
+ * slot id made obsolete.
+ * <p>
+ * ddl-auto only adds columns, so on an existing database the old NOT NULL columns would stay
+ * and every insert that leaves them out would fail. Before a plaintext column goes, the digest
+ * column added next to it is filled from it, so live tokens, sessions and links keep working.
+ * This runs once the schema update is done and before the server takes requests.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class TokenSchemaMigration {
+
+    // table, unmapped column, digest column to fill from it first
+    private static final List<String[]> LEGACY_COLUMNS = List.of(
+            new String[]{"refresh_tokens", "token", "token_hash"},
+            new String[]{"user_sessions", "session_token", "session_token_hash"},
+            new String[]{"email_verification_tokens", "token", "token_hash"},
+            new String[]{"password_reset_tokens", "token", "token_hash"}
+    );
+
+    // An index on a rotated digest would keep every rotation from being a HOT update
+    private static final List<String> LEGACY_REFRESH_TOKEN_DDL = List.of(
+            "DROP INDEX IF EXISTS idx_refresh_token_hash",
+            "DROP INDEX IF EXISTS idx_refresh_token_previous_hash",
+            "DROP TABLE IF EXISTS refresh_token_generations"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void dropLegacyColumns() {
+        for (String[] column : LEGACY_COLUMNS) {
+            String table = column[0];
+            String name = column[1];
+            Boolean exists = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                            "WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?)",
+                    Boolean.class, table, name);
+            if (Boolean.TRUE.equals(exists)) {
+                String digest = column[2];
+                // Same digest as HashUtil.sha256Bytes
+                int filled = jdbcTemplate.update("UPDATE " + table + " SET " + digest +
+                        " = sha256(convert_to(" + name + ", 'UTF8')) WHERE " + digest + " IS NULL AND " +
+                        name + " IS NOT NULL");
+                log.info("Filled {}.{} for {} rows from {}", table, digest, filled, name);
+                // On a partitioned table this also drops the column from every partition
+                jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN IF EXISTS " + name);
+                log.info("Dropped unmapped token column {}.{}", table, name);
+            }
+        }
+        LEGACY_REFRESH_TOKEN_DDL.forEach(jdbcTemplate::execute);
+    }
+}
@@ -1,7 +1,10 @@
 package com.stock.authservice.controller;
 
+import com.stock.authservice.dto.response.AuditActionStatsResponse;
 import com.stock.authservice.dto.response.AuditLogResponse;
-import com.stock.authservice.dto.response.PageResponse;
+import com.stock.authservice.dto.response.AuditUserStatsResponse;
+import com.stock.authservice.dto.response.CursorPageResponse;
+import com.stock.authservice.service.AuditExportService;
 import com.stock.authservice.service.AuditLogService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -9,11 +12,16 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/audit")
@@ -25,19 +33,21 @@ import java.time.LocalDateTime;
 public class AuditLogController {
 
     private final AuditLogService auditLogService;
+    private final AuditExportService auditExportService;
 
     // ==================== GET AUDIT LOGS ====================
 
     @GetMapping
-    @Operation(summary = "Get all audit logs", description = "Get paginated list of all audit logs")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getAllAuditLogs(
-            @RequestParam(defaultValue = "0") int page,
+    @Operation(summary = "Get all audit logs", description = "Get a cursor-paginated list of all audit logs")
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getAllAuditLogs(
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "timestamp") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDirection) {
-        log.info("GET /api/audit - Get all audit logs - page: {}, size: {}", page, size);
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        log.info("GET /api/audit - Get all audit logs - size: {}", size);
 
-        PageResponse<AuditLogResponse> response = auditLogService.getAllAuditLogs(page, size, sortBy, sortDirection);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getAllAuditLogs(
+                cursor, size, sortDirection, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -56,26 +66,28 @@ public class AuditLogController {
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get audit logs by user", description = "Get all audit logs for a specific user")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getAuditLogsByUser(
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getAuditLogsByUser(
             @PathVariable String userId,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/user/{} - Get audit logs for user", userId);
 
-        PageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByUserId(userId, page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByUserId(userId, cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/username/{username}")
     @Operation(summary = "Get audit logs by username", description = "Get all audit logs for a specific username")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getAuditLogsByUsername(
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getAuditLogsByUsername(
             @PathVariable String username,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/username/{} - Get audit logs for username", username);
 
-        PageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByUsername(username, page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByUsername(username, cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -84,13 +96,14 @@ public class AuditLogController {
 
     @GetMapping("/action/{action}")
     @Operation(summary = "Get audit logs by action", description = "Get all audit logs for a specific action")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getAuditLogsByAction(
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getAuditLogsByAction(
             @PathVariable String action,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/action/{} - Get audit logs by action", action);
 
-        PageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByAction(action, page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByAction(action, cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -99,15 +112,16 @@ public class AuditLogController {
 
     @GetMapping("/date-range")
     @Operation(summary = "Get audit logs by date range", description = "Get audit logs within a specific date range")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getAuditLogsByDateRange(
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getAuditLogsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/date-range - Get audit logs from {} to {}", startDate, endDate);
 
-        PageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByDateRange(
-                startDate, endDate, page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByDateRange(
+                startDate, endDate, cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -116,13 +130,14 @@ public class AuditLogController {
 
     @GetMapping("/ip/{ipAddress}")
     @Operation(summary = "Get audit logs by IP address", description = "Get all audit logs from a specific IP address")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getAuditLogsByIpAddress(
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getAuditLogsByIpAddress(
             @PathVariable String ipAddress,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/ip/{} - Get audit logs by IP address", ipAddress);
 
-        PageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByIpAddress(ipAddress, page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByIpAddress(ipAddress, cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -131,13 +146,14 @@ public class AuditLogController {
 
     @GetMapping("/status/{status}")
     @Operation(summary = "Get audit logs by status", description = "Get all audit logs with a specific status (SUCCESS/FAILURE)")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getAuditLogsByStatus(
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getAuditLogsByStatus(
             @PathVariable String status,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/status/{} - Get audit logs by status", status);
 
-        PageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByStatus(status, page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getAuditLogsByStatus(status, cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -146,12 +162,13 @@ public class AuditLogController {
 
     @GetMapping("/failed-logins")
     @Operation(summary = "Get failed login attempts", description = "Get all failed login attempts")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getFailedLoginAttempts(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getFailedLoginAttempts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/failed-logins - Get failed login attempts");
 
-        PageResponse<AuditLogResponse> response = auditLogService.getFailedLoginAttempts(page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getFailedLoginAttempts(cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -160,12 +177,13 @@ public class AuditLogController {
 
     @GetMapping("/security-events")
     @Operation(summary = "Get security events", description = "Get security-related events (locks, unlocks, password changes)")
-    public ResponseEntity<PageResponse<AuditLogResponse>> getSecurityEvents(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> getSecurityEvents(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/security-events - Get security events");
 
-        PageResponse<AuditLogResponse> response = auditLogService.getSecurityEvents(page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.getSecurityEvents(cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
@@ -173,8 +191,9 @@ public class AuditLogController {
     // ==================== SEARCH AUDIT LOGS ====================
 
     @GetMapping("/search")
-    @Operation(summary = "Search audit logs", description = "Search audit logs with multiple filters")
-    public ResponseEntity<PageResponse<AuditLogResponse>> searchAuditLogs(
+    @Operation(summary = "Search audit logs",
+            description = "Search audit logs with multiple filters and an optional free-text query (q) over details and error messages")
+    public ResponseEntity<CursorPageResponse<AuditLogResponse>> searchAuditLogs(
             @RequestParam(required = false) String userId,
             @RequestParam(required = false) String username,
             @RequestParam(required = false) String action,
@@ -182,33 +201,95 @@ public class AuditLogController {
             @RequestParam(required = false) String ipAddress,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         log.info("GET /api/audit/search - Search audit logs with filters");
 
-        PageResponse<AuditLogResponse> response = auditLogService.searchAuditLogs(
-                userId, username, action, status, ipAddress, startDate, endDate, page, size);
+        CursorPageResponse<AuditLogResponse> response = auditLogService.searchAuditLogs(
+                userId, username, action, status, ipAddress, startDate, endDate, q, cursor, size, includeTotal);
 
         return ResponseEntity.ok(response);
     }
 
+    // ==================== EXPORT AUDIT LOGS ====================
+
+    @GetMapping("/export")
+    @Operation(summary = "Export audit logs",
+            description = "Stream every audit log matching the filters as NDJSON or CSV, optionally gzipped")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String ipAddress,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = AuditExportService.FORMAT_NDJSON) String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        log.info("GET /api/audit/export - Export audit logs as {}", format);
+
+        if (!AuditExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        boolean csv = AuditExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        String filename = "audit-logs." + (csv ? "csv" : "ndjson") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(csv ? "text/csv" : "application/x-ndjson");
+
+        StreamingResponseBody body = outputStream -> auditExportService.export(
+                userId, username, action, status, ipAddress, startDate, endDate, q, format, gzip, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    // ==================== LIVE STREAM ====================
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream audit logs",
+            description = "Push new audit logs as Server-Sent Events, optionally filtered by action, status and user")
+    public SseEmitter streamAuditLogs(
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String userId) {
+        log.info("GET /api/audit/stream - Subscribe to live audit logs");
+
+        return auditLogService.streamAuditLogs(action, status, userId);
+    }
+
     // ==================== STATISTICS ====================
 
     @GetMapping("/stats/by-action")
-    @Operation(summary = "Get audit statistics by action", description = "Get count of audit logs grouped by action")
-    public ResponseEntity<?> getStatsByAction() {
+    @Operation(summary = "Get audit statistics by action",
+            description = "Get count of audit logs grouped by action and status (defaults to the last 24 hours)")
+    public ResponseEntity<List<AuditActionStatsResponse>> getStatsByAction(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         log.info("GET /api/audit/stats/by-action - Get statistics by action");
 
-        // TODO: Implement statistics aggregation
-        return ResponseEntity.ok("Statistics feature coming soon");
+        List<AuditActionStatsResponse> response = auditLogService.getStatsByAction(startDate, endDate);
+
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/stats/by-user")
-    @Operation(summary = "Get audit statistics by user", description = "Get count of audit logs grouped by user")
-    public ResponseEntity<?> getStatsByUser() {
+    @Operation(summary = "Get audit statistics by user",
+            description = "Get the users with the most audit logs (defaults to the last 24 hours)")
+    public ResponseEntity<List<AuditUserStatsResponse>> getStatsByUser(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "20") int limit) {
         log.info("GET /api/audit/stats/by-user - Get statistics by user");
 
-        // TODO: Implement statistics aggregation
-        return ResponseEntity.ok("Statistics feature coming soon");
+        List<AuditUserStatsResponse> response = auditLogService.getStatsByUser(startDate, endDate, limit);
+
+        return ResponseEntity.ok(response);
     }
 }
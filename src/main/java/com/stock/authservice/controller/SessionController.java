@@ -83,4 +83,26 @@ public class SessionController {
 
         return ResponseEntity.ok(ApiResponse.success("All sessions terminated successfully", null));
     }
+
+    @DeleteMapping("/ip/{ipAddress}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Terminate sessions by IP", description = "Terminate all active sessions from an IP address")
+    public ResponseEntity<ApiResponse<Integer>> terminateSessionsByIpAddress(@PathVariable String ipAddress) {
+        log.info("DELETE /api/sessions/ip/{} - Terminate all sessions from IP", ipAddress);
+
+        int terminated = sessionService.terminateSessionsByIpAddress(ipAddress, "ADMIN_ACTION");
+
+        return ResponseEntity.ok(ApiResponse.success("Sessions terminated successfully", terminated));
+    }
+
+    @DeleteMapping("/device/{deviceType}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Terminate sessions by device type", description = "Terminate all active sessions of a device type")
+    public ResponseEntity<ApiResponse<Integer>> terminateSessionsByDeviceType(@PathVariable String deviceType) {
+        log.info("DELETE /api/sessions/device/{} - Terminate all sessions for device type", deviceType);
+
+        int terminated = sessionService.terminateSessionsByDeviceType(deviceType, "ADMIN_ACTION");
+
+        return ResponseEntity.ok(ApiResponse.success("Sessions terminated successfully", terminated));
+    }
 }
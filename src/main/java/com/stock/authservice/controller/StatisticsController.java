@@ -0,0 +1,34 @@
+package com.stock.authservice.controller;
+
+import com.stock.authservice.dto.response.StatisticsResponse;
+import com.stock.authservice.service.StatisticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/statistics")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Statistics", description = "User and session statistics")
+@SecurityRequirement(name = "Bearer Authentication")
+@PreAuthorize("hasAnyRole('ADMIN', 'AUDITOR')")
+public class StatisticsController {
+
+    private final StatisticsService statisticsService;
+
+    @GetMapping
+    @Operation(summary = "Get statistics", description = "Get user and session counts (served from memory)")
+    public ResponseEntity<StatisticsResponse> getStatistics() {
+        log.debug("GET /api/statistics - Get statistics");
+
+        return ResponseEntity.ok(statisticsService.getStatistics());
+    }
+}
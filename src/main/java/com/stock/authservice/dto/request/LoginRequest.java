@@ -21,4 +21,7 @@ public class LoginRequest {
     private String ipAddress;
     private String userAgent;
     private String deviceType;
+
+    // Stable client-generated id; refresh tokens are kept per (user, device)
+    private String deviceId;
 }
@@ -19,4 +19,6 @@ public class VerifyMfaRequest {
     private String mfaCode;
 
     private String deviceType;
+
+    private String deviceId;
 }
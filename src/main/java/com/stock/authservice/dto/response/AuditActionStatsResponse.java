@@ -0,0 +1,17 @@
+package com.stock.authservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditActionStatsResponse {
+
+    private String action;
+    private String status;
+    private Long count;
+}
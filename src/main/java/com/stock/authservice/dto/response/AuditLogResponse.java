@@ -1,5 +1,6 @@
 package com.stock.authservice.dto.response;
 
+import com.stock.authservice.entity.AuditLog;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -25,4 +26,21 @@ public class AuditLogResponse {
     private String errorMessage;
     private String details;
     private LocalDateTime timestamp;
+
+    public static AuditLogResponse from(AuditLog auditLog) {
+        return AuditLogResponse.builder()
+                .id(auditLog.getId())
+                .userId(auditLog.getUserId())
+                .username(auditLog.getUsername())
+                .action(auditLog.getAction())
+                .resourceType(auditLog.getResourceType())
+                .resourceId(auditLog.getResourceId())
+                .ipAddress(auditLog.getIpAddress())
+                .userAgent(auditLog.getUserAgent())
+                .status(auditLog.getStatus())
+                .errorMessage(auditLog.getErrorMessage())
+                .details(auditLog.getDetails())
+                .timestamp(auditLog.getTimestamp())
+                .build();
+    }
 }
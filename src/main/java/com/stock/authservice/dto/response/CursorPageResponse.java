@@ -0,0 +1,23 @@
+package com.stock.authservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageResponse<T> {
+
+    private List<T> content;
+    private Integer pageSize;
+    // Pass back as ?cursor= to get the next page; null on the last page
+    private String nextCursor;
+    private Boolean hasMore;
+    // Only filled in when requested with includeTotal=true
+    private Long totalElements;
+}
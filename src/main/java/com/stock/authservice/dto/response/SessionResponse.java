@@ -14,7 +14,6 @@ import java.time.LocalDateTime;
 public class SessionResponse {
 
     private String id;
-    private String sessionToken;
     private String ipAddress;
     private String userAgent;
     private String deviceType;
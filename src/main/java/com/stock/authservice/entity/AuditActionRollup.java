@@ -0,0 +1,38 @@
+package com.stock.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hourly audit event counts per (action, status). Rows are upserted by the audit writer in the
+ * same statement that inserts the entries; see {@code AuditLogWriter}.
+ */
+@Entity
+@Table(name = "audit_action_rollups", indexes = {
+        @Index(name = "idx_audit_action_rollup_key", columnList = "bucket_start, action, status", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditActionRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "action", nullable = false, length = 100)
+    private String action;
+
+    // Empty rather than null so the unique key also covers entries without a status
+    @Column(name = "status", nullable = false, length = 50)
+    private String status;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+}
@@ -0,0 +1,31 @@
+package com.stock.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Slice of an archived segment file; written and read in {@code chunk_index} order.
+ */
+@Entity
+@Table(name = "audit_archive_chunks", indexes = {
+        @Index(name = "idx_audit_archive_chunk_key", columnList = "file_name, chunk_index", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditArchiveChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "data", nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+}
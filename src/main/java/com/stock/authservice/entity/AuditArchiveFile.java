@@ -0,0 +1,40 @@
+package com.stock.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shared copy of one audit archive segment. The bytes are split across {@link AuditArchiveChunk}
+ * rows; each node keeps a local copy of the file for searches, see {@code AuditArchive}.
+ */
+@Entity
+@Table(name = "audit_archive_files", indexes = {
+        @Index(name = "idx_audit_archive_file_name", columnList = "name", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditArchiveFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(name = "max_timestamp", nullable = false)
+    private LocalDateTime maxTimestamp;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -9,8 +9,10 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "audit_logs",
         indexes = {
-                @Index(name = "idx_user_id", columnList = "user_id"),
-                @Index(name = "idx_action", columnList = "action"),
+                @Index(name = "idx_audit_user_timestamp", columnList = "user_id, timestamp"),
+                @Index(name = "idx_audit_action_timestamp", columnList = "action, timestamp"),
+                @Index(name = "idx_audit_ip_timestamp", columnList = "ip_address, timestamp"),
+                @Index(name = "idx_audit_status_timestamp", columnList = "status, timestamp"),
                 @Index(name = "idx_timestamp", columnList = "timestamp")
         }
 )
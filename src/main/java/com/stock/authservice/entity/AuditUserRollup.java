@@ -0,0 +1,36 @@
+package com.stock.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hourly audit event counts per user. Entries without a user id are not counted here.
+ */
+@Entity
+@Table(name = "audit_user_rollups", indexes = {
+        @Index(name = "idx_audit_user_rollup_key", columnList = "bucket_start, user_id", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditUserRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "username", length = 100)
+    private String username;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+}
@@ -1,5 +1,6 @@
 package com.stock.authservice.entity;
 
+import com.stock.authservice.util.HashUtil;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -9,7 +10,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "email_verification_tokens",
         indexes = {
-                @Index(name = "idx_token", columnList = "token"),
+                @Index(name = "idx_verification_token_hash", columnList = "token_hash", unique = true),
                 @Index(name = "idx_user_id", columnList = "user_id")
         }
 )
@@ -26,7 +27,11 @@ public class EmailVerificationToken {
     @Column(name = "user_id", nullable = false)
     private String userId;
 
-    @Column(nullable = false, unique = true, length = 255)
+    // Only the SHA-256 digest is stored; the raw token is held transiently to send to the user
+    @Column(name = "token_hash", nullable = false, columnDefinition = "bytea")
+    private byte[] tokenHash;
+
+    @Transient
     private String token;
 
     @Column(name = "email", nullable = false, length = 100)
@@ -64,4 +69,11 @@ public class EmailVerificationToken {
         this.isUsed = true;
         this.verifiedAt = LocalDateTime.now();
     }
+
+    @PrePersist
+    public void hashToken() {
+        if (token != null && tokenHash == null) {
+            tokenHash = HashUtil.sha256Bytes(token);
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package com.stock.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kafka record waiting to be published. Written in the same transaction as the state change it
+ * describes and deleted by {@code OutboxRelay} once the broker has acknowledged it.
+ */
+@Entity
+@Table(name = "outbox_events")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    // Publish order; matches commit order per key (see EventOutbox)
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Column(name = "event_key")
+    private String eventKey;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Set while a relay has the row in flight; a relay that dies leaves it to expire
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+}
@@ -1,5 +1,6 @@
 package com.stock.authservice.entity;
 
+import com.stock.authservice.util.HashUtil;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -8,8 +9,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "refresh_tokens", indexes = {
-        @Index(name = "idx_refresh_token", columnList = "token"),
-        @Index(name = "idx_refresh_token_user", columnList = "user_id")
+        @Index(name = "idx_refresh_token_slot", columnList = "user_id, device_id", unique = true),
+        @Index(name = "idx_refresh_token_family", columnList = "family_id")
 })
 @Data
 @NoArgsConstructor
@@ -24,9 +25,34 @@ public class RefreshToken {
     @Column(name = "user_id", nullable = false)
     private String userId;
 
-    @Column(nullable = false, unique = true, length = 500)
+    // Only the SHA-256 digest is stored; the raw token is held transiently to hand back to the client.
+    // Tokens carry the slot id and are looked up by it, so the digests are deliberately unindexed
+    // and rotating them leaves every index untouched
+    @Column(name = "token_hash", nullable = false, columnDefinition = "bytea")
+    private byte[] tokenHash;
+
+    // The digest the last rotation replaced, to tell a concurrent refresh from a replay
+    @Column(name = "previous_token_hash", columnDefinition = "bytea")
+    private byte[] previousTokenHash;
+
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+
+    @Transient
     private String token;
 
+    // One row per (user, device) slot; rotation overwrites the hash in place
+    @Column(name = "device_id", nullable = false, length = 64)
+    private String deviceId;
+
+    // A family starts at login and lives through every rotation of the slot
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(name = "generation", nullable = false)
+    @Builder.Default
+    private Integer generation = 0;
+
     @Column(name = "expires_at", nullable = false)
     private LocalDateTime expiresAt;
 
@@ -68,4 +94,11 @@ public class RefreshToken {
         this.isRevoked = true;
         this.revokedAt = LocalDateTime.now();
     }
+
+    @PrePersist
+    public void hashToken() {
+        if (token != null && tokenHash == null) {
+            tokenHash = HashUtil.sha256Bytes(token);
+        }
+    }
 }
@@ -1,18 +1,24 @@
 package com.stock.authservice.entity;
 
+import com.stock.authservice.util.HashUtil;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
+// Range-partitioned by created_at (see SessionPartitionMaintainer), so neither id nor the token
+// digest can be unique here; user_session_keys (UserSessionKey) holds both uniquely, with the
+// created_at lookups need to read a single partition
 @Table(name = "user_sessions",
         indexes = {
-                @Index(name = "idx_session_token", columnList = "session_token"),
-                @Index(name = "idx_user_id", columnList = "user_id"),
-                @Index(name = "idx_is_active", columnList = "is_active")
+                @Index(name = "idx_session_token_hash", columnList = "session_token_hash"),
+                @Index(name = "idx_session_user_id", columnList = "user_id"),
+                @Index(name = "idx_is_active", columnList = "is_active"),
+                @Index(name = "idx_session_ip_address", columnList = "ip_address")
         }
 )
 @Data
@@ -25,7 +31,11 @@ public class UserSession {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
-    @Column(name = "session_token", nullable = false, unique = true, length = 255)
+    // Only the SHA-256 digest is stored; the raw token is held transiently to hand back to the client
+    @Column(name = "session_token_hash", nullable = false, columnDefinition = "bytea")
+    private byte[] sessionTokenHash;
+
+    @Transient
     private String sessionToken;
 
     @Column(name = "user_id", nullable = false)
@@ -56,6 +66,8 @@ public class UserSession {
     @Column(name = "termination_reason", length = 100)
     private String terminationReason;
 
+    // Added to the WHERE clause of entity updates and deletes so they touch one partition
+    @PartitionKey
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -83,4 +95,11 @@ public class UserSession {
         this.terminatedAt = LocalDateTime.now();
         this.terminationReason = reason;
     }
+
+    @PrePersist
+    public void hashSessionToken() {
+        if (sessionToken != null && sessionTokenHash == null) {
+            sessionTokenHash = HashUtil.sha256Bytes(sessionToken);
+        }
+    }
 }
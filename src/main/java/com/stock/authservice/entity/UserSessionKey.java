@@ -0,0 +1,32 @@
+package com.stock.authservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Unpartitioned index of user_sessions: the unique token digest and id of every session with the
+ * created_at it was routed by, so lookups can name the one partition to read. Kept in step by a
+ * trigger on user_sessions, see {@code SessionKeyMigration}.
+ */
+@Entity
+@Table(name = "user_session_keys", indexes = {
+        @Index(name = "idx_session_key_token_hash", columnList = "session_token_hash", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserSessionKey {
+
+    @Id
+    @Column(name = "session_id")
+    private String sessionId;
+
+    @Column(name = "session_token_hash", nullable = false, columnDefinition = "bytea")
+    private byte[] sessionTokenHash;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
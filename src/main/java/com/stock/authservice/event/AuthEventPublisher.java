@@ -1,52 +1,77 @@
 package com.stock.authservice.event;
 
+import com.stock.authservice.config.EventConfig;
 import com.stock.authservice.constants.KafkaTopics;
 import com.stock.authservice.event.dto.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class AuthEventPublisher {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final EventOutbox eventOutbox;
+    private final EventConfig eventConfig;
 
-    public void publishUserLogin(UserLoginEvent event) {
-        log.info("Publishing user.login event for user: {}", event.getUserId());
-        try {
-            kafkaTemplate.send(KafkaTopics.USER_LOGIN, event.getUserId(), event);
-        } catch (Exception e) {
-            log.error("Failed to publish user.login event", e);
+    public void publishUserLogin(UserLoginEvent login, SessionCreatedEvent session) {
+        log.debug("Publishing user.login event for user: {}", login.getUserId());
+        if (eventConfig.getLogin().isCompatibilityMode()) {
+            eventOutbox.append(KafkaTopics.USER_LOGIN, login.getUserId(), login);
+            eventOutbox.append(KafkaTopics.USER_LOGIN, session.getSessionId(), session);
+            return;
         }
+
+        eventOutbox.append(KafkaTopics.USER_LOGIN, login.getUserId(), UserLoginEnvelope.builder()
+                .schemaVersion(UserLoginEnvelope.SCHEMA_VERSION)
+                .userId(login.getUserId())
+                .login(login)
+                .session(session)
+                .build());
     }
 
     public void publishUserLogout(UserLogoutEvent event) {
-        log.info("Publishing user.logout event for user: {}", event.getUserId());
-        try {
-            kafkaTemplate.send(KafkaTopics.USER_LOGOUT, event.getUserId(), event);
-        } catch (Exception e) {
-            log.error("Failed to publish user.logout event", e);
-        }
+        log.debug("Publishing user.logout event for user: {}", event.getUserId());
+        eventOutbox.append(KafkaTopics.USER_LOGOUT, event.getUserId(), event);
     }
 
-    public void publishSessionCreated(SessionCreatedEvent event) {
-        log.info("Publishing session.created event for session: {}", event.getSessionId());
-        try {
-            kafkaTemplate.send(KafkaTopics.USER_LOGIN, event.getSessionId(), event);
-        } catch (Exception e) {
-            log.error("Failed to publish session.created event", e);
-        }
+    public void publishSessionTerminated(SessionTerminatedEvent event) {
+        log.debug("Publishing session.terminated event for session: {}", event.getSessionId());
+        eventOutbox.append(KafkaTopics.USER_LOGOUT, event.getSessionId(), event);
     }
 
-    public void publishSessionTerminated(SessionTerminatedEvent event) {
-        log.info("Publishing session.terminated event for session: {}", event.getSessionId());
-        try {
-            kafkaTemplate.send(KafkaTopics.USER_LOGOUT, event.getSessionId(), event);
-        } catch (Exception e) {
-            log.error("Failed to publish session.terminated event", e);
+    /**
+     * Splits the batch into one record per user, keyed by user id, so per-user ordering holds and
+     * bulk terminations spread over partitions instead of sharing one key. Users are taken in id
+     * order, so two transactions locking the same users' outbox keys cannot deadlock.
+     */
+    public void publishSessionsTerminated(SessionBatchTerminatedEvent event) {
+        log.debug("Publishing session.terminated batch event for {} sessions", event.getCount());
+        List<String> sessionIds = event.getSessionIds();
+        List<String> userIds = event.getUserIds();
+        if (userIds == null || userIds.size() != sessionIds.size()) {
+            eventOutbox.append(KafkaTopics.SESSION_TERMINATED, null, event);
+            return;
+        }
+
+        Map<String, List<String>> sessionsByUser = new TreeMap<>();
+        for (int i = 0; i < sessionIds.size(); i++) {
+            sessionsByUser.computeIfAbsent(userIds.get(i), userId -> new ArrayList<>()).add(sessionIds.get(i));
         }
+        sessionsByUser.forEach((userId, userSessionIds) ->
+                eventOutbox.append(KafkaTopics.SESSION_TERMINATED, userId, SessionBatchTerminatedEvent.builder()
+                        .sessionIds(userSessionIds)
+                        .userIds(Collections.nCopies(userSessionIds.size(), userId))
+                        .count(userSessionIds.size())
+                        .terminatedAt(event.getTerminatedAt())
+                        .reason(event.getReason())
+                        .build()));
     }
 }
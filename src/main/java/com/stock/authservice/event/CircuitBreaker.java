@@ -0,0 +1,60 @@
+package com.stock.authservice.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the
+ * circuit opens and {@link #allowRequest} refuses calls for {@code openMillis}. The first call
+ * after that is a probe: success closes the circuit, failure opens it again.
+ */
+@Slf4j
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            log.info("{} circuit half-open, probing", name);
+        }
+        return state != State.OPEN;
+    }
+
+    synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("{} circuit closed", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("{} circuit opened after {} consecutive failures, pausing for {} ms",
+                        name, consecutiveFailures, openNanos / 1_000_000L);
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    State getState() {
+        return state;
+    }
+}
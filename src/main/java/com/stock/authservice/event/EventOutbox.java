@@ -0,0 +1,45 @@
+package com.stock.authservice.event;
+
+import com.stock.authservice.entity.OutboxEvent;
+import com.stock.authservice.event.codec.EventCodec;
+import com.stock.authservice.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records events in the outbox table instead of sending them to Kafka directly. The row joins
+ * the caller's transaction, so an event exists exactly when the state change it describes is
+ * committed; {@link OutboxRelay} publishes it afterwards.
+ * <p>
+ * Ids are assigned at insert, not at commit, so two transactions appending under the same key
+ * could otherwise commit in the opposite order of their ids. Appending takes a lock on the
+ * topic and key that is held until the transaction ends: the next transaction for that key
+ * only gets its id once the previous one has committed or rolled back, and id order per key is
+ * commit order.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final EventCodec eventCodec;
+
+    @Transactional
+    public void append(String topic, String key, Object event) {
+        byte[] payload = eventCodec.encode(event);
+        if (key != null) {
+            outboxEventRepository.lockKey(topic + ":" + key);
+        }
+
+        outboxEventRepository.save(OutboxEvent.builder()
+                .topic(topic)
+                .eventKey(key)
+                .eventType(event.getClass().getSimpleName())
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
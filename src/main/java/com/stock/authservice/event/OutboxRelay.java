@@ -0,0 +1,226 @@
+package com.stock.authservice.event;
+
+import com.stock.authservice.config.EventConfig;
+import com.stock.authservice.event.codec.EventCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes outbox rows to Kafka in id order and deletes them once the broker has acknowledged
+ * them. {@link EventOutbox} makes id order equal commit order for rows with the same key, so
+ * records of one key reach their partition in the order they were committed.
+ * <p>
+ * A batch is claimed in a short transaction: under an advisory lock, and only while no other
+ * claim is live, the rows get a {@code claimed_until} lease. That keeps a single batch in flight
+ * across nodes without holding a connection or a transaction while the relay waits for acks.
+ * The lease outlasts the send timeout, so a relay that dies mid-batch only delays the rows.
+ * When a send fails, only the rows before it are deleted and the rest are retried on the next
+ * run, so delivery is at least once; the {@code outbox-id} header lets consumers drop duplicates.
+ * <p>
+ * Repeated failures open a {@link CircuitBreaker}: the relay then leaves the broker alone and
+ * events accumulate in the outbox, which is the durable buffer, until a single-event probe
+ * succeeds. Request threads never wait on the broker either way.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    public static final String EVENT_TYPE_HEADER = "event-type";
+    public static final String OUTBOX_ID_HEADER = "outbox-id";
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+
+    private static final String LOCK_NAME = "outbox_events";
+
+    // Upper bound from the primary key index; gaps from rolled-back inserts are counted
+    private static final String BACKLOG_SQL = "SELECT COALESCE(MAX(id) - MIN(id) + 1, 0) FROM outbox_events";
+
+    // Another relay's batch is still in flight
+    private static final String LIVE_CLAIM_SQL =
+            "SELECT EXISTS (SELECT 1 FROM outbox_events WHERE claimed_until > now())";
+
+    private static final String CLAIM_BATCH_SQL =
+            "UPDATE outbox_events SET claimed_until = now() + ? * interval '1 millisecond' " +
+            "WHERE id IN (SELECT id FROM outbox_events ORDER BY id LIMIT ?) " +
+            "RETURNING id, topic, event_key, event_type, payload";
+
+    private static final String DELETE_BATCH_SQL = "DELETE FROM outbox_events WHERE id = ANY(?)";
+
+    private static final String RELEASE_BATCH_SQL = "UPDATE outbox_events SET claimed_until = NULL WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final EventConfig eventConfig;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong backlog = new AtomicLong();
+
+    private CircuitBreaker circuitBreaker;
+    private Counter publishedCounter;
+    private Counter failedCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void init() {
+        EventConfig.Breaker breaker = eventConfig.getBreaker();
+        circuitBreaker = new CircuitBreaker("Kafka relay", breaker.getFailureThreshold(), breaker.getOpenMs());
+
+        Gauge.builder("events.outbox.backlog", backlog, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("events.relay.circuit.open", circuitBreaker,
+                cb -> cb.getState() == CircuitBreaker.State.CLOSED ? 0 : 1).register(meterRegistry);
+        publishedCounter = meterRegistry.counter("events.outbox.published");
+        failedCounter = meterRegistry.counter("events.outbox.failed");
+        batchTimer = meterRegistry.timer("events.outbox.batch");
+    }
+
+    @Scheduled(fixedDelayString = "${events.outbox.relay-interval-ms:200}")
+    public void relay() {
+        Long pending = jdbcTemplate.queryForObject(BACKLOG_SQL, Long.class);
+        backlog.set(pending != null ? pending : 0);
+        if (backlog.get() == 0) {
+            return;
+        }
+
+        while (circuitBreaker.allowRequest()) {
+            // A half-open circuit is probed with a single event
+            int batchSize = circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN
+                    ? 1 : eventConfig.getOutbox().getBatchSize();
+            Integer published = batchTimer.record(() -> relayBatch(batchSize));
+            if (published == null || published < batchSize) {
+                return;
+            }
+        }
+    }
+
+    // Returns the number of rows published; less than a full batch ends the run
+    private int relayBatch(int batchSize) {
+        long sendTimeoutMs = eventConfig.getOutbox().getSendTimeoutMs();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<OutboxRow> rows = transactionTemplate.execute(status -> claimBatch(batchSize,
+                sendTimeoutMs + eventConfig.getProducer().getMaxBlockMs()));
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+
+        // Hand the whole batch to the producer first so it can pack records per partition
+        List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(rows.size());
+        try {
+            for (OutboxRow row : rows) {
+                ProducerRecord<String, byte[]> record = new ProducerRecord<>(row.topic, row.key, row.payload);
+                record.headers().add(EVENT_TYPE_HEADER, row.eventType.getBytes(StandardCharsets.UTF_8));
+                record.headers().add(OUTBOX_ID_HEADER, Long.toString(row.id).getBytes(StandardCharsets.UTF_8));
+                record.headers().add(CONTENT_TYPE_HEADER,
+                        EventCodec.contentType(row.payload).getBytes(StandardCharsets.UTF_8));
+                futures.add(kafkaTemplate.send(record));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay could not hand event {} to the producer: {}",
+                    rows.get(futures.size()).id, e.getMessage());
+        }
+
+        int acknowledged = awaitAcknowledged(futures, rows, deadline);
+        Long[] ids = rows.stream().map(row -> row.id).toArray(Long[]::new);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (acknowledged > 0) {
+                updateByIds(DELETE_BATCH_SQL, Arrays.copyOf(ids, acknowledged));
+            }
+            if (acknowledged < ids.length) {
+                updateByIds(RELEASE_BATCH_SQL, Arrays.copyOfRange(ids, acknowledged, ids.length));
+            }
+        });
+
+        publishedCounter.increment(acknowledged);
+        if (acknowledged < rows.size()) {
+            failedCounter.increment();
+            circuitBreaker.recordFailure();
+            return 0;
+        }
+        circuitBreaker.recordSuccess();
+        return acknowledged;
+    }
+
+    private List<OutboxRow> claimBatch(int batchSize, long leaseMs) {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext(?))",
+                Boolean.class, LOCK_NAME);
+        if (!Boolean.TRUE.equals(locked)
+                || Boolean.TRUE.equals(jdbcTemplate.queryForObject(LIVE_CLAIM_SQL, Boolean.class))) {
+            // Another node is relaying
+            return List.of();
+        }
+
+        // RETURNING does not keep the subquery's order
+        List<OutboxRow> rows = new ArrayList<>(jdbcTemplate.query(CLAIM_BATCH_SQL, (rs, rowNum) -> new OutboxRow(
+                rs.getLong("id"),
+                rs.getString("topic"),
+                rs.getString("event_key"),
+                rs.getString("event_type"),
+                rs.getBytes("payload")), leaseMs, batchSize));
+        rows.sort(Comparator.comparingLong(row -> row.id));
+        return rows;
+    }
+
+    // Length of the acknowledged prefix of the batch
+    private int awaitAcknowledged(List<CompletableFuture<SendResult<String, byte[]>>> futures, List<OutboxRow> rows,
+                                  long deadline) {
+        int acknowledged = 0;
+        for (CompletableFuture<SendResult<String, byte[]>> future : futures) {
+            try {
+                future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                acknowledged++;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Outbox relay stopped at event {}: {}", rows.get(acknowledged).id,
+                        e instanceof ExecutionException ? e.getCause().getMessage() : "send timed out");
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return acknowledged;
+    }
+
+    private void updateByIds(String sql, Long[] ids) {
+        jdbcTemplate.update(sql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+    }
+
+    private static final class OutboxRow {
+
+        private final long id;
+        private final String topic;
+        private final String key;
+        private final String eventType;
+        private final byte[] payload;
+
+        private OutboxRow(long id, String topic, String key, String eventType, byte[] payload) {
+            this.id = id;
+            this.topic = topic;
+            this.key = key;
+            this.eventType = eventType;
+            this.payload = payload;
+        }
+    }
+}
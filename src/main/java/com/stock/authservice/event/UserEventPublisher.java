@@ -4,28 +4,21 @@ import com.stock.authservice.constants.KafkaTopics;
 import com.stock.authservice.event.dto.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.CompletableFuture;
+import java.time.LocalDateTime;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class UserEventPublisher {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final EventOutbox eventOutbox;
 
     // ==================== USER LIFECYCLE EVENTS ====================
 
     public void publishUserCreated(UserCreatedEvent event) {
-        log.info("Publishing user.created event for user: {}", event.getUserId());
-        try {
-            kafkaTemplate.send(KafkaTopics.USER_CREATED, event.getUserId(), event);
-        } catch (Exception e) {
-            log.error("Failed to publish user.created event", e);
-        }
+        publishEvent(KafkaTopics.USER_CREATED, event.getUserId(), event);
     }
 
     public void publishUserUpdated(UserUpdatedEvent event) {
@@ -37,13 +30,19 @@ public class UserEventPublisher {
     }
 
     public void publishUserActivated(String userId, String username) {
-        publishEvent(KafkaTopics.USER_ACTIVATED, userId,
-                java.util.Map.of("userId", userId, "username", username, "timestamp", java.time.LocalDateTime.now()));
+        publishEvent(KafkaTopics.USER_ACTIVATED, userId, UserStatusChangedEvent.builder()
+                .userId(userId)
+                .username(username)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     public void publishUserDeactivated(String userId, String username) {
-        publishEvent(KafkaTopics.USER_DEACTIVATED, userId,
-                java.util.Map.of("userId", userId, "username", username, "timestamp", java.time.LocalDateTime.now()));
+        publishEvent(KafkaTopics.USER_DEACTIVATED, userId, UserStatusChangedEvent.builder()
+                .userId(userId)
+                .username(username)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     // ==================== ROLE EVENTS ====================
@@ -53,106 +52,86 @@ public class UserEventPublisher {
     }
 
     public void publishRoleRevoked(String userId, String roleName, String revokedBy) {
-        publishEvent(KafkaTopics.ROLE_REVOKED, userId,
-                java.util.Map.of(
-                        "userId", userId,
-                        "roleName", roleName,
-                        "revokedBy", revokedBy,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.ROLE_REVOKED, userId, RoleRevokedEvent.builder()
+                .userId(userId)
+                .roleName(roleName)
+                .revokedBy(revokedBy)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     // ==================== PERMISSION EVENTS ====================
 
     public void publishPermissionGranted(String userId, String permissionName, String grantedBy) {
-        publishEvent(KafkaTopics.PERMISSION_GRANTED, userId,
-                java.util.Map.of(
-                        "userId", userId,
-                        "permissionName", permissionName,
-                        "grantedBy", grantedBy,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.PERMISSION_GRANTED, userId, PermissionGrantedEvent.builder()
+                .userId(userId)
+                .permissionName(permissionName)
+                .grantedBy(grantedBy)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     public void publishPermissionRevoked(String userId, String permissionName, String revokedBy) {
-        publishEvent(KafkaTopics.PERMISSION_REVOKED, userId,
-                java.util.Map.of(
-                        "userId", userId,
-                        "permissionName", permissionName,
-                        "revokedBy", revokedBy,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.PERMISSION_REVOKED, userId, PermissionRevokedEvent.builder()
+                .userId(userId)
+                .permissionName(permissionName)
+                .revokedBy(revokedBy)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     // ==================== EMAIL EVENTS ====================
 
     public void publishEmailVerificationSent(String userId, String email) {
-        publishEvent(KafkaTopics.EMAIL_VERIFICATION_SENT, userId,
-                java.util.Map.of(
-                        "userId", userId,
-                        "email", email,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.EMAIL_VERIFICATION_SENT, userId, EmailVerificationEvent.builder()
+                .userId(userId)
+                .email(email)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     public void publishEmailVerified(String userId, String email) {
-        publishEvent(KafkaTopics.EMAIL_VERIFIED, userId,
-                java.util.Map.of(
-                        "userId", userId,
-                        "email", email,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.EMAIL_VERIFIED, userId, EmailVerificationEvent.builder()
+                .userId(userId)
+                .email(email)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     // ==================== SECURITY EVENTS ====================
 
     public void publishSecurityBreachDetected(String userId, String breachType, String details) {
-        publishEvent(KafkaTopics.SECURITY_BREACH_DETECTED, userId,
-                java.util.Map.of(
-                        "userId", userId,
-                        "breachType", breachType,
-                        "details", details,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.SECURITY_BREACH_DETECTED, userId, SecurityBreachEvent.builder()
+                .userId(userId)
+                .breachType(breachType)
+                .details(details)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     public void publishSuspiciousActivity(String userId, String activityType, String ipAddress) {
-        publishEvent(KafkaTopics.SUSPICIOUS_ACTIVITY, userId,
-                java.util.Map.of(
-                        "userId", userId,
-                        "activityType", activityType,
-                        "ipAddress", ipAddress,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.SUSPICIOUS_ACTIVITY, userId, SuspiciousActivityEvent.builder()
+                .userId(userId)
+                .activityType(activityType)
+                .ipAddress(ipAddress)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     public void publishRateLimitExceeded(String identifier, String endpoint, String ipAddress) {
-        publishEvent(KafkaTopics.RATE_LIMIT_EXCEEDED, identifier,
-                java.util.Map.of(
-                        "identifier", identifier,
-                        "endpoint", endpoint,
-                        "ipAddress", ipAddress,
-                        "timestamp", java.time.LocalDateTime.now()
-                ));
+        publishEvent(KafkaTopics.RATE_LIMIT_EXCEEDED, identifier, RateLimitExceededEvent.builder()
+                .identifier(identifier)
+                .endpoint(endpoint)
+                .ipAddress(ipAddress)
+                .timestamp(LocalDateTime.now())
+                .build());
     }
 
     // ==================== HELPER METHOD ====================
 
+    // Joins the caller's transaction; the outbox relay publishes once it commits
     private void publishEvent(String topic, String key, Object event) {
-        try {
-            CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(topic, key, event);
-
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("Published event to topic [{}] with key [{}]: offset={}",
-                            topic, key, result.getRecordMetadata().offset());
-                } else {
-                    log.error("Failed to publish event to topic [{}] with key [{}]", topic, key, ex);
-                }
-            });
-
-        } catch (Exception e) {
-            log.error("Error publishing event to topic [{}]", topic, e);
-        }
+        eventOutbox.append(topic, key, event);
+        log.debug("Queued event for topic [{}] with key [{}]", topic, key);
     }
 }
@@ -0,0 +1,207 @@
+package com.stock.authservice.event.codec;
+
+import com.stock.authservice.util.JsonUtil;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Binary layout of one event class: a stable id, a version, and a tagged field per property.
+ * <p>
+ * Fields are written as {@code [tag and wire type][value]} and null fields are left out.
+ * Readers skip tags they do not know, and fields missing from the payload stay null. So fields
+ * can be added or removed freely, as long as a tag is never reused for something else. Bump
+ * the version only when the meaning of an existing tag changes.
+ * <p>
+ * Timestamps are microseconds since the epoch, with the {@code LocalDateTime} read as UTC.
+ */
+public final class EventSchema<T> {
+
+    private final Class<T> type;
+    private final int id;
+    private final int version;
+    private final Supplier<T> factory;
+    private final List<Field<T>> fields = new ArrayList<>();
+    private final Map<Integer, Field<T>> fieldsByTag = new HashMap<>();
+
+    private EventSchema(Class<T> type, int id, int version, Supplier<T> factory) {
+        this.type = type;
+        this.id = id;
+        this.version = version;
+        this.factory = factory;
+    }
+
+    public static <T> EventSchema<T> define(Class<T> type, int id, int version, Supplier<T> factory) {
+        return new EventSchema<>(type, id, version, factory);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    // ==================== FIELD DEFINITIONS ====================
+
+    public EventSchema<T> string(int tag, Function<T, String> getter, BiConsumer<T, String> setter) {
+        return field(tag, WireOutput.LENGTH_DELIMITED, getter, setter, WireOutput::writeString, WireInput::readString);
+    }
+
+    public EventSchema<T> int32(int tag, Function<T, Integer> getter, BiConsumer<T, Integer> setter) {
+        return field(tag, WireOutput.VARINT, getter, setter,
+                (out, value) -> out.writeSignedVarint(value), in -> (int) in.readSignedVarint());
+    }
+
+    public EventSchema<T> bool(int tag, Function<T, Boolean> getter, BiConsumer<T, Boolean> setter) {
+        return field(tag, WireOutput.VARINT, getter, setter,
+                (out, value) -> out.writeVarint(value ? 1 : 0), in -> in.readVarint() != 0);
+    }
+
+    public EventSchema<T> timestamp(int tag, Function<T, LocalDateTime> getter, BiConsumer<T, LocalDateTime> setter) {
+        return field(tag, WireOutput.VARINT, getter, setter,
+                (out, value) -> out.writeSignedVarint(toEpochMicros(value)), in -> fromEpochMicros(in.readSignedVarint()));
+    }
+
+    // By name rather than ordinal, so constants can be reordered or added
+    public <E extends Enum<E>> EventSchema<T> enumeration(int tag, Class<E> enumType,
+                                                         Function<T, E> getter, BiConsumer<T, E> setter) {
+        return field(tag, WireOutput.LENGTH_DELIMITED, getter, setter,
+                (out, value) -> out.writeString(value.name()), in -> Enum.valueOf(enumType, in.readString()));
+    }
+
+    public EventSchema<T> strings(int tag, Function<T, ? extends Collection<String>> getter,
+                                  BiConsumer<T, List<String>> setter) {
+        return field(tag, WireOutput.LENGTH_DELIMITED, getter, setter, (out, values) -> {
+            WireOutput nested = new WireOutput(values.size() * 16);
+            for (String value : values) {
+                nested.writeString(value);
+            }
+            out.writeNested(nested);
+        }, in -> {
+            WireInput nested = in.readNested();
+            List<String> values = new ArrayList<>();
+            while (nested.hasRemaining()) {
+                values.add(nested.readString());
+            }
+            return values;
+        });
+    }
+
+    // Free-form values keep their JSON form; only the map structure is binary
+    public EventSchema<T> jsonMap(int tag, Function<T, Map<String, Object>> getter,
+                                  BiConsumer<T, Map<String, Object>> setter) {
+        return field(tag, WireOutput.LENGTH_DELIMITED, getter, setter, (out, map) -> {
+            WireOutput nested = new WireOutput(map.size() * 32);
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                nested.writeString(entry.getKey());
+                nested.writeString(String.valueOf(JsonUtil.toJson(entry.getValue())));
+            }
+            out.writeNested(nested);
+        }, in -> {
+            WireInput nested = in.readNested();
+            Map<String, Object> map = new LinkedHashMap<>();
+            while (nested.hasRemaining()) {
+                map.put(nested.readString(), JsonUtil.fromJson(nested.readString(), Object.class));
+            }
+            return map;
+        });
+    }
+
+    public <M> EventSchema<T> message(int tag, EventSchema<M> schema, Function<T, M> getter, BiConsumer<T, M> setter) {
+        return field(tag, WireOutput.LENGTH_DELIMITED, getter, setter, (out, value) -> {
+            WireOutput nested = new WireOutput(64);
+            schema.writeFields(value, nested);
+            out.writeNested(nested);
+        }, in -> schema.readFields(in.readNested()));
+    }
+
+    // ==================== ENCODE / DECODE ====================
+
+    void writeFields(T value, WireOutput out) {
+        for (Field<T> field : fields) {
+            field.write(value, out);
+        }
+    }
+
+    T readFields(WireInput in) {
+        T value = factory.get();
+        while (in.hasRemaining()) {
+            long key = in.readVarint();
+            int tag = (int) (key >>> 3);
+            int wireType = (int) (key & 0x7);
+            Field<T> field = fieldsByTag.get(tag);
+            if (field == null || field.wireType != wireType) {
+                in.skip(wireType);
+            } else {
+                field.read(value, in);
+            }
+        }
+        return value;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private <V, S extends V> EventSchema<T> field(int tag, int wireType,
+                                                  Function<T, ? extends V> getter, BiConsumer<T, S> setter,
+                                                  BiConsumer<WireOutput, V> writer, Function<WireInput, S> reader) {
+        if (tag <= 0 || fieldsByTag.containsKey(tag)) {
+            throw new IllegalArgumentException("Invalid or duplicate tag " + tag + " in " + type.getSimpleName());
+        }
+
+        Field<T> field = new Field<>(wireType) {
+            @Override
+            void write(T target, WireOutput out) {
+                V value = getter.apply(target);
+                if (value != null) {
+                    out.writeKey(tag, wireType);
+                    writer.accept(out, value);
+                }
+            }
+
+            @Override
+            void read(T target, WireInput in) {
+                setter.accept(target, reader.apply(in));
+            }
+        };
+        fields.add(field);
+        fieldsByTag.put(tag, field);
+        return this;
+    }
+
+    private static long toEpochMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private abstract static class Field<T> {
+
+        private final int wireType;
+
+        private Field(int wireType) {
+            this.wireType = wireType;
+        }
+
+        abstract void write(T target, WireOutput out);
+
+        abstract void read(T target, WireInput in);
+    }
+}
@@ -0,0 +1,260 @@
+package com.stock.authservice.event.codec;
+
+import com.stock.authservice.entity.MfaSecret.MfaType;
+import com.stock.authservice.event.dto.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Binary schemas of the {@code event.dto} classes. Schema ids and field tags are part of the
+ * wire format: never change or reuse them, only append.
+ */
+public final class EventSchemas {
+
+    private EventSchemas() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    // ==================== AUTHENTICATION EVENTS ====================
+
+    public static final EventSchema<UserLoginEvent> USER_LOGIN =
+            EventSchema.define(UserLoginEvent.class, 1, 1, UserLoginEvent::new)
+                    .string(1, UserLoginEvent::getUserId, UserLoginEvent::setUserId)
+                    .string(2, UserLoginEvent::getUsername, UserLoginEvent::setUsername)
+                    .string(3, UserLoginEvent::getEmail, UserLoginEvent::setEmail)
+                    .string(4, UserLoginEvent::getIpAddress, UserLoginEvent::setIpAddress)
+                    .string(5, UserLoginEvent::getUserAgent, UserLoginEvent::setUserAgent)
+                    .string(6, UserLoginEvent::getDeviceType, UserLoginEvent::setDeviceType)
+                    .timestamp(7, UserLoginEvent::getLoginTime, UserLoginEvent::setLoginTime)
+                    .bool(8, UserLoginEvent::getMfaUsed, UserLoginEvent::setMfaUsed)
+                    .string(9, UserLoginEvent::getSessionId, UserLoginEvent::setSessionId);
+
+    public static final EventSchema<UserLogoutEvent> USER_LOGOUT =
+            EventSchema.define(UserLogoutEvent.class, 2, 1, UserLogoutEvent::new)
+                    .string(1, UserLogoutEvent::getUserId, UserLogoutEvent::setUserId)
+                    .string(2, UserLogoutEvent::getUsername, UserLogoutEvent::setUsername)
+                    .string(3, UserLogoutEvent::getSessionId, UserLogoutEvent::setSessionId)
+                    .timestamp(4, UserLogoutEvent::getLogoutTime, UserLogoutEvent::setLogoutTime)
+                    .string(5, UserLogoutEvent::getReason, UserLogoutEvent::setReason);
+
+    public static final EventSchema<UserLoginFailedEvent> USER_LOGIN_FAILED =
+            EventSchema.define(UserLoginFailedEvent.class, 3, 1, UserLoginFailedEvent::new)
+                    .string(1, UserLoginFailedEvent::getUsername, UserLoginFailedEvent::setUsername)
+                    .string(2, UserLoginFailedEvent::getIpAddress, UserLoginFailedEvent::setIpAddress)
+                    .string(3, UserLoginFailedEvent::getUserAgent, UserLoginFailedEvent::setUserAgent)
+                    .string(4, UserLoginFailedEvent::getFailureReason, UserLoginFailedEvent::setFailureReason)
+                    .int32(5, UserLoginFailedEvent::getAttemptCount, UserLoginFailedEvent::setAttemptCount)
+                    .timestamp(6, UserLoginFailedEvent::getAttemptTime, UserLoginFailedEvent::setAttemptTime)
+                    .bool(7, UserLoginFailedEvent::getAccountLocked, UserLoginFailedEvent::setAccountLocked);
+
+    // ==================== SESSION EVENTS ====================
+
+    public static final EventSchema<SessionCreatedEvent> SESSION_CREATED =
+            EventSchema.define(SessionCreatedEvent.class, 4, 1, SessionCreatedEvent::new)
+                    .string(1, SessionCreatedEvent::getSessionId, SessionCreatedEvent::setSessionId)
+                    .string(2, SessionCreatedEvent::getUserId, SessionCreatedEvent::setUserId)
+                    .string(3, SessionCreatedEvent::getUsername, SessionCreatedEvent::setUsername)
+                    .string(4, SessionCreatedEvent::getIpAddress, SessionCreatedEvent::setIpAddress)
+                    .string(5, SessionCreatedEvent::getUserAgent, SessionCreatedEvent::setUserAgent)
+                    .string(6, SessionCreatedEvent::getDeviceType, SessionCreatedEvent::setDeviceType)
+                    .timestamp(7, SessionCreatedEvent::getCreatedAt, SessionCreatedEvent::setCreatedAt)
+                    .timestamp(8, SessionCreatedEvent::getExpiresAt, SessionCreatedEvent::setExpiresAt);
+
+    public static final EventSchema<SessionTerminatedEvent> SESSION_TERMINATED =
+            EventSchema.define(SessionTerminatedEvent.class, 5, 1, SessionTerminatedEvent::new)
+                    .string(1, SessionTerminatedEvent::getSessionId, SessionTerminatedEvent::setSessionId)
+                    .string(2, SessionTerminatedEvent::getUserId, SessionTerminatedEvent::setUserId)
+                    .string(3, SessionTerminatedEvent::getUsername, SessionTerminatedEvent::setUsername)
+                    .timestamp(4, SessionTerminatedEvent::getTerminatedAt, SessionTerminatedEvent::setTerminatedAt)
+                    .string(5, SessionTerminatedEvent::getReason, SessionTerminatedEvent::setReason);
+
+    public static final EventSchema<SessionBatchTerminatedEvent> SESSION_BATCH_TERMINATED =
+            EventSchema.define(SessionBatchTerminatedEvent.class, 6, 1, SessionBatchTerminatedEvent::new)
+                    .strings(1, SessionBatchTerminatedEvent::getSessionIds, SessionBatchTerminatedEvent::setSessionIds)
+                    .strings(2, SessionBatchTerminatedEvent::getUserIds, SessionBatchTerminatedEvent::setUserIds)
+                    .int32(3, SessionBatchTerminatedEvent::getCount, SessionBatchTerminatedEvent::setCount)
+                    .timestamp(4, SessionBatchTerminatedEvent::getTerminatedAt, SessionBatchTerminatedEvent::setTerminatedAt)
+                    .string(5, SessionBatchTerminatedEvent::getReason, SessionBatchTerminatedEvent::setReason);
+
+    public static final EventSchema<UserLoginEnvelope> USER_LOGIN_ENVELOPE =
+            EventSchema.define(UserLoginEnvelope.class, 7, 1, UserLoginEnvelope::new)
+                    .int32(1, UserLoginEnvelope::getSchemaVersion, UserLoginEnvelope::setSchemaVersion)
+                    .string(2, UserLoginEnvelope::getUserId, UserLoginEnvelope::setUserId)
+                    .message(3, USER_LOGIN, UserLoginEnvelope::getLogin, UserLoginEnvelope::setLogin)
+                    .message(4, SESSION_CREATED, UserLoginEnvelope::getSession, UserLoginEnvelope::setSession);
+
+    // ==================== USER EVENTS ====================
+
+    public static final EventSchema<UserCreatedEvent> USER_CREATED =
+            EventSchema.define(UserCreatedEvent.class, 8, 1, UserCreatedEvent::new)
+                    .string(1, UserCreatedEvent::getUserId, UserCreatedEvent::setUserId)
+                    .string(2, UserCreatedEvent::getUsername, UserCreatedEvent::setUsername)
+                    .string(3, UserCreatedEvent::getEmail, UserCreatedEvent::setEmail)
+                    .string(4, UserCreatedEvent::getFirstName, UserCreatedEvent::setFirstName)
+                    .string(5, UserCreatedEvent::getLastName, UserCreatedEvent::setLastName)
+                    .strings(6, UserCreatedEvent::getRoles, (event, roles) -> event.setRoles(new LinkedHashSet<>(roles)))
+                    .string(7, UserCreatedEvent::getCreatedBy, UserCreatedEvent::setCreatedBy)
+                    .timestamp(8, UserCreatedEvent::getCreatedAt, UserCreatedEvent::setCreatedAt);
+
+    public static final EventSchema<UserUpdatedEvent> USER_UPDATED =
+            EventSchema.define(UserUpdatedEvent.class, 9, 1, UserUpdatedEvent::new)
+                    .string(1, UserUpdatedEvent::getUserId, UserUpdatedEvent::setUserId)
+                    .string(2, UserUpdatedEvent::getUsername, UserUpdatedEvent::setUsername)
+                    .jsonMap(3, UserUpdatedEvent::getChangedFields, UserUpdatedEvent::setChangedFields)
+                    .string(4, UserUpdatedEvent::getUpdatedBy, UserUpdatedEvent::setUpdatedBy)
+                    .timestamp(5, UserUpdatedEvent::getUpdatedAt, UserUpdatedEvent::setUpdatedAt);
+
+    public static final EventSchema<UserDeletedEvent> USER_DELETED =
+            EventSchema.define(UserDeletedEvent.class, 10, 1, UserDeletedEvent::new)
+                    .string(1, UserDeletedEvent::getUserId, UserDeletedEvent::setUserId)
+                    .string(2, UserDeletedEvent::getUsername, UserDeletedEvent::setUsername)
+                    .string(3, UserDeletedEvent::getEmail, UserDeletedEvent::setEmail)
+                    .string(4, UserDeletedEvent::getDeletedBy, UserDeletedEvent::setDeletedBy)
+                    .timestamp(5, UserDeletedEvent::getDeletedAt, UserDeletedEvent::setDeletedAt)
+                    .string(6, UserDeletedEvent::getDeletionReason, UserDeletedEvent::setDeletionReason);
+
+    public static final EventSchema<UserStatusChangedEvent> USER_STATUS_CHANGED =
+            EventSchema.define(UserStatusChangedEvent.class, 11, 1, UserStatusChangedEvent::new)
+                    .string(1, UserStatusChangedEvent::getUserId, UserStatusChangedEvent::setUserId)
+                    .string(2, UserStatusChangedEvent::getUsername, UserStatusChangedEvent::setUsername)
+                    .timestamp(3, UserStatusChangedEvent::getTimestamp, UserStatusChangedEvent::setTimestamp);
+
+    public static final EventSchema<AccountLockedEvent> ACCOUNT_LOCKED =
+            EventSchema.define(AccountLockedEvent.class, 12, 1, AccountLockedEvent::new)
+                    .string(1, AccountLockedEvent::getUserId, AccountLockedEvent::setUserId)
+                    .string(2, AccountLockedEvent::getUsername, AccountLockedEvent::setUsername)
+                    .string(3, AccountLockedEvent::getEmail, AccountLockedEvent::setEmail)
+                    .string(4, AccountLockedEvent::getIpAddress, AccountLockedEvent::setIpAddress)
+                    .int32(5, AccountLockedEvent::getFailedAttempts, AccountLockedEvent::setFailedAttempts)
+                    .timestamp(6, AccountLockedEvent::getLockedAt, AccountLockedEvent::setLockedAt)
+                    .timestamp(7, AccountLockedEvent::getLockedUntil, AccountLockedEvent::setLockedUntil)
+                    .string(8, AccountLockedEvent::getLockReason, AccountLockedEvent::setLockReason);
+
+    // ==================== PASSWORD & MFA EVENTS ====================
+
+    public static final EventSchema<PasswordChangedEvent> PASSWORD_CHANGED =
+            EventSchema.define(PasswordChangedEvent.class, 13, 1, PasswordChangedEvent::new)
+                    .string(1, PasswordChangedEvent::getUserId, PasswordChangedEvent::setUserId)
+                    .string(2, PasswordChangedEvent::getUsername, PasswordChangedEvent::setUsername)
+                    .string(3, PasswordChangedEvent::getEmail, PasswordChangedEvent::setEmail)
+                    .string(4, PasswordChangedEvent::getIpAddress, PasswordChangedEvent::setIpAddress)
+                    .timestamp(5, PasswordChangedEvent::getChangedAt, PasswordChangedEvent::setChangedAt)
+                    .bool(6, PasswordChangedEvent::getWasReset, PasswordChangedEvent::setWasReset);
+
+    public static final EventSchema<PasswordResetRequestedEvent> PASSWORD_RESET_REQUESTED =
+            EventSchema.define(PasswordResetRequestedEvent.class, 14, 1, PasswordResetRequestedEvent::new)
+                    .string(1, PasswordResetRequestedEvent::getUserId, PasswordResetRequestedEvent::setUserId)
+                    .string(2, PasswordResetRequestedEvent::getUsername, PasswordResetRequestedEvent::setUsername)
+                    .string(3, PasswordResetRequestedEvent::getEmail, PasswordResetRequestedEvent::setEmail)
+                    .string(4, PasswordResetRequestedEvent::getIpAddress, PasswordResetRequestedEvent::setIpAddress)
+                    .string(5, PasswordResetRequestedEvent::getResetToken, PasswordResetRequestedEvent::setResetToken)
+                    .timestamp(6, PasswordResetRequestedEvent::getRequestedAt, PasswordResetRequestedEvent::setRequestedAt)
+                    .timestamp(7, PasswordResetRequestedEvent::getExpiresAt, PasswordResetRequestedEvent::setExpiresAt);
+
+    public static final EventSchema<MfaEnabledEvent> MFA_ENABLED =
+            EventSchema.define(MfaEnabledEvent.class, 15, 1, MfaEnabledEvent::new)
+                    .string(1, MfaEnabledEvent::getUserId, MfaEnabledEvent::setUserId)
+                    .string(2, MfaEnabledEvent::getUsername, MfaEnabledEvent::setUsername)
+                    .string(3, MfaEnabledEvent::getEmail, MfaEnabledEvent::setEmail)
+                    .enumeration(4, MfaType.class, MfaEnabledEvent::getMfaType, MfaEnabledEvent::setMfaType)
+                    .timestamp(5, MfaEnabledEvent::getEnabledAt, MfaEnabledEvent::setEnabledAt);
+
+    public static final EventSchema<MfaDisabledEvent> MFA_DISABLED =
+            EventSchema.define(MfaDisabledEvent.class, 16, 1, MfaDisabledEvent::new)
+                    .string(1, MfaDisabledEvent::getUserId, MfaDisabledEvent::setUserId)
+                    .string(2, MfaDisabledEvent::getUsername, MfaDisabledEvent::setUsername)
+                    .string(3, MfaDisabledEvent::getEmail, MfaDisabledEvent::setEmail)
+                    .timestamp(4, MfaDisabledEvent::getDisabledAt, MfaDisabledEvent::setDisabledAt)
+                    .string(5, MfaDisabledEvent::getDisabledBy, MfaDisabledEvent::setDisabledBy);
+
+    public static final EventSchema<EmailVerificationEvent> EMAIL_VERIFICATION =
+            EventSchema.define(EmailVerificationEvent.class, 17, 1, EmailVerificationEvent::new)
+                    .string(1, EmailVerificationEvent::getUserId, EmailVerificationEvent::setUserId)
+                    .string(2, EmailVerificationEvent::getEmail, EmailVerificationEvent::setEmail)
+                    .timestamp(3, EmailVerificationEvent::getTimestamp, EmailVerificationEvent::setTimestamp);
+
+    // ==================== ROLE & PERMISSION EVENTS ====================
+
+    public static final EventSchema<RoleAssignedEvent> ROLE_ASSIGNED =
+            EventSchema.define(RoleAssignedEvent.class, 18, 1, RoleAssignedEvent::new)
+                    .string(1, RoleAssignedEvent::getUserId, RoleAssignedEvent::setUserId)
+                    .string(2, RoleAssignedEvent::getUsername, RoleAssignedEvent::setUsername)
+                    .string(3, RoleAssignedEvent::getRoleId, RoleAssignedEvent::setRoleId)
+                    .string(4, RoleAssignedEvent::getRoleName, RoleAssignedEvent::setRoleName)
+                    .string(5, RoleAssignedEvent::getAssignedBy, RoleAssignedEvent::setAssignedBy)
+                    .timestamp(6, RoleAssignedEvent::getAssignedAt, RoleAssignedEvent::setAssignedAt);
+
+    public static final EventSchema<RoleRevokedEvent> ROLE_REVOKED =
+            EventSchema.define(RoleRevokedEvent.class, 19, 1, RoleRevokedEvent::new)
+                    .string(1, RoleRevokedEvent::getUserId, RoleRevokedEvent::setUserId)
+                    .string(2, RoleRevokedEvent::getRoleName, RoleRevokedEvent::setRoleName)
+                    .string(3, RoleRevokedEvent::getRevokedBy, RoleRevokedEvent::setRevokedBy)
+                    .timestamp(4, RoleRevokedEvent::getTimestamp, RoleRevokedEvent::setTimestamp);
+
+    public static final EventSchema<PermissionGrantedEvent> PERMISSION_GRANTED =
+            EventSchema.define(PermissionGrantedEvent.class, 20, 1, PermissionGrantedEvent::new)
+                    .string(1, PermissionGrantedEvent::getUserId, PermissionGrantedEvent::setUserId)
+                    .string(2, PermissionGrantedEvent::getPermissionName, PermissionGrantedEvent::setPermissionName)
+                    .string(3, PermissionGrantedEvent::getGrantedBy, PermissionGrantedEvent::setGrantedBy)
+                    .timestamp(4, PermissionGrantedEvent::getTimestamp, PermissionGrantedEvent::setTimestamp);
+
+    public static final EventSchema<PermissionRevokedEvent> PERMISSION_REVOKED =
+            EventSchema.define(PermissionRevokedEvent.class, 21, 1, PermissionRevokedEvent::new)
+                    .string(1, PermissionRevokedEvent::getUserId, PermissionRevokedEvent::setUserId)
+                    .string(2, PermissionRevokedEvent::getPermissionName, PermissionRevokedEvent::setPermissionName)
+                    .string(3, PermissionRevokedEvent::getRevokedBy, PermissionRevokedEvent::setRevokedBy)
+                    .timestamp(4, PermissionRevokedEvent::getTimestamp, PermissionRevokedEvent::setTimestamp);
+
+    // ==================== SECURITY EVENTS ====================
+
+    public static final EventSchema<SecurityBreachEvent> SECURITY_BREACH =
+            EventSchema.define(SecurityBreachEvent.class, 22, 1, SecurityBreachEvent::new)
+                    .string(1, SecurityBreachEvent::getUserId, SecurityBreachEvent::setUserId)
+                    .string(2, SecurityBreachEvent::getBreachType, SecurityBreachEvent::setBreachType)
+                    .string(3, SecurityBreachEvent::getDetails, SecurityBreachEvent::setDetails)
+                    .timestamp(4, SecurityBreachEvent::getTimestamp, SecurityBreachEvent::setTimestamp);
+
+    public static final EventSchema<SuspiciousActivityEvent> SUSPICIOUS_ACTIVITY =
+            EventSchema.define(SuspiciousActivityEvent.class, 23, 1, SuspiciousActivityEvent::new)
+                    .string(1, SuspiciousActivityEvent::getUserId, SuspiciousActivityEvent::setUserId)
+                    .string(2, SuspiciousActivityEvent::getActivityType, SuspiciousActivityEvent::setActivityType)
+                    .string(3, SuspiciousActivityEvent::getIpAddress, SuspiciousActivityEvent::setIpAddress)
+                    .timestamp(4, SuspiciousActivityEvent::getTimestamp, SuspiciousActivityEvent::setTimestamp);
+
+    public static final EventSchema<RateLimitExceededEvent> RATE_LIMIT_EXCEEDED =
+            EventSchema.define(RateLimitExceededEvent.class, 24, 1, RateLimitExceededEvent::new)
+                    .string(1, RateLimitExceededEvent::getIdentifier, RateLimitExceededEvent::setIdentifier)
+                    .string(2, RateLimitExceededEvent::getEndpoint, RateLimitExceededEvent::setEndpoint)
+                    .string(3, RateLimitExceededEvent::getIpAddress, RateLimitExceededEvent::setIpAddress)
+                    .timestamp(4, RateLimitExceededEvent::getTimestamp, RateLimitExceededEvent::setTimestamp);
+
+    // ==================== LOOKUP ====================
+
+    private static final List<EventSchema<?>> ALL = List.of(
+            USER_LOGIN, USER_LOGOUT, USER_LOGIN_FAILED, SESSION_CREATED, SESSION_TERMINATED,
+            SESSION_BATCH_TERMINATED, USER_LOGIN_ENVELOPE, USER_CREATED, USER_UPDATED, USER_DELETED,
+            USER_STATUS_CHANGED, ACCOUNT_LOCKED, PASSWORD_CHANGED, PASSWORD_RESET_REQUESTED, MFA_ENABLED,
+            MFA_DISABLED, EMAIL_VERIFICATION, ROLE_ASSIGNED, ROLE_REVOKED, PERMISSION_GRANTED,
+            PERMISSION_REVOKED, SECURITY_BREACH, SUSPICIOUS_ACTIVITY, RATE_LIMIT_EXCEEDED);
+
+    private static final Map<Class<?>, EventSchema<?>> BY_TYPE = ALL.stream()
+            .collect(Collectors.toMap(EventSchema::getType, Function.identity()));
+
+    private static final Map<Integer, EventSchema<?>> BY_ID = ALL.stream()
+            .collect(Collectors.toMap(EventSchema::getId, Function.identity()));
+
+    /** Schema for the event class, or null when it has none. */
+    @SuppressWarnings("unchecked")
+    public static <T> EventSchema<T> forType(Class<T> type) {
+        return (EventSchema<T>) BY_TYPE.get(type);
+    }
+
+    /** Schema with the given id, or null when it is unknown to this version. */
+    public static EventSchema<?> forId(int id) {
+        return BY_ID.get(id);
+    }
+}
@@ -0,0 +1,86 @@
+package com.stock.authservice.event.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitives written by {@link WireOutput} from a slice of a byte array.
+ */
+final class WireInput {
+
+    private final byte[] data;
+    private final int limit;
+    private int position;
+
+    WireInput(byte[] data, int offset, int limit) {
+        this.data = data;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    boolean hasRemaining() {
+        return position < limit;
+    }
+
+    int readByte() {
+        require(1);
+        return data[position++] & 0xFF;
+    }
+
+    long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at offset " + position);
+    }
+
+    long readSignedVarint() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() {
+        int length = readLength();
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /** Returns the next length-delimited value as its own input and moves past it. */
+    WireInput readNested() {
+        int length = readLength();
+        WireInput nested = new WireInput(data, position, position + length);
+        position += length;
+        return nested;
+    }
+
+    void skip(int wireType) {
+        switch (wireType) {
+            case WireOutput.VARINT -> readVarint();
+            case WireOutput.LENGTH_DELIMITED -> {
+                // Read the length first: it moves the position past the length prefix
+                int length = readLength();
+                position += length;
+            }
+            default -> throw new IllegalArgumentException("Unknown wire type " + wireType);
+        }
+    }
+
+    private int readLength() {
+        long length = readVarint();
+        if (length < 0 || length > limit - position) {
+            throw new IllegalArgumentException("Length " + length + " exceeds the remaining " + (limit - position) + " bytes");
+        }
+        return (int) length;
+    }
+
+    private void require(int bytes) {
+        if (limit - position < bytes) {
+            throw new IllegalArgumentException("Truncated event payload");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.stock.authservice.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published on email.verification.sent and email.verified.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailVerificationEvent {
+
+    private String userId;
+    private String email;
+    private LocalDateTime timestamp;
+}
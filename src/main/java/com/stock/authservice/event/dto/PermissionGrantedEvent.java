@@ -0,0 +1,20 @@
+package com.stock.authservice.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PermissionGrantedEvent {
+
+    private String userId;
+    private String permissionName;
+    private String grantedBy;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,20 @@
+package com.stock.authservice.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SecurityBreachEvent {
+
+    private String userId;
+    private String breachType;
+    private String details;
+    private LocalDateTime timestamp;
+}
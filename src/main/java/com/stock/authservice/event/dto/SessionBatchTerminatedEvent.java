@@ -0,0 +1,25 @@
+package com.stock.authservice.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One record for a chunk of sessions terminated by a single statement.
+ * sessionIds and userIds are parallel lists.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionBatchTerminatedEvent {
+    private List<String> sessionIds;
+    private List<String> userIds;
+    private Integer count;
+    private LocalDateTime terminatedAt;
+    private String reason;
+}
@@ -0,0 +1,24 @@
+package com.stock.authservice.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One record per login on the user.login topic, keyed by user id: the login and the session
+ * it created. Consumers should skip schema versions they do not know.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserLoginEnvelope {
+
+    public static final int SCHEMA_VERSION = 1;
+
+    private Integer schemaVersion;
+    private String userId;
+    private UserLoginEvent login;
+    private SessionCreatedEvent session;
+}
@@ -0,0 +1,22 @@
+package com.stock.authservice.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published on user.activated and user.deactivated.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserStatusChangedEvent {
+
+    private String userId;
+    private String username;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,12 @@
+package com.stock.authservice.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException() {
+        super("Invalid pagination cursor");
+    }
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
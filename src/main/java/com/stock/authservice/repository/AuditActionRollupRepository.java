@@ -0,0 +1,20 @@
+package com.stock.authservice.repository;
+
+import com.stock.authservice.entity.AuditActionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AuditActionRollupRepository extends JpaRepository<AuditActionRollup, String> {
+
+  // Rows of (action, status, count)
+  @Query("SELECT r.action, r.status, SUM(r.eventCount) FROM AuditActionRollup r " +
+          "WHERE r.bucketStart >= :start AND r.bucketStart < :end " +
+          "GROUP BY r.action, r.status ORDER BY SUM(r.eventCount) DESC")
+  List<Object[]> sumByActionAndStatus(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,157 @@
+package com.stock.authservice.repository;
+
+import com.stock.authservice.entity.AuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Audit log filter shared by the SQL paths ({@link AuditLogSpecifications#matching} and
+ * {@link AuditLogSpecifications#whereClause}) and the archive, which evaluates it in memory with
+ * {@link #matches}. Null fields match anything.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditLogCriteria {
+
+    private String userId;
+    private String username;
+    private Collection<String> actions;
+    private String status;
+    private String ipAddress;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    // Free-text query over details and error message (web search syntax)
+    private String text;
+
+    public static AuditLogCriteria all() {
+        return new AuditLogCriteria();
+    }
+
+    public boolean matches(AuditLog auditLog) {
+        return (userId == null || userId.equals(auditLog.getUserId()))
+                && (username == null || username.equals(auditLog.getUsername()))
+                && (actions == null || actions.contains(auditLog.getAction()))
+                && (status == null || status.equals(auditLog.getStatus()))
+                && (ipAddress == null || ipAddress.equals(auditLog.getIpAddress()))
+                && (startDate == null || !auditLog.getTimestamp().isBefore(startDate))
+                && (endDate == null || !auditLog.getTimestamp().isAfter(endDate))
+                && (text == null || matchesText(auditLog));
+    }
+
+    /** True when only the time range is constrained. */
+    public boolean isTimeRangeOnly() {
+        return userId == null && username == null && actions == null && status == null && ipAddress == null
+                && text == null;
+    }
+
+    /*
+     * In-memory stand-in for websearch_to_tsquery('simple') over the same document, used for
+     * archived rows. Words are runs of letters and digits, lower-cased, as the 'simple' parser
+     * splits them. A quoted phrase, or a term with punctuation inside such as an IP address,
+     * has to appear as consecutive words. A leading "-" excludes a term. "or" separates
+     * alternatives, and each alternative needs all of its terms, matching the precedence of the
+     * generated tsquery. The database parser also keeps compound tokens such as e-mail addresses
+     * and host names whole, so the two can still differ for those.
+     */
+    private boolean matchesText(AuditLog auditLog) {
+        List<String> document = words((auditLog.getDetails() == null ? "" : auditLog.getDetails()) + " "
+                + (auditLog.getErrorMessage() == null ? "" : auditLog.getErrorMessage()));
+        for (List<Term> alternative : parseQuery(text)) {
+            if (alternative.stream().allMatch(term -> term.negated != containsPhrase(document, term.words))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<List<Term>> parseQuery(String query) {
+        List<List<Term>> alternatives = new ArrayList<>();
+        List<Term> terms = new ArrayList<>();
+        int position = 0;
+        while (position < query.length()) {
+            char c = query.charAt(position);
+            if (Character.isWhitespace(c)) {
+                position++;
+                continue;
+            }
+
+            boolean negated = c == '-';
+            if (negated) {
+                position++;
+            }
+            boolean quoted = position < query.length() && query.charAt(position) == '"';
+            int end;
+            String raw;
+            if (quoted) {
+                end = query.indexOf('"', position + 1);
+                end = end < 0 ? query.length() : end;
+                raw = query.substring(position + 1, end);
+                position = Math.min(end + 1, query.length());
+            } else {
+                end = position;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                raw = query.substring(position, end);
+                position = end;
+            }
+
+            if (!quoted && !negated && raw.equalsIgnoreCase("or")) {
+                if (!terms.isEmpty()) {
+                    alternatives.add(terms);
+                    terms = new ArrayList<>();
+                }
+                continue;
+            }
+            List<String> words = words(raw);
+            if (!words.isEmpty()) {
+                terms.add(new Term(words, negated));
+            }
+        }
+        if (!terms.isEmpty()) {
+            alternatives.add(terms);
+        }
+        return alternatives;
+    }
+
+    private static List<String> words(String value) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean wordChar = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(value.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static boolean containsPhrase(List<String> document, List<String> phrase) {
+        return Collections.indexOfSubList(document, phrase) >= 0;
+    }
+
+    private static final class Term {
+
+        private final List<String> words;
+        private final boolean negated;
+
+        private Term(List<String> words, boolean negated) {
+            this.words = words;
+            this.negated = negated;
+        }
+    }
+}
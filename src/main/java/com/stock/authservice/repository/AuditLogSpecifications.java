@@ -0,0 +1,140 @@
+package com.stock.authservice.repository;
+
+import com.stock.authservice.config.AuditSearchFunctionContributor;
+import com.stock.authservice.entity.AuditLog;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Audit log filters, evaluated in SQL. Null criteria fields are left out of the WHERE clause, so
+ * every combination maps onto one of the (column, timestamp) composite indexes.
+ * <p>
+ * The same criteria are rendered both as a {@link Specification} and as a plain SQL condition for
+ * the JDBC export, from one list of filtered columns, so the two cannot drift apart.
+ */
+public final class AuditLogSpecifications {
+
+    private static final List<EqualityFilter> EQUALITY_FILTERS = List.of(
+            new EqualityFilter("userId", "user_id", AuditLogCriteria::getUserId),
+            new EqualityFilter("username", "username", AuditLogCriteria::getUsername),
+            new EqualityFilter("status", "status", AuditLogCriteria::getStatus),
+            new EqualityFilter("ipAddress", "ip_address", AuditLogCriteria::getIpAddress)
+    );
+
+    private AuditLogSpecifications() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static Specification<AuditLog> matching(AuditLogCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            for (EqualityFilter filter : EQUALITY_FILTERS) {
+                String value = filter.value.apply(criteria);
+                if (value != null) {
+                    predicates.add(cb.equal(root.get(filter.attribute), value));
+                }
+            }
+            if (criteria.getActions() != null) {
+                predicates.add(actionIn(criteria.getActions()).toPredicate(root, query, cb));
+            }
+            if (criteria.getStartDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), criteria.getStartDate()));
+            }
+            if (criteria.getEndDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("timestamp"), criteria.getEndDate()));
+            }
+            if (hasText(criteria)) {
+                predicates.add(textMatches(criteria.getText()).toPredicate(root, query, cb));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * The {@link #matching} condition as SQL over the audit_logs columns, for queries that bypass
+     * JPA. Appends the bind values to {@code params} in placeholder order and returns an empty
+     * string when nothing is filtered.
+     */
+    public static String whereClause(AuditLogCriteria criteria, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        for (EqualityFilter filter : EQUALITY_FILTERS) {
+            String value = filter.value.apply(criteria);
+            if (value != null) {
+                conditions.add(filter.column + " = ?");
+                params.add(value);
+            }
+        }
+        if (criteria.getActions() != null) {
+            // An empty list matches nothing, as it does in the Specification
+            conditions.add(criteria.getActions().isEmpty() ? "FALSE"
+                    : "action IN (" + String.join(", ", Collections.nCopies(criteria.getActions().size(), "?")) + ")");
+            params.addAll(criteria.getActions());
+        }
+        if (criteria.getStartDate() != null) {
+            conditions.add("timestamp >= ?");
+            params.add(Timestamp.valueOf(criteria.getStartDate()));
+        }
+        if (criteria.getEndDate() != null) {
+            conditions.add("timestamp <= ?");
+            params.add(Timestamp.valueOf(criteria.getEndDate()));
+        }
+        if (hasText(criteria)) {
+            conditions.add(String.format(AuditSearchFunctionContributor.SEARCH_DOCUMENT, "details", "error_message")
+                    + " @@ websearch_to_tsquery('simple', ?)");
+            params.add(criteria.getText());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Keyset condition: rows strictly after ({@code timestamp}, {@code id}) in the
+     * (timestamp, id) order, descending unless {@code ascending}.
+     */
+    public static Specification<AuditLog> after(LocalDateTime timestamp, String id, boolean ascending) {
+        return (root, query, cb) -> {
+            if (ascending) {
+                return cb.or(
+                        cb.greaterThan(root.get("timestamp"), timestamp),
+                        cb.and(cb.equal(root.get("timestamp"), timestamp), cb.greaterThan(root.get("id"), id)));
+            }
+            return cb.or(
+                    cb.lessThan(root.get("timestamp"), timestamp),
+                    cb.and(cb.equal(root.get("timestamp"), timestamp), cb.lessThan(root.get("id"), id)));
+        };
+    }
+
+    /** Full-text match on details and error message, answered from idx_audit_search. */
+    public static Specification<AuditLog> textMatches(String text) {
+        return (root, query, cb) -> cb.isTrue(cb.function(AuditSearchFunctionContributor.FUNCTION_NAME, Boolean.class,
+                root.get("details"), root.get("errorMessage"), cb.literal(text)));
+    }
+
+    public static Specification<AuditLog> actionIn(Collection<String> actions) {
+        return (root, query, cb) -> root.get("action").in(actions);
+    }
+
+    private static boolean hasText(AuditLogCriteria criteria) {
+        return criteria.getText() != null && !criteria.getText().isBlank();
+    }
+
+    private static final class EqualityFilter {
+
+        private final String attribute;
+        private final String column;
+        private final Function<AuditLogCriteria, String> value;
+
+        private EqualityFilter(String attribute, String column, Function<AuditLogCriteria, String> value) {
+            this.attribute = attribute;
+            this.column = column;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.stock.authservice.repository;
+
+import com.stock.authservice.entity.AuditUserRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AuditUserRollupRepository extends JpaRepository<AuditUserRollup, String> {
+
+  // Rows of (userId, username, count), busiest users first
+  @Query("SELECT r.userId, MAX(r.username), SUM(r.eventCount) FROM AuditUserRollup r " +
+          "WHERE r.bucketStart >= :start AND r.bucketStart < :end " +
+          "GROUP BY r.userId ORDER BY SUM(r.eventCount) DESC")
+  List<Object[]> sumByUser(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, Pageable pageable);
+}
@@ -2,14 +2,27 @@ package com.stock.authservice.repository;
 
 import com.stock.authservice.entity.EmailVerificationToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface EmailVerificationTokenRepository extends JpaRepository<EmailVerificationToken, String> {
 
-    Optional<EmailVerificationToken> findByToken(String token);
+    Optional<EmailVerificationToken> findByTokenHash(byte[] tokenHash);
 
     void deleteByUserId(String userId);
+
+    @Query("SELECT t.id, t.expiresAt FROM EmailVerificationToken t WHERE t.isUsed = false AND t.expiresAt > :expiredAfter")
+    List<Object[]> findPendingExpirations(@Param("expiredAfter") LocalDateTime expiredAfter);
+
+    @Modifying
+    @Query("DELETE FROM EmailVerificationToken t WHERE t.id IN :ids AND t.isUsed = false AND t.expiresAt <= :cutoff")
+    int deleteExpiredUnusedByIds(@Param("ids") Collection<String> ids, @Param("cutoff") LocalDateTime cutoff);
 }
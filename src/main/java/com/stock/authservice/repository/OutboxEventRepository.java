@@ -0,0 +1,15 @@
+package com.stock.authservice.repository;
+
+import com.stock.authservice.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Per-key advisory lock, held until the appending transaction ends
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:lockName))) l", nativeQuery = true)
+    Integer lockKey(@Param("lockName") String lockName);
+}
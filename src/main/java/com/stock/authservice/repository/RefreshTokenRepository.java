@@ -9,12 +9,61 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
 
-    Optional<RefreshToken> findByToken(String token);
+    /**
+     * Issues a token into the (user, device) slot, starting a new family. An existing slot is
+     * overwritten in place instead of being deleted and re-inserted; it takes the new id, so
+     * tokens of the replaced family no longer find it.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO refresh_tokens (id, user_id, device_id, token_hash, family_id, generation, " +
+            "expires_at, is_revoked, revoked_at, device_info, ip_address, user_agent, created_at) " +
+            "VALUES (:id, :userId, :deviceId, :tokenHash, :familyId, 0, :expiresAt, false, NULL, " +
+            ":deviceInfo, :ipAddress, :userAgent, :now) " +
+            "ON CONFLICT (user_id, device_id) DO UPDATE SET id = EXCLUDED.id, token_hash = EXCLUDED.token_hash, " +
+            "previous_token_hash = NULL, rotated_at = NULL, " +
+            "family_id = EXCLUDED.family_id, generation = 0, " +
+            "expires_at = EXCLUDED.expires_at, is_revoked = false, revoked_at = NULL, " +
+            "device_info = EXCLUDED.device_info, ip_address = EXCLUDED.ip_address, user_agent = EXCLUDED.user_agent",
+            nativeQuery = true)
+    int upsertSlot(@Param("id") String id,
+                   @Param("userId") String userId,
+                   @Param("deviceId") String deviceId,
+                   @Param("tokenHash") byte[] tokenHash,
+                   @Param("familyId") String familyId,
+                   @Param("expiresAt") LocalDateTime expiresAt,
+                   @Param("deviceInfo") String deviceInfo,
+                   @Param("ipAddress") String ipAddress,
+                   @Param("userAgent") String userAgent,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Validates and rotates a slot in one statement, found by its primary key. Matches only while
+     * {@code currentHash} is the live, unrevoked, unexpired token, so of two concurrent rotations
+     * exactly one wins. None of the columns it sets is indexed, which keeps the update HOT.
+     * Returns user_id, device_id, family_id, generation, device_info of the rotated slot, or
+     * nothing if the token isn't currently valid.
+     */
+    @Query(value = "UPDATE refresh_tokens SET previous_token_hash = token_hash, token_hash = :newHash, " +
+            "rotated_at = :now, generation = generation + 1, expires_at = :expiresAt, " +
+            "ip_address = :ipAddress, user_agent = :userAgent " +
+            "WHERE id = :id AND token_hash = :currentHash AND is_revoked = false AND expires_at > :now " +
+            "RETURNING user_id, device_id, family_id, generation, device_info",
+            nativeQuery = true)
+    List<Object[]> rotateSlot(@Param("id") String id,
+                   @Param("currentHash") byte[] currentHash,
+                   @Param("newHash") byte[] newHash,
+                   @Param("expiresAt") LocalDateTime expiresAt,
+                   @Param("ipAddress") String ipAddress,
+                   @Param("userAgent") String userAgent,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.isRevoked = true, rt.revokedAt = :now WHERE rt.familyId = :familyId AND rt.isRevoked = false")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
 
     List<RefreshToken> findByUserId(String userId);
 
@@ -35,5 +84,8 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Stri
     @Query("DELETE FROM RefreshToken rt WHERE rt.expiresAt < :now")
     void deleteExpiredTokens(@Param("now") LocalDateTime now);
 
-    Boolean existsByToken(String token);
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN (SELECT id FROM refresh_tokens " +
+            "WHERE expires_at < :now LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredTokensBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
@@ -44,4 +44,7 @@ public interface UserRepository extends JpaRepository<User, String> {
 
     @Query("SELECT COUNT(u) FROM User u WHERE u.isLocked = true")
     Long countLockedUsers();
+
+    @Query("SELECT COUNT(u) FROM User u WHERE u.mfaEnabled = true")
+    Long countMfaEnabledUsers();
 }
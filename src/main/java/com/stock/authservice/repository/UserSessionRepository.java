@@ -8,14 +8,24 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserSessionRepository extends JpaRepository<UserSession, String> {
 
-    // Basic queries
-    Optional<UserSession> findBySessionToken(String sessionToken);
+    // Basic queries (created_at comes from user_session_keys so only one partition is read)
+    @Query(value = "SELECT * FROM user_sessions WHERE id = :sessionId " +
+            "AND created_at = (SELECT created_at FROM user_session_keys WHERE session_id = :sessionId)",
+            nativeQuery = true)
+    Optional<UserSession> findBySessionId(@Param("sessionId") String sessionId);
+
+    @Query(value = "SELECT * FROM user_sessions " +
+            "WHERE id = (SELECT session_id FROM user_session_keys WHERE session_token_hash = :sessionTokenHash) " +
+            "AND created_at = (SELECT created_at FROM user_session_keys WHERE session_token_hash = :sessionTokenHash)",
+            nativeQuery = true)
+    Optional<UserSession> findBySessionTokenHash(@Param("sessionTokenHash") byte[] sessionTokenHash);
 
     List<UserSession> findByUserId(String userId);
 
@@ -53,13 +63,59 @@ public interface UserSessionRepository extends JpaRepository<UserSession, String
     void terminateAllUserSessions(@Param("userId") String userId);
 
     @Modifying
-    @Query("UPDATE UserSession us SET us.isActive = false WHERE us.sessionToken = :sessionToken")
-    void terminateSession(@Param("sessionToken") String sessionToken);
+    @Query("UPDATE UserSession us SET us.isActive = false WHERE us.sessionTokenHash = :sessionTokenHash")
+    void terminateSession(@Param("sessionTokenHash") byte[] sessionTokenHash);
 
     @Modifying
     @Query("UPDATE UserSession us SET us.isActive = false WHERE us.id = :sessionId")
     void terminateSessionById(@Param("sessionId") String sessionId);
 
+    @Modifying
+    @Query(value = "UPDATE user_sessions SET last_activity = :lastActivity, expires_at = :expiresAt, " +
+            "updated_at = :lastActivity " +
+            "WHERE id = :sessionId " +
+            "AND created_at = (SELECT created_at FROM user_session_keys WHERE session_id = :sessionId) " +
+            "AND is_active = true AND expires_at > :lastActivity", nativeQuery = true)
+    int touchSession(@Param("sessionId") String sessionId,
+                     @Param("lastActivity") LocalDateTime lastActivity,
+                     @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Concurrent session limit (per-user advisory lock, held until the transaction ends)
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:userId))) l", nativeQuery = true)
+    Integer lockUserSessions(@Param("userId") String userId);
+
+    @Query(value = "UPDATE user_sessions SET is_active = false, terminated_at = :now, " +
+            "termination_reason = :reason, updated_at = :now " +
+            "WHERE id IN (SELECT id FROM user_sessions WHERE user_id = :userId AND is_active = true " +
+            "AND expires_at > :now ORDER BY created_at DESC, id DESC OFFSET :keep FOR UPDATE) " +
+            "RETURNING id", nativeQuery = true)
+    List<String> terminateSessionsBeyondLimit(@Param("userId") String userId,
+                                              @Param("now") LocalDateTime now,
+                                              @Param("reason") String reason,
+                                              @Param("keep") int keep);
+
+    // Bulk termination (one statement, returns id and user_id of each terminated session)
+    @Query(value = "UPDATE user_sessions SET is_active = false, terminated_at = :now, " +
+            "termination_reason = :reason, updated_at = :now " +
+            "WHERE user_id = :userId AND is_active = true RETURNING id, user_id", nativeQuery = true)
+    List<Object[]> terminateActiveSessionsByUserId(@Param("userId") String userId,
+                                                   @Param("now") LocalDateTime now,
+                                                   @Param("reason") String reason);
+
+    @Query(value = "UPDATE user_sessions SET is_active = false, terminated_at = :now, " +
+            "termination_reason = :reason, updated_at = :now " +
+            "WHERE ip_address = :ipAddress AND is_active = true RETURNING id, user_id", nativeQuery = true)
+    List<Object[]> terminateActiveSessionsByIpAddress(@Param("ipAddress") String ipAddress,
+                                                      @Param("now") LocalDateTime now,
+                                                      @Param("reason") String reason);
+
+    @Query(value = "UPDATE user_sessions SET is_active = false, terminated_at = :now, " +
+            "termination_reason = :reason, updated_at = :now " +
+            "WHERE device_type = :deviceType AND is_active = true RETURNING id, user_id", nativeQuery = true)
+    List<Object[]> terminateActiveSessionsByDeviceType(@Param("deviceType") String deviceType,
+                                                       @Param("now") LocalDateTime now,
+                                                       @Param("reason") String reason);
+
     // Delete operations
     @Modifying
     @Query("DELETE FROM UserSession us WHERE us.userId = :userId")
@@ -73,6 +129,34 @@ public interface UserSessionRepository extends JpaRepository<UserSession, String
     @Query("DELETE FROM UserSession us WHERE us.isActive = false AND us.updatedAt < :cutoffDate")
     void deleteInactiveSessions(@Param("cutoffDate") LocalDateTime cutoffDate);
 
+    // Batched cleanup (native, bounded per statement)
+    @Query(value = "UPDATE user_sessions SET is_active = false, terminated_at = :now, " +
+            "termination_reason = :reason, updated_at = :now " +
+            "WHERE id IN (SELECT id FROM user_sessions WHERE is_active = true AND expires_at < :now " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, user_id", nativeQuery = true)
+    List<Object[]> expireSessionsBatch(@Param("now") LocalDateTime now,
+                                       @Param("reason") String reason,
+                                       @Param("limit") int limit);
+
+    @Query(value = "UPDATE user_sessions SET is_active = false, terminated_at = :now, " +
+            "termination_reason = :reason, updated_at = :now " +
+            "WHERE (id, created_at) IN (SELECT session_id, created_at FROM user_session_keys " +
+            "WHERE session_id IN (:ids)) " +
+            "AND is_active = true AND expires_at <= :now " +
+            "RETURNING id, user_id", nativeQuery = true)
+    List<Object[]> expireSessionsByIds(@Param("ids") Collection<String> ids,
+                                       @Param("now") LocalDateTime now,
+                                       @Param("reason") String reason);
+
+    @Query("SELECT us.id, us.expiresAt FROM UserSession us WHERE us.isActive = true AND us.expiresAt > :now")
+    List<Object[]> findActiveSessionExpirations(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_sessions WHERE id IN (SELECT id FROM user_sessions " +
+            "WHERE is_active = false AND updated_at < :cutoffDate LIMIT :limit)", nativeQuery = true)
+    int deleteInactiveSessionsBatch(@Param("cutoffDate") LocalDateTime cutoffDate, @Param("limit") int limit);
+
     // Count queries
     long countByUserId(String userId);
 
@@ -81,6 +165,9 @@ public interface UserSessionRepository extends JpaRepository<UserSession, String
     @Query("SELECT COUNT(us) FROM UserSession us WHERE us.userId = :userId AND us.isActive = true AND us.expiresAt > :now")
     long countActiveSessionsByUserId(@Param("userId") String userId, @Param("now") LocalDateTime now);
 
+    @Query("SELECT COUNT(us) FROM UserSession us WHERE us.isActive = true AND us.expiresAt > :now")
+    long countActiveSessions(@Param("now") LocalDateTime now);
+
     // Last activity
     @Query("SELECT us FROM UserSession us WHERE us.userId = :userId ORDER BY us.lastActivity DESC")
     List<UserSession> findSessionsOrderedByActivity(@Param("userId") String userId);
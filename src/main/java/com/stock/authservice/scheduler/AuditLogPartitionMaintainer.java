@@ -0,0 +1,111 @@
+package com.stock.authservice.scheduler;
+
+import com.stock.authservice.audit.AuditArchive;
+import com.stock.authservice.audit.AuditSearchIndex;
+import com.stock.authservice.config.AuditConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps audit_logs range-partitioned by timestamp, one partition per month.
+ * <p>
+ * Same approach as {@link SessionPartitionMaintainer}: the table Hibernate creates is converted on
+ * startup (see {@link RangePartitionedTable}), with the existing rows attached as the partition
+ * for everything before next month. Audit entries are never updated, so retention is purely by age: a monthly
+ * partition is dropped as soon as its upper bound falls behind the retention cutoff, and the
+ * legacy partition once its newest entry does. Before that, partitions past the hot window are
+ * moved to the {@link AuditArchive} and dropped from the database. Queries bounded by timestamp
+ * only touch the partitions in range.
+ */
+@Component
+@Slf4j
+public class AuditLogPartitionMaintainer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditConfig auditConfig;
+    private final AuditArchive auditArchive;
+    private final RangePartitionedTable auditLogs;
+
+    public AuditLogPartitionMaintainer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                       AuditConfig auditConfig, AuditArchive auditArchive) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditConfig = auditConfig;
+        this.auditArchive = auditArchive;
+        this.auditLogs = new RangePartitionedTable(jdbcTemplate, transactionTemplate,
+                "audit_logs", "timestamp", RangePartitionedTable.Interval.MONTHLY);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!auditConfig.getPartitioning().isEnabled()) {
+            return;
+        }
+        try {
+            auditLogs.ensurePartitioned(List.of(), List.of(
+                    "CREATE INDEX idx_audit_user_timestamp ON audit_logs (user_id, timestamp)",
+                    "CREATE INDEX idx_audit_action_timestamp ON audit_logs (action, timestamp)",
+                    "CREATE INDEX idx_audit_ip_timestamp ON audit_logs (ip_address, timestamp)",
+                    "CREATE INDEX idx_audit_status_timestamp ON audit_logs (status, timestamp)",
+                    "CREATE INDEX idx_timestamp ON audit_logs (timestamp)",
+                    "CREATE INDEX " + AuditSearchIndex.INDEX_NAME + " ON audit_logs " + AuditSearchIndex.INDEX_DEFINITION));
+            maintain();
+        } catch (DataAccessException e) {
+            log.error("Failed to set up {} partitioning", auditLogs.getTable(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${audit.partitioning.maintenance-interval-ms:3600000}",
+            initialDelayString = "${audit.partitioning.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        if (!auditConfig.getPartitioning().isEnabled() || !auditLogs.isPartitioned()) {
+            return;
+        }
+
+        auditLogs.createPartitionsAhead(auditConfig.getPartitioning().getPremakeMonths());
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(auditConfig.getPartitioning().getRetentionDays());
+        LocalDateTime archiveCutoff = LocalDateTime.now().minusDays(auditConfig.getArchive().getArchiveAfterDays());
+        for (String partition : auditLogs.listPartitions()) {
+            if (isOlderThan(partition, cutoff)) {
+                auditLogs.dropPartition(partition);
+            } else if (auditConfig.getArchive().isEnabled() && isOlderThan(partition, archiveCutoff)
+                    && auditArchive.archivePartition(partition)) {
+                auditLogs.dropPartition(partition);
+            }
+        }
+        auditArchive.deleteOlderThan(cutoff);
+
+        // The statistics rollups follow the same retention; they are small enough to delete by row
+        Timestamp bucketCutoff = Timestamp.valueOf(cutoff);
+        jdbcTemplate.update("DELETE FROM audit_action_rollups WHERE bucket_start < ?", bucketCutoff);
+        jdbcTemplate.update("DELETE FROM audit_user_rollups WHERE bucket_start < ?", bucketCutoff);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // True when every entry the partition can hold is older than the cutoff
+    private boolean isOlderThan(String partition, LocalDateTime cutoff) {
+        LocalDateTime upperBound = auditLogs.upperBoundOf(partition);
+        if (upperBound != null) {
+            return !upperBound.isAfter(cutoff);
+        }
+        if (!auditLogs.isLegacyPartition(partition)) {
+            return false;
+        }
+
+        Boolean retained = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE timestamp >= ?)",
+                Boolean.class, Timestamp.valueOf(cutoff));
+        return !Boolean.TRUE.equals(retained);
+    }
+}
@@ -0,0 +1,214 @@
+package com.stock.authservice.scheduler;
+
+import com.stock.authservice.config.SessionConfig;
+import com.stock.authservice.event.AuthEventPublisher;
+import com.stock.authservice.event.dto.SessionBatchTerminatedEvent;
+import com.stock.authservice.repository.EmailVerificationTokenRepository;
+import com.stock.authservice.repository.UserSessionRepository;
+import com.stock.authservice.service.StatisticsService;
+import com.stock.authservice.store.SessionStore;
+import com.stock.authservice.util.DateTimeUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * Tracks session and email verification token deadlines in timing wheels and expires them as
+ * soon as their tick comes up, instead of waiting for a table scan.
+ * <p>
+ * Unused tokens are deleted only once they have been expired for
+ * {@code session.expiry.expired-token-retention-ms}, so a late click still gets "this link has
+ * expired" rather than "not found". Refresh token slots are not tracked here: every rotation
+ * moves their deadline, the rotation statement rejects expired slots itself, and the cleanup
+ * sweep removes them. Password reset tokens are not issued yet, so they are not tracked either.
+ * <p>
+ * The authoritative deadline of each entry lives in a map; touches only overwrite it. When a
+ * wheel entry fires with an extended deadline it is re-added, so extension costs O(1) too.
+ * The DB conditions in the expiry statements stay the final word, which keeps this safe when
+ * another node extended or terminated the session.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiryTracker {
+
+    private final SessionStore sessionStore;
+    private final UserSessionRepository sessionRepository;
+    private final EmailVerificationTokenRepository verificationTokenRepository;
+    private final AuthEventPublisher authEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final StatisticsService statisticsService;
+    private final SessionConfig sessionConfig;
+
+    private final ConcurrentMap<String, Long> sessionDeadlines = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> verificationTokenDeadlines = new ConcurrentHashMap<>();
+
+    private TimingWheel<String> sessionWheel;
+    private TimingWheel<String> verificationTokenWheel;
+
+    @PostConstruct
+    public void init() {
+        SessionConfig.Expiry expiry = sessionConfig.getExpiry();
+        long now = System.currentTimeMillis();
+        sessionWheel = new TimingWheel<>(expiry.getTickMs(), expiry.getWheelSize(), expiry.getLevels(), now);
+        verificationTokenWheel = new TimingWheel<>(expiry.getTickMs(), expiry.getWheelSize(), expiry.getLevels(), now);
+    }
+
+    // ==================== TRACKING ====================
+
+    public void trackSession(String sessionId, LocalDateTime expiresAt) {
+        if (!sessionConfig.getExpiry().isEnabled()) {
+            return;
+        }
+        long deadline = DateTimeUtil.toEpochMilli(expiresAt);
+        if (sessionDeadlines.put(sessionId, deadline) == null) {
+            sessionWheel.add(sessionId, deadline);
+        }
+    }
+
+    public void untrackSession(String sessionId) {
+        sessionDeadlines.remove(sessionId);
+    }
+
+    public void trackVerificationToken(String tokenId, LocalDateTime expiresAt) {
+        trackToken(verificationTokenWheel, verificationTokenDeadlines, tokenId, expiresAt);
+    }
+
+    // Used tokens are never deleted by expiry
+    public void untrackVerificationToken(String tokenId) {
+        verificationTokenDeadlines.remove(tokenId);
+    }
+
+    public int trackedSessions() {
+        return sessionDeadlines.size();
+    }
+
+    // ==================== SEEDING ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromDatabase() {
+        if (!sessionConfig.getExpiry().isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Object[]> sessions = sessionRepository.findActiveSessionExpirations(now);
+        sessions.forEach(row -> trackSession((String) row[0], (LocalDateTime) row[1]));
+
+        // Tokens still inside the retention window are pending removal too
+        LocalDateTime expiredAfter = retentionCutoff(now);
+        List<Object[]> verificationTokens = verificationTokenRepository.findPendingExpirations(expiredAfter);
+        verificationTokens.forEach(row -> trackVerificationToken((String) row[0], (LocalDateTime) row[1]));
+
+        log.info("Expiry tracker seeded with {} sessions and {} verification tokens",
+                sessions.size(), verificationTokens.size());
+    }
+
+    // ==================== TICK ====================
+
+    @Scheduled(fixedRateString = "${session.expiry.tick-ms:1000}")
+    public void tick() {
+        if (!sessionConfig.getExpiry().isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        List<String> dueSessions = collectDue(sessionWheel, sessionDeadlines, now);
+        if (!dueSessions.isEmpty()) {
+            expireSessions(dueSessions);
+        }
+
+        List<String> dueVerificationTokens = collectDue(verificationTokenWheel, verificationTokenDeadlines, now);
+        if (!dueVerificationTokens.isEmpty()) {
+            removeTokens(dueVerificationTokens, verificationTokenRepository::deleteExpiredUnusedByIds, "verification");
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // The wheel fires at the end of the retention window, not at expiry
+    private void trackToken(TimingWheel<String> wheel, ConcurrentMap<String, Long> deadlines,
+                            String tokenId, LocalDateTime expiresAt) {
+        if (!sessionConfig.getExpiry().isEnabled()) {
+            return;
+        }
+        long deadline = DateTimeUtil.toEpochMilli(expiresAt) + sessionConfig.getExpiry().getExpiredTokenRetentionMs();
+        if (deadlines.put(tokenId, deadline) == null) {
+            wheel.add(tokenId, deadline);
+        }
+    }
+
+    private void removeTokens(List<String> tokenIds,
+                              BiFunction<Collection<String>, LocalDateTime, Integer> deleteExpiredBefore,
+                              String kind) {
+        try {
+            LocalDateTime cutoff = retentionCutoff(LocalDateTime.now());
+            Integer deleted = transactionTemplate.execute(status -> deleteExpiredBefore.apply(tokenIds, cutoff));
+            log.debug("Removed {} expired {} tokens", deleted, kind);
+        } catch (Exception e) {
+            log.error("Failed to remove {} expired {} tokens", tokenIds.size(), kind, e);
+        }
+    }
+
+    private LocalDateTime retentionCutoff(LocalDateTime now) {
+        return now.minusNanos(sessionConfig.getExpiry().getExpiredTokenRetentionMs() * 1_000_000L);
+    }
+
+    private List<String> collectDue(TimingWheel<String> wheel, ConcurrentMap<String, Long> deadlines, long now) {
+        List<String> due = new ArrayList<>();
+        for (String key : wheel.advance(now)) {
+            Long deadline = deadlines.get(key);
+            if (deadline == null) {
+                continue; // untracked (terminated or used) since it was added
+            }
+            if (deadline > now) {
+                wheel.add(key, deadline); // extended since it was added
+            } else if (deadlines.remove(key, deadline)) {
+                due.add(key);
+            }
+        }
+        return due;
+    }
+
+    private void expireSessions(List<String> sessionIds) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // The event goes to the outbox in the same transaction as the expiry
+            Map<String, String> expired = transactionTemplate.execute(status -> {
+                Map<String, String> terminated = sessionStore.expireByIds(sessionIds, now);
+                if (!terminated.isEmpty()) {
+                    authEventPublisher.publishSessionsTerminated(SessionBatchTerminatedEvent.builder()
+                            .sessionIds(new ArrayList<>(terminated.keySet()))
+                            .userIds(new ArrayList<>(terminated.values()))
+                            .count(terminated.size())
+                            .terminatedAt(now)
+                            .reason("SESSION_EXPIRED")
+                            .build());
+                }
+                return terminated;
+            });
+
+            if (expired != null && !expired.isEmpty()) {
+                statisticsService.adjustActiveSessions(-expired.size());
+                log.debug("Expired {} sessions on tick", expired.size());
+            }
+        } catch (Exception e) {
+            // The cleanup sweeper will still expire them; don't lose the tick thread
+            log.error("Failed to expire {} sessions", sessionIds.size(), e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.stock.authservice.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A table range-partitioned by one timestamp column, one partition per day or month.
+ * <p>
+ * Hibernate creates the table as a plain one; {@link #ensurePartitioned} swaps it for a
+ * partitioned parent and attaches the existing table as the partition for everything before the
+ * next interval, plus a default partition. The maintainers create partitions ahead of time and
+ * decide which ones to drop; this class only knows the layout, not the retention policy.
+ */
+@Slf4j
+public class RangePartitionedTable {
+
+    public enum Interval {
+        DAILY(DateTimeFormatter.BASIC_ISO_DATE),
+        MONTHLY(DateTimeFormatter.ofPattern("yyyyMM"));
+
+        private final DateTimeFormatter suffixFormat;
+
+        Interval(DateTimeFormatter suffixFormat) {
+            this.suffixFormat = suffixFormat;
+        }
+
+        private LocalDate startOf(LocalDate date) {
+            return this == DAILY ? date : date.withDayOfMonth(1);
+        }
+
+        private LocalDate next(LocalDate start, long count) {
+            return this == DAILY ? start.plusDays(count) : start.plusMonths(count);
+        }
+
+        private LocalDate parse(String suffix) {
+            return this == DAILY ? LocalDate.parse(suffix, suffixFormat) : YearMonth.parse(suffix, suffixFormat).atDay(1);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String table;
+    private final String partitionKey;
+    private final Interval interval;
+    private final String legacyPartition;
+    private final String partitionPrefix;
+
+    public RangePartitionedTable(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 String table, String partitionKey, Interval interval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.table = table;
+        this.partitionKey = partitionKey;
+        this.interval = interval;
+        this.legacyPartition = table + "_legacy";
+        this.partitionPrefix = table + "_p";
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public boolean isLegacyPartition(String partition) {
+        return partition.equals(legacyPartition);
+    }
+
+    // ==================== CONVERSION ====================
+
+    /**
+     * Converts the table unless it already is partitioned. {@code legacyStatements} run on the
+     * renamed table before anything else, with {@code %s} standing for its name;
+     * {@code parentStatements} (the indexes, mostly) run on the new parent before the old table
+     * is attached to it. The primary key becomes (id, partition key), as unique constraints on a
+     * partitioned table must include the partition key.
+     */
+    public void ensurePartitioned(List<String> legacyStatements, List<String> parentStatements) {
+        if (isPartitioned()) {
+            return;
+        }
+
+        LocalDate legacyUpperBound = interval.next(interval.startOf(LocalDate.now()), 1);
+        transactionTemplate.executeWithoutResult(status -> {
+            // Only one node converts; the others see a partitioned table once the lock is released
+            jdbcTemplate.queryForObject("SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(?))) l",
+                    Integer.class, table);
+            if (isPartitioned()) {
+                return;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + legacyPartition);
+            for (String statement : legacyStatements) {
+                jdbcTemplate.execute(String.format(statement, legacyPartition));
+            }
+
+            // Free the index names for the parent; attached indexes are matched by definition
+            List<String> indexes = jdbcTemplate.queryForList(
+                    "SELECT indexname FROM pg_indexes WHERE tablename = ?", String.class, legacyPartition);
+            for (String index : indexes) {
+                jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + legacyName(index));
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + legacyPartition + " INCLUDING DEFAULTS) " +
+                    "PARTITION BY RANGE (" + partitionKey + ")");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + table + "_pkey " +
+                    "PRIMARY KEY (id, " + partitionKey + ")");
+            parentStatements.forEach(jdbcTemplate::execute);
+
+            jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + legacyPartition +
+                    " FOR VALUES FROM (MINVALUE) TO ('" + legacyUpperBound + "')");
+            jdbcTemplate.execute("CREATE TABLE " + table + "_default PARTITION OF " + table + " DEFAULT");
+        });
+
+        log.info("Converted {} to a partitioned table; existing rows kept in {}", table, legacyPartition);
+    }
+
+    // ==================== PARTITIONS ====================
+
+    // The partition for the current interval and the {@code ahead} after it
+    public void createPartitionsAhead(int ahead) {
+        LocalDate current = interval.startOf(LocalDate.now());
+        for (int i = 0; i <= ahead; i++) {
+            createPartition(interval.next(current, i));
+        }
+    }
+
+    public List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname",
+                String.class, table);
+    }
+
+    // Exclusive upper bound of an interval partition; null for the legacy and default partitions
+    public LocalDateTime upperBoundOf(String partition) {
+        if (!partition.startsWith(partitionPrefix)) {
+            return null;
+        }
+        LocalDate start = interval.parse(partition.substring(partitionPrefix.length()));
+        return interval.next(start, 1).atStartOfDay();
+    }
+
+    public void dropPartition(String partition) {
+        dropPartition(partition, name -> { });
+    }
+
+    /**
+     * Detaches and drops {@code partition}, running {@code beforeDetach} in the same transaction
+     * first. Dropping a partition fires no row triggers, so that is where dependent rows go.
+     */
+    public void dropPartition(String partition, Consumer<String> beforeDetach) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                beforeDetach.accept(partition);
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            });
+            log.info("Dropped partition {}", partition);
+        } catch (DataAccessException e) {
+            log.error("Failed to drop partition {}", partition, e);
+        }
+    }
+
+    public boolean isPartitioned() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, table);
+        return "p".equals(kind);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void createPartition(LocalDate start) {
+        String partition = partitionPrefix + start.format(interval.suffixFormat);
+        if (tableExists(partition)) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + table +
+                    " FOR VALUES FROM ('" + start + "') TO ('" + interval.next(start, 1) + "')");
+            log.info("Created partition {}", partition);
+        } catch (DataAccessException e) {
+            // Expected for the interval still covered by the legacy partition
+            log.debug("Skipped partition {}: {}", partition, e.getMessage());
+        }
+    }
+
+    private boolean tableExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    private static String legacyName(String index) {
+        String suffix = "_legacy";
+        return (index.length() + suffix.length() > 63 ? index.substring(0, 63 - suffix.length()) : index) + suffix;
+    }
+}
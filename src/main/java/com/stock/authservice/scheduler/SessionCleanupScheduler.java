@@ -0,0 +1,90 @@
+package com.stock.authservice.scheduler;
+
+import com.stock.authservice.config.SessionConfig;
+import com.stock.authservice.service.SessionService;
+import com.stock.authservice.service.TokenService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sweeps user_sessions in fixed-size chunks, each committed on its own, so cleanup cost
+ * depends on the number of rows touched rather than on the number of sessions held.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SessionCleanupScheduler {
+
+    private final SessionService sessionService;
+    private final TokenService tokenService;
+    private final SessionConfig sessionConfig;
+
+    // ==================== EXPIRE SESSIONS ====================
+
+    @Scheduled(fixedDelayString = "${session.cleanup.expire-interval-ms:60000}",
+            initialDelayString = "${session.cleanup.expire-interval-ms:60000}")
+    public void expireSessions() {
+        int batchSize = sessionConfig.getCleanup().getBatchSize();
+        long start = System.nanoTime();
+        long total = 0;
+        int expired;
+
+        do {
+            expired = sessionService.expireSessionsBatch(batchSize);
+            total += expired;
+        } while (expired == batchSize);
+
+        logThroughput("Expired", total, start, "sessions");
+    }
+
+    // ==================== PURGE OLD SESSIONS ====================
+
+    @Scheduled(fixedDelayString = "${session.cleanup.purge-interval-ms:3600000}",
+            initialDelayString = "${session.cleanup.purge-interval-ms:3600000}")
+    public void purgeInactiveSessions() {
+        int batchSize = sessionConfig.getCleanup().getBatchSize();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(sessionConfig.getCleanup().getRetentionDays());
+        long start = System.nanoTime();
+        long total = 0;
+        int deleted;
+
+        do {
+            deleted = sessionService.purgeInactiveSessionsBatch(cutoff, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+
+        logThroughput("Purged", total, start, "sessions");
+    }
+
+    @Scheduled(fixedDelayString = "${session.cleanup.purge-interval-ms:3600000}",
+            initialDelayString = "${session.cleanup.purge-interval-ms:3600000}")
+    public void purgeExpiredRefreshTokens() {
+        int batchSize = sessionConfig.getCleanup().getBatchSize();
+        long start = System.nanoTime();
+        long total = 0;
+        int deleted;
+
+        do {
+            deleted = tokenService.purgeExpiredTokensBatch(batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+
+        logThroughput("Purged", total, start, "refresh tokens");
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void logThroughput(String operation, long rows, long startNanos, String what) {
+        if (rows == 0) {
+            log.debug("{} 0 {}", operation, what);
+            return;
+        }
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+        log.info("{} {} {} in {} ms ({} rows/s)",
+                operation, rows, what, Math.round(seconds * 1000), Math.round(rows / seconds));
+    }
+}
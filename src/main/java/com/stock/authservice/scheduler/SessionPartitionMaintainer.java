@@ -0,0 +1,103 @@
+package com.stock.authservice.scheduler;
+
+import com.stock.authservice.config.SessionConfig;
+import com.stock.authservice.config.SessionKeyMigration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps user_sessions range-partitioned by created_at, one partition per day.
+ * <p>
+ * On startup the table Hibernate created is converted (see {@link RangePartitionedTable}), with
+ * the existing rows attached as the partition for everything before tomorrow. The maintenance
+ * run then creates partitions ahead of time and drops whole partitions once every session in
+ * them is inactive and past retention, instead of deleting rows. Partitions
+ * that still hold live sessions are left to the row-level purge in {@link SessionCleanupScheduler}.
+ * <p>
+ * Lookups by id or token digest go through user_session_keys for the created_at that picks the
+ * partition; see {@link SessionKeyMigration}.
+ */
+@Component
+@Slf4j
+public class SessionPartitionMaintainer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionConfig sessionConfig;
+    private final RangePartitionedTable sessions;
+
+    public SessionPartitionMaintainer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                      SessionConfig sessionConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionConfig = sessionConfig;
+        this.sessions = new RangePartitionedTable(jdbcTemplate, transactionTemplate,
+                "user_sessions", "created_at", RangePartitionedTable.Interval.DAILY);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!sessionConfig.getPartitioning().isEnabled()) {
+            return;
+        }
+        try {
+            sessions.ensurePartitioned(
+                    // The key trigger moves to the parent, which clones it onto every partition
+                    List.of("DROP TRIGGER IF EXISTS " + SessionKeyMigration.TRIGGER + " ON %s"),
+                    List.of("CREATE INDEX idx_session_token_hash ON user_sessions (session_token_hash)",
+                            "CREATE INDEX idx_session_user_id ON user_sessions (user_id)",
+                            "CREATE INDEX idx_is_active ON user_sessions (is_active)",
+                            "CREATE INDEX idx_session_ip_address ON user_sessions (ip_address)",
+                            SessionKeyMigration.CREATE_TRIGGER_SQL));
+            maintain();
+        } catch (DataAccessException e) {
+            log.error("Failed to set up {} partitioning", sessions.getTable(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${session.partitioning.maintenance-interval-ms:3600000}",
+            initialDelayString = "${session.partitioning.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        if (!sessionConfig.getPartitioning().isEnabled() || !sessions.isPartitioned()) {
+            return;
+        }
+
+        sessions.createPartitionsAhead(sessionConfig.getPartitioning().getPremakeDays());
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(sessionConfig.getCleanup().getRetentionDays());
+        for (String partition : sessions.listPartitions()) {
+            if (isDroppable(partition, cutoff)) {
+                // Dropping a partition fires no row triggers, so its keys are removed here
+                sessions.dropPartition(partition, name -> jdbcTemplate.update(
+                        "DELETE FROM user_session_keys WHERE session_id IN (SELECT id FROM " + name + ")"));
+            }
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private boolean isDroppable(String partition, LocalDateTime cutoff) {
+        LocalDateTime upperBound = sessions.upperBoundOf(partition);
+        if (upperBound != null) {
+            if (!upperBound.isBefore(cutoff)) {
+                return false;
+            }
+        } else if (!sessions.isLegacyPartition(partition)) {
+            return false;
+        }
+
+        Boolean retained = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE is_active = true " +
+                        "OR COALESCE(updated_at, created_at) >= ?)",
+                Boolean.class, Timestamp.valueOf(cutoff));
+        return !Boolean.TRUE.equals(retained);
+    }
+}
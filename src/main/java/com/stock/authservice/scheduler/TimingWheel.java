@@ -0,0 +1,130 @@
+package com.stock.authservice.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has {@code wheelSize} slots of {@code tickMs}; each higher
+ * level has slots as wide as the whole level below it. Entries are added and expired in O(1) and
+ * cascade down one level at a time as their slot comes up. Deadlines beyond the top level are
+ * parked in its furthest slot and re-placed when that slot is reached.
+ * <p>
+ * Entries are never removed: callers keep the authoritative deadline elsewhere and ignore or
+ * re-add stale entries when they fire. All methods are thread-safe.
+ */
+public class TimingWheel<K> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] slotMs;
+    private final List<Entry<K>>[][] levels;
+    private final List<K> overdue = new ArrayList<>();
+
+    private long currentTime;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize, int levelCount, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.slotMs = new long[levelCount];
+        this.levels = new List[levelCount][wheelSize];
+
+        long span = tickMs;
+        for (int level = 0; level < levelCount; level++) {
+            slotMs[level] = span;
+            span = Math.multiplyExact(span, wheelSize);
+        }
+        this.currentTime = startMs - (startMs % tickMs);
+    }
+
+    public synchronized void add(K key, long deadlineMs) {
+        size++;
+        place(new Entry<>(key, deadlineMs));
+    }
+
+    /**
+     * Advances the wheel up to {@code nowMs} and returns the keys whose deadline has passed,
+     * at most one tick late.
+     */
+    public synchronized List<K> advance(long nowMs) {
+        List<K> expired = new ArrayList<>(overdue);
+        overdue.clear();
+
+        while (currentTime + tickMs <= nowMs) {
+            List<Entry<K>> slot = takeSlot(0, currentTime);
+            if (slot != null) {
+                slot.forEach(entry -> expired.add(entry.key));
+            }
+            currentTime += tickMs;
+
+            // Cascade every higher-level slot that starts now
+            for (int level = 1; level < levels.length && currentTime % slotMs[level] == 0; level++) {
+                List<Entry<K>> upper = takeSlot(level, currentTime);
+                if (upper != null) {
+                    size -= upper.size();
+                    upper.forEach(entry -> {
+                        size++;
+                        place(entry);
+                    });
+                }
+            }
+        }
+
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void place(Entry<K> entry) {
+        if (entry.deadlineMs < currentTime) {
+            overdue.add(entry.key);
+            return;
+        }
+
+        for (int level = 0; level < levels.length; level++) {
+            long levelStart = currentTime - (currentTime % slotMs[level]);
+            if (entry.deadlineMs < levelStart + slotMs[level] * wheelSize) {
+                slotFor(level, entry.deadlineMs).add(entry);
+                return;
+            }
+        }
+
+        // Beyond the top level: park in its furthest slot
+        int top = levels.length - 1;
+        long topStart = currentTime - (currentTime % slotMs[top]);
+        slotFor(top, topStart + slotMs[top] * (wheelSize - 1)).add(entry);
+    }
+
+    private List<Entry<K>> slotFor(int level, long timeMs) {
+        int index = (int) ((timeMs / slotMs[level]) % wheelSize);
+        List<Entry<K>> slot = levels[level][index];
+        if (slot == null) {
+            slot = new ArrayList<>();
+            levels[level][index] = slot;
+        }
+        return slot;
+    }
+
+    private List<Entry<K>> takeSlot(int level, long timeMs) {
+        int index = (int) ((timeMs / slotMs[level]) % wheelSize);
+        List<Entry<K>> slot = levels[level][index];
+        levels[level][index] = null;
+        return slot;
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        private final long deadlineMs;
+
+        private Entry(K key, long deadlineMs) {
+            this.key = key;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+}
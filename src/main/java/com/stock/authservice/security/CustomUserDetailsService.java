@@ -28,4 +28,13 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return CustomUserDetails.build(user);
     }
+
+    @Transactional(readOnly = true)
+    public CustomUserDetails loadUserById(String userId) {
+        log.debug("Loading user by id: {}", userId);
+
+        return userRepository.findById(userId)
+                .map(CustomUserDetails::build)
+                .orElse(null);
+    }
 }
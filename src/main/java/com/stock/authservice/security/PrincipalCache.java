@@ -0,0 +1,82 @@
+package com.stock.authservice.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the principal (identity plus flattened role and permission authorities) per user id,
+ * so token issuance doesn't walk the User -> roles -> permissions graph on every call.
+ * <p>
+ * Entries expire after {@code security.principal-cache.ttl-ms}; services that change a user's
+ * roles, status or a role's permissions evict explicitly, after their transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PrincipalCache {
+
+    private final CustomUserDetailsService userDetailsService;
+
+    @Value("${security.principal-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    private final ConcurrentMap<String, Entry> principals = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached principal for {@code userId}, loading it on a miss, or null if the
+     * user doesn't exist.
+     */
+    public CustomUserDetails get(String userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = principals.get(userId);
+        if (entry != null && now - entry.loadedAt < ttlMs) {
+            return entry.principal;
+        }
+
+        CustomUserDetails principal = userDetailsService.loadUserById(userId);
+        if (principal != null) {
+            principals.put(userId, new Entry(principal, now));
+        }
+        return principal;
+    }
+
+    public void evict(String userId) {
+        evictNowAndAfterCommit(() -> principals.remove(userId));
+    }
+
+    public void evictAll() {
+        evictNowAndAfterCommit(principals::clear);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void evictNowAndAfterCommit(Runnable action) {
+        // Evict now and again after commit, so a concurrent load can't re-cache pre-commit state
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static final class Entry {
+        private final CustomUserDetails principal;
+        private final long loadedAt;
+
+        private Entry(CustomUserDetails principal, long loadedAt) {
+            this.principal = principal;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
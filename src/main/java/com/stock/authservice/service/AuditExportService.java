@@ -0,0 +1,195 @@
+package com.stock.authservice.service;
+
+import com.stock.authservice.audit.AuditArchive;
+import com.stock.authservice.config.AuditConfig;
+import com.stock.authservice.dto.response.AuditLogResponse;
+import com.stock.authservice.repository.AuditLogCriteria;
+import com.stock.authservice.repository.AuditLogSpecifications;
+import com.stock.authservice.util.JsonUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams audit log extracts straight from a server-side cursor to the response.
+ * <p>
+ * Rows are read with plain JDBC in {@code fetch-size} chunks (PostgreSQL only uses a cursor
+ * inside a transaction, hence the read-only transaction around the query) and written out one
+ * at a time, so heap use does not depend on the size of the export. The transaction lives
+ * exactly as long as the cursor.
+ * <p>
+ * Matching entries from the {@link AuditArchive} are written first, one row group at a time.
+ * Archived partitions are older than everything left in audit_logs, so the export stays in
+ * timestamp order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditExportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String SELECT_SQL =
+            "SELECT id, user_id, username, action, resource_type, resource_id, ip_address, user_agent, " +
+            "status, error_message, details, timestamp FROM audit_logs";
+
+    private static final String CSV_HEADER =
+            "id,user_id,username,action,resource_type,resource_id,ip_address,user_agent," +
+            "status,error_message,details,timestamp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final AuditConfig auditConfig;
+    private final AuditArchive auditArchive;
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_NDJSON.equalsIgnoreCase(format) || FORMAT_CSV.equalsIgnoreCase(format);
+    }
+
+    public void export(String userId, String username, String action, String status, String ipAddress,
+                       LocalDateTime startDate, LocalDateTime endDate, String text,
+                       String format, boolean gzip, OutputStream outputStream) throws IOException {
+        AuditLogCriteria criteria = AuditLogCriteria.builder()
+                .userId(userId)
+                .username(username)
+                .actions(action != null ? Set.of(action) : null)
+                .status(status)
+                .ipAddress(ipAddress)
+                .startDate(startDate)
+                .endDate(endDate)
+                .text(text == null || text.isBlank() ? null : text)
+                .build();
+        List<Object> params = new ArrayList<>();
+        String sql = SELECT_SQL + AuditLogSpecifications.whereClause(criteria, params) + " ORDER BY timestamp";
+        boolean csv = FORMAT_CSV.equalsIgnoreCase(format);
+
+        OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long[] rows = {0};
+        try {
+            auditArchive.forEachMatching(criteria, auditLog -> {
+                try {
+                    writeRow(writer, AuditLogResponse.from(auditLog), csv);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Audit export aborted after {} archived rows: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        try {
+            transaction.executeWithoutResult(tx -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(auditConfig.getExport().getFetchSize());
+                for (int i = 0; i < params.size(); i++) {
+                    statement.setObject(i + 1, params.get(i));
+                }
+                return statement;
+            }, resultSet -> {
+                try {
+                    writeRow(writer, mapRow(resultSet), csv);
+                    rows[0]++;
+                } catch (IOException e) {
+                    // Client went away; abort the query instead of reading the rest of the cursor
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            log.warn("Audit export aborted after {} rows: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        outputStream.flush();
+        log.info("Exported {} audit logs as {}{}", rows[0], csv ? FORMAT_CSV : FORMAT_NDJSON, gzip ? " (gzip)" : "");
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static void writeRow(Writer writer, AuditLogResponse row, boolean csv) throws IOException {
+        writer.write(csv ? toCsv(row) : JsonUtil.toJson(row));
+        writer.write('\n');
+    }
+
+    private static AuditLogResponse mapRow(ResultSet resultSet) throws SQLException {
+        Timestamp timestamp = resultSet.getTimestamp("timestamp");
+        return AuditLogResponse.builder()
+                .id(resultSet.getString("id"))
+                .userId(resultSet.getString("user_id"))
+                .username(resultSet.getString("username"))
+                .action(resultSet.getString("action"))
+                .resourceType(resultSet.getString("resource_type"))
+                .resourceId(resultSet.getString("resource_id"))
+                .ipAddress(resultSet.getString("ip_address"))
+                .userAgent(resultSet.getString("user_agent"))
+                .status(resultSet.getString("status"))
+                .errorMessage(resultSet.getString("error_message"))
+                .details(resultSet.getString("details"))
+                .timestamp(timestamp == null ? null : timestamp.toLocalDateTime())
+                .build();
+    }
+
+    private static String toCsv(AuditLogResponse row) {
+        return String.join(",",
+                csvField(row.getId()),
+                csvField(row.getUserId()),
+                csvField(row.getUsername()),
+                csvField(row.getAction()),
+                csvField(row.getResourceType()),
+                csvField(row.getResourceId()),
+                csvField(row.getIpAddress()),
+                csvField(row.getUserAgent()),
+                csvField(row.getStatus()),
+                csvField(row.getErrorMessage()),
+                csvField(row.getDetails()),
+                csvField(row.getTimestamp() == null ? null : row.getTimestamp().toString()));
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,20 +1,37 @@
 package com.stock.authservice.service;
 
+import com.stock.authservice.audit.AuditArchive;
+import com.stock.authservice.audit.AuditLogBroadcaster;
+import com.stock.authservice.audit.AuditLogWriter;
+import com.stock.authservice.constants.ApiConstants;
+import com.stock.authservice.dto.response.AuditActionStatsResponse;
 import com.stock.authservice.dto.response.AuditLogResponse;
-import com.stock.authservice.dto.response.PageResponse;
+import com.stock.authservice.dto.response.AuditUserStatsResponse;
+import com.stock.authservice.dto.response.CursorPageResponse;
 import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.exception.InvalidCursorException;
 import com.stock.authservice.exception.ResourceNotFoundException;
+import com.stock.authservice.repository.AuditActionRollupRepository;
+import com.stock.authservice.repository.AuditLogCriteria;
 import com.stock.authservice.repository.AuditLogRepository;
+import com.stock.authservice.repository.AuditLogSpecifications;
+import com.stock.authservice.repository.AuditUserRollupRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,41 +41,49 @@ import java.util.stream.Collectors;
 public class AuditLogService {
 
     private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditArchive auditArchive;
+    private final AuditLogBroadcaster auditLogBroadcaster;
+    private final AuditActionRollupRepository auditActionRollupRepository;
+    private final AuditUserRollupRepository auditUserRollupRepository;
+
+    private static final String CURSOR_SEPARATOR = "|";
+
+    private static final List<String> SECURITY_ACTIONS = List.of(
+            "ACCOUNT_LOCKED", "ACCOUNT_UNLOCKED", "PASSWORD_CHANGE",
+            "PASSWORD_RESET", "MFA_ENABLED", "MFA_DISABLED"
+    );
 
     // ==================== LOG ACTIONS ====================
+    // Entries are queued for the batched writer and don't join the caller's transaction
 
-    @Transactional
     public void logSuccessfulLogin(String userId, String username, String ipAddress) {
         AuditLog auditLog = AuditLog.success(userId, username, "LOGIN", ipAddress);
-        auditLogRepository.save(auditLog);
+        auditLogWriter.submit(auditLog);
         log.debug("Logged successful login for user: {}", username);
     }
 
-    @Transactional
     public void logFailedLogin(String username, String ipAddress, String errorMessage) {
         AuditLog auditLog = AuditLog.failure(null, username, "LOGIN_FAILED", ipAddress, errorMessage);
-        auditLogRepository.save(auditLog);
+        auditLogWriter.submit(auditLog);
         log.debug("Logged failed login for user: {}", username);
     }
 
-    @Transactional
     public void logLogout(String userId, String username, String ipAddress) {
         AuditLog auditLog = AuditLog.success(userId, username, "LOGOUT", ipAddress);
-        auditLogRepository.save(auditLog);
+        auditLogWriter.submit(auditLog);
         log.debug("Logged logout for user: {}", username);
     }
 
-    @Transactional
     public void logPasswordChange(String userId, String username, String ipAddress) {
         AuditLog auditLog = AuditLog.success(userId, username, "PASSWORD_CHANGE", ipAddress);
-        auditLogRepository.save(auditLog);
+        auditLogWriter.submit(auditLog);
         log.debug("Logged password change for user: {}", username);
     }
 
-    @Transactional
     public void logAction(String userId, String username, String action, String ipAddress) {
         AuditLog auditLog = AuditLog.success(userId, username, action, ipAddress);
-        auditLogRepository.save(auditLog);
+        auditLogWriter.submit(auditLog);
         log.debug("Logged action {} for user: {}", action, username);
     }
 
@@ -68,153 +93,189 @@ public class AuditLogService {
     public AuditLogResponse getAuditLogById(String id) {
         AuditLog auditLog = auditLogRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("AuditLog", "id", id));
-        return mapToResponse(auditLog);
+        return AuditLogResponse.from(auditLog);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getAllAuditLogs(int page, int size, String sortBy, String sortDirection) {
-        Sort.Direction direction = sortDirection.equalsIgnoreCase("ASC") ?
-                Sort.Direction.ASC : Sort.Direction.DESC;
-
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
-        Page<AuditLog> auditLogPage = auditLogRepository.findAll(pageable);
-
-        return mapToPageResponse(auditLogPage);
+    public CursorPageResponse<AuditLogResponse> getAllAuditLogs(String cursor, int size, String sortDirection,
+                                                                boolean includeTotal) {
+        boolean ascending = sortDirection.equalsIgnoreCase("ASC");
+        return findPage(AuditLogCriteria.all(), cursor, size, ascending, includeTotal);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getAuditLogsByUserId(String userId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp"));
-        List<AuditLog> auditLogs = auditLogRepository.findByUserId(userId);
+    public CursorPageResponse<AuditLogResponse> getAuditLogsByUserId(String userId, String cursor, int size,
+                                                                     boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().userId(userId).build(), cursor, size, false, includeTotal);
+    }
 
-        return createPageResponse(auditLogs, page, size);
+    @Transactional(readOnly = true)
+    public CursorPageResponse<AuditLogResponse> getAuditLogsByUsername(String username, String cursor, int size,
+                                                                       boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().username(username).build(), cursor, size, false, includeTotal);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getAuditLogsByUsername(String username, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp"));
-        List<AuditLog> auditLogs = auditLogRepository.findByUserId(username); // Assuming username query
+    public CursorPageResponse<AuditLogResponse> getAuditLogsByAction(String action, String cursor, int size,
+                                                                     boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().actions(List.of(action)).build(), cursor, size, false, includeTotal);
+    }
 
-        return createPageResponse(auditLogs, page, size);
+    @Transactional(readOnly = true)
+    public CursorPageResponse<AuditLogResponse> getAuditLogsByDateRange(
+            LocalDateTime startDate, LocalDateTime endDate, String cursor, int size, boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().startDate(startDate).endDate(endDate).build(), cursor, size, false, includeTotal);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getAuditLogsByAction(String action, int page, int size) {
-        List<AuditLog> auditLogs = auditLogRepository.findByAction(action);
-        return createPageResponse(auditLogs, page, size);
+    public CursorPageResponse<AuditLogResponse> getAuditLogsByIpAddress(String ipAddress, String cursor, int size,
+                                                                        boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().ipAddress(ipAddress).build(), cursor, size, false, includeTotal);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getAuditLogsByDateRange(
-            LocalDateTime startDate, LocalDateTime endDate, int page, int size) {
-        List<AuditLog> auditLogs = auditLogRepository.findByTimestampBetween(startDate, endDate);
-        return createPageResponse(auditLogs, page, size);
+    public CursorPageResponse<AuditLogResponse> getAuditLogsByStatus(String status, String cursor, int size,
+                                                                     boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().status(status).build(), cursor, size, false, includeTotal);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getAuditLogsByIpAddress(String ipAddress, int page, int size) {
-        List<AuditLog> auditLogs = auditLogRepository.findAll().stream()
-                .filter(log -> ipAddress.equals(log.getIpAddress()))
-                .collect(Collectors.toList());
-        return createPageResponse(auditLogs, page, size);
+    public CursorPageResponse<AuditLogResponse> getFailedLoginAttempts(String cursor, int size, boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().actions(List.of("LOGIN_FAILED")).build(), cursor, size, false, includeTotal);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getAuditLogsByStatus(String status, int page, int size) {
-        List<AuditLog> auditLogs = auditLogRepository.findAll().stream()
-                .filter(log -> status.equals(log.getStatus()))
-                .collect(Collectors.toList());
-        return createPageResponse(auditLogs, page, size);
+    public CursorPageResponse<AuditLogResponse> getSecurityEvents(String cursor, int size, boolean includeTotal) {
+        return findPage(AuditLogCriteria.builder().actions(SECURITY_ACTIONS).build(), cursor, size, false, includeTotal);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getFailedLoginAttempts(int page, int size) {
-        List<AuditLog> auditLogs = auditLogRepository.findByAction("LOGIN_FAILED");
-        return createPageResponse(auditLogs, page, size);
+    public CursorPageResponse<AuditLogResponse> searchAuditLogs(
+            String userId, String username, String action, String status,
+            String ipAddress, LocalDateTime startDate, LocalDateTime endDate, String text,
+            String cursor, int size, boolean includeTotal) {
+        AuditLogCriteria criteria = AuditLogCriteria.builder()
+                .userId(userId)
+                .username(username)
+                .actions(action != null ? List.of(action) : null)
+                .status(status)
+                .ipAddress(ipAddress)
+                .startDate(startDate)
+                .endDate(endDate)
+                .text(text != null && !text.isBlank() ? text : null)
+                .build();
+        return findPage(criteria, cursor, size, false, includeTotal);
     }
 
+    // ==================== STATISTICS ====================
+    // Served from the hourly rollups, so ranges are widened to whole hours
+
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> getSecurityEvents(int page, int size) {
-        List<String> securityActions = List.of(
-                "ACCOUNT_LOCKED", "ACCOUNT_UNLOCKED", "PASSWORD_CHANGE",
-                "PASSWORD_RESET", "MFA_ENABLED", "MFA_DISABLED"
-        );
-
-        List<AuditLog> auditLogs = auditLogRepository.findAll().stream()
-                .filter(log -> securityActions.contains(log.getAction()))
+    public List<AuditActionStatsResponse> getStatsByAction(LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDateTime end = endDate != null ? endDate : LocalDateTime.now();
+        LocalDateTime start = (startDate != null ? startDate : end.minusDays(1)).truncatedTo(ChronoUnit.HOURS);
+
+        return auditActionRollupRepository.sumByActionAndStatus(start, end).stream()
+                .map(row -> AuditActionStatsResponse.builder()
+                        .action((String) row[0])
+                        .status(((String) row[1]).isEmpty() ? null : (String) row[1])
+                        .count(((Number) row[2]).longValue())
+                        .build())
                 .collect(Collectors.toList());
-
-        return createPageResponse(auditLogs, page, size);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<AuditLogResponse> searchAuditLogs(
-            String userId, String username, String action, String status,
-            String ipAddress, LocalDateTime startDate, LocalDateTime endDate,
-            int page, int size) {
-
-        List<AuditLog> auditLogs = auditLogRepository.findAll().stream()
-                .filter(log -> userId == null || userId.equals(log.getUserId()))
-                .filter(log -> username == null || username.equals(log.getUsername()))
-                .filter(log -> action == null || action.equals(log.getAction()))
-                .filter(log -> status == null || status.equals(log.getStatus()))
-                .filter(log -> ipAddress == null || ipAddress.equals(log.getIpAddress()))
-                .filter(log -> startDate == null || !log.getTimestamp().isBefore(startDate))
-                .filter(log -> endDate == null || !log.getTimestamp().isAfter(endDate))
+    public List<AuditUserStatsResponse> getStatsByUser(LocalDateTime startDate, LocalDateTime endDate, int limit) {
+        LocalDateTime end = endDate != null ? endDate : LocalDateTime.now();
+        LocalDateTime start = (startDate != null ? startDate : end.minusDays(1)).truncatedTo(ChronoUnit.HOURS);
+        int topN = Math.max(1, Math.min(limit, ApiConstants.MAX_PAGE_SIZE));
+
+        return auditUserRollupRepository.sumByUser(start, end, PageRequest.of(0, topN)).stream()
+                .map(row -> AuditUserStatsResponse.builder()
+                        .userId((String) row[0])
+                        .username((String) row[1])
+                        .count(((Number) row[2]).longValue())
+                        .build())
                 .collect(Collectors.toList());
-
-        return createPageResponse(auditLogs, page, size);
     }
 
-    // ==================== HELPER METHODS ====================
+    // ==================== LIVE STREAM ====================
 
-    private AuditLogResponse mapToResponse(AuditLog auditLog) {
-        return AuditLogResponse.builder()
-                .id(auditLog.getId())
-                .userId(auditLog.getUserId())
-                .username(auditLog.getUsername())
-                .action(auditLog.getAction())
-                .resourceType(auditLog.getResourceType())
-                .resourceId(auditLog.getResourceId())
-                .ipAddress(auditLog.getIpAddress())
-                .userAgent(auditLog.getUserAgent())
-                .status(auditLog.getStatus())
-                .errorMessage(auditLog.getErrorMessage())
-                .details(auditLog.getDetails())
-                .timestamp(auditLog.getTimestamp())
-                .build();
+    public SseEmitter streamAuditLogs(String action, String status, String userId) {
+        return auditLogBroadcaster.subscribe(action, status, userId);
     }
 
-    private PageResponse<AuditLogResponse> mapToPageResponse(Page<AuditLog> page) {
-        List<AuditLogResponse> content = page.getContent().stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    // ==================== HELPER METHODS ====================
 
-        return PageResponse.<AuditLogResponse>builder()
-                .content(content)
-                .pageNumber(page.getNumber())
-                .pageSize(page.getSize())
-                .totalElements(page.getTotalElements())
-                .totalPages(page.getTotalPages())
-                .isLast(page.isLast())
+    /**
+     * Keyset page over (timestamp, id): fetches one row more than requested to know whether
+     * another page exists, so the cost is the same on the first page and the ten-thousandth.
+     * Archived entries are merged in; the archive is only read when its rows could make the page.
+     */
+    private CursorPageResponse<AuditLogResponse> findPage(AuditLogCriteria criteria, String cursor, int size,
+                                                          boolean ascending, boolean includeTotal) {
+        int pageSize = Math.max(1, Math.min(size, ApiConstants.MAX_PAGE_SIZE));
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direction, "timestamp").and(Sort.by(direction, "id"));
+
+        Specification<AuditLog> filter = AuditLogSpecifications.matching(criteria);
+        Specification<AuditLog> specification = filter;
+        LocalDateTime afterTimestamp = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterTimestamp = LocalDateTime.parse(position[0]);
+            afterId = position[1];
+            specification = filter.and(AuditLogSpecifications.after(afterTimestamp, afterId, ascending));
+        }
+
+        List<AuditLog> rows = auditLogRepository.findBy(specification,
+                query -> query.sortBy(sort).limit(pageSize + 1).all());
+
+        if (!auditArchive.isEmpty()) {
+            // With a full page from the database, only archived rows sorting before its last row matter
+            LocalDateTime bound = rows.size() > pageSize ? rows.get(pageSize).getTimestamp() : null;
+            List<AuditLog> archived = auditArchive.search(criteria, afterTimestamp, afterId, ascending,
+                    pageSize + 1, bound);
+            if (!archived.isEmpty()) {
+                Comparator<AuditLog> order = Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId);
+                List<AuditLog> merged = new ArrayList<>(rows);
+                merged.addAll(archived);
+                merged.sort(ascending ? order : order.reversed());
+                rows = merged.subList(0, Math.min(merged.size(), pageSize + 1));
+            }
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<AuditLog> page = hasMore ? rows.subList(0, pageSize) : rows;
+        AuditLog last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<AuditLogResponse>builder()
+                .content(page.stream().map(AuditLogResponse::from).collect(Collectors.toList()))
+                .pageSize(pageSize)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? encodeCursor(last) : null)
+                .totalElements(includeTotal ? auditLogRepository.count(filter) + auditArchive.count(criteria) : null)
                 .build();
     }
 
-    private PageResponse<AuditLogResponse> createPageResponse(List<AuditLog> auditLogs, int page, int size) {
-        int start = page * size;
-        int end = Math.min(start + size, auditLogs.size());
-
-        List<AuditLogResponse> content = auditLogs.subList(start, end).stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    private static String encodeCursor(AuditLog auditLog) {
+        String position = auditLog.getTimestamp() + CURSOR_SEPARATOR + auditLog.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
 
-        return PageResponse.<AuditLogResponse>builder()
-                .content(content)
-                .pageNumber(page)
-                .pageSize(size)
-                .totalElements((long) auditLogs.size())
-                .totalPages((int) Math.ceil((double) auditLogs.size() / size))
-                .isLast(end >= auditLogs.size())
-                .build();
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException();
+            }
+            String timestamp = position.substring(0, separator);
+            LocalDateTime.parse(timestamp);
+            return new String[]{timestamp, position.substring(separator + 1)};
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException();
+        }
     }
 }
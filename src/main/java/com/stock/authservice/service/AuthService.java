@@ -8,13 +8,17 @@ import com.stock.authservice.entity.RefreshToken;
 import com.stock.authservice.entity.User;
 import com.stock.authservice.entity.UserSession;
 import com.stock.authservice.event.AuthEventPublisher;
+import com.stock.authservice.event.dto.SessionCreatedEvent;
 import com.stock.authservice.event.dto.UserLoginEvent;
 import com.stock.authservice.event.dto.UserLogoutEvent;
 import com.stock.authservice.exception.*;
 import com.stock.authservice.repository.EmailVerificationTokenRepository;
 import com.stock.authservice.repository.UserRepository;
+import com.stock.authservice.scheduler.ExpiryTracker;
 import com.stock.authservice.security.CustomUserDetails;
 import com.stock.authservice.security.JwtTokenProvider;
+import com.stock.authservice.security.PrincipalCache;
+import com.stock.authservice.util.HashUtil;
 import com.stock.authservice.util.IpAddressUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -46,6 +50,9 @@ public class AuthService {
     private final UserService userService;
     private final EmailService emailService;
     private final EmailVerificationTokenRepository verificationTokenRepository;
+    private final ExpiryTracker expiryTracker;
+    private final StatisticsService statisticsService;
+    private final PrincipalCache principalCache;
     // ==================== LOGIN ====================
 
     @Transactional
@@ -110,7 +117,8 @@ public class AuthService {
             String accessToken = jwtTokenProvider.generateAccessToken(authentication);
 
             log.debug("Creating refresh token...");
-            RefreshToken refreshToken = tokenService.createRefreshToken(user, ipAddress, userAgent);
+            RefreshToken refreshToken = tokenService.createRefreshToken(
+                    user, request.getDeviceId(), request.getDeviceType(), ipAddress, userAgent);
 
             // Create session
             log.debug("Creating user session...");
@@ -124,17 +132,7 @@ public class AuthService {
             auditLogService.logSuccessfulLogin(user.getId(), user.getUsername(), ipAddress);
 
             // Publish event
-            authEventPublisher.publishUserLogin(UserLoginEvent.builder()
-                    .userId(user.getId())
-                    .username(user.getUsername())
-                    .email(user.getEmail())
-                    .ipAddress(ipAddress)
-                    .userAgent(userAgent)
-                    .deviceType(request.getDeviceType())
-                    .loginTime(LocalDateTime.now())
-                    .mfaUsed(false)
-                    .sessionId(session.getId())
-                    .build());
+            publishLogin(user, session, request.getDeviceType(), false);
 
             log.info("User logged in successfully: {}", user.getUsername());
 
@@ -195,6 +193,8 @@ public class AuthService {
         userService.assignDefaultRole(user);
 
         user = userRepository.save(user);
+        statisticsService.adjustTotalUsers(1);
+        statisticsService.adjustActiveUsers(1);
 
         // Create email verification token
         String token = UUID.randomUUID().toString();
@@ -207,6 +207,7 @@ public class AuthService {
                 .build();
 
         verificationTokenRepository.save(verificationToken);
+        expiryTracker.trackVerificationToken(verificationToken.getId(), verificationToken.getExpiresAt());
 
         // Send verification email
         try {
@@ -226,32 +227,31 @@ public class AuthService {
 
     // ==================== REFRESH TOKEN ====================
 
-    @Transactional
+    @Transactional(noRollbackFor = TokenInvalidException.class)
     public TokenResponse refreshAccessToken(RefreshTokenRequest request, HttpServletRequest httpRequest) {
         log.info("Refresh token request");
 
         String ipAddress = IpAddressUtil.getClientIpAddress(httpRequest);
 
-        // Validate refresh token
-        RefreshToken refreshToken = tokenService.validateRefreshToken(request.getRefreshToken());
+        // One statement validates and rotates the device's slot; reuse of a rotated token revokes its family
+        RefreshToken newRefreshToken = tokenService.rotateRefreshToken(
+                request.getRefreshToken(), ipAddress, httpRequest.getHeader("User-Agent"));
 
-        User user = refreshToken.getUser();
+        // Authorities come from the principal cache, not the User -> roles -> permissions graph
+        CustomUserDetails userDetails = principalCache.get(newRefreshToken.getUserId());
+        if (userDetails == null) {
+            // Not a TokenInvalidException: that one commits, and would keep a rotation the client never sees
+            throw new UnauthorizedException("Invalid refresh token");
+        }
 
         // Generate new access token
-        CustomUserDetails userDetails = CustomUserDetails.build(user);
         Authentication authentication = new UsernamePasswordAuthenticationToken(
                 userDetails, null, userDetails.getAuthorities()
         );
 
         String newAccessToken = jwtTokenProvider.generateAccessToken(authentication);
 
-        // Optionally rotate refresh token
-        tokenService.revokeRefreshToken(request.getRefreshToken());
-        RefreshToken newRefreshToken = tokenService.createRefreshToken(
-                user, ipAddress, httpRequest.getHeader("User-Agent")
-        );
-
-        log.info("Access token refreshed for user: {}", user.getUsername());
+        log.info("Access token refreshed for user: {}", userDetails.getUsername());
 
         return TokenResponse.builder()
                 .accessToken(newAccessToken)
@@ -318,7 +318,8 @@ public class AuthService {
         );
 
         String accessToken = jwtTokenProvider.generateAccessToken(authentication);
-        RefreshToken refreshToken = tokenService.createRefreshToken(user, ipAddress, userAgent);
+        RefreshToken refreshToken = tokenService.createRefreshToken(
+                user, request.getDeviceId(), request.getDeviceType(), ipAddress, userAgent);
 
         // Create session
         UserSession session = sessionService.createSession(user, accessToken, ipAddress, userAgent, request.getDeviceType());
@@ -331,17 +332,7 @@ public class AuthService {
         auditLogService.logSuccessfulLogin(user.getId(), user.getUsername(), ipAddress);
 
         // Publish event
-        authEventPublisher.publishUserLogin(UserLoginEvent.builder()
-                .userId(user.getId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .ipAddress(ipAddress)
-                .userAgent(userAgent)
-                .deviceType(request.getDeviceType())
-                .loginTime(LocalDateTime.now())
-                .mfaUsed(true)
-                .sessionId(session.getId())
-                .build());
+        publishLogin(user, session, request.getDeviceType(), true);
 
         log.info("MFA verification successful for user: {}", user.getUsername());
 
@@ -404,7 +395,7 @@ public class AuthService {
         log.info("Email verification request with token");
 
         // Find token
-        EmailVerificationToken verificationToken = verificationTokenRepository.findByToken(token)
+        EmailVerificationToken verificationToken = verificationTokenRepository.findByTokenHash(HashUtil.sha256Bytes(token))
                 .orElseThrow(() -> new ResourceNotFoundException("Verification token not found or expired"));
 
         // Check if already used
@@ -428,6 +419,7 @@ public class AuthService {
         // Mark token as used
         verificationToken.markAsVerified();
         verificationTokenRepository.save(verificationToken);
+        expiryTracker.untrackVerificationToken(verificationToken.getId());
 
         // Send welcome email
         try {
@@ -444,6 +436,32 @@ public class AuthService {
 
     // ==================== HELPER METHODS ====================
 
+    private void publishLogin(User user, UserSession session, String deviceType, boolean mfaUsed) {
+        LocalDateTime now = LocalDateTime.now();
+        authEventPublisher.publishUserLogin(
+                UserLoginEvent.builder()
+                        .userId(user.getId())
+                        .username(user.getUsername())
+                        .email(user.getEmail())
+                        .ipAddress(session.getIpAddress())
+                        .userAgent(session.getUserAgent())
+                        .deviceType(deviceType)
+                        .loginTime(now)
+                        .mfaUsed(mfaUsed)
+                        .sessionId(session.getId())
+                        .build(),
+                SessionCreatedEvent.builder()
+                        .sessionId(session.getId())
+                        .userId(user.getId())
+                        .username(user.getUsername())
+                        .ipAddress(session.getIpAddress())
+                        .userAgent(session.getUserAgent())
+                        .deviceType(deviceType)
+                        .createdAt(now)
+                        .expiresAt(session.getExpiresAt())
+                        .build());
+    }
+
     private void handleFailedLogin(User user, String ipAddress, String userAgent) {
         if (user == null) {
             auditLogService.logFailedLogin("unknown", ipAddress, "Invalid username or password");
@@ -453,6 +471,9 @@ public class AuthService {
         user.incrementFailedAttempts();
 
         if (user.getFailedLoginAttempts() >= SecurityConstants.MAX_FAILED_LOGIN_ATTEMPTS) {
+            if (!user.getIsLocked()) {
+                statisticsService.adjustLockedUsers(1);
+            }
             user.lock(SecurityConstants.ACCOUNT_LOCK_DURATION_MINUTES);
             log.warn("Account locked for user: {}", user.getUsername());
 
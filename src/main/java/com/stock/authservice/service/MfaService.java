@@ -22,6 +22,7 @@ import java.util.Base64;
 public class MfaService {
 
     private final UserRepository userRepository;
+    private final StatisticsService statisticsService;
     private static final String ALGORITHM = "HmacSHA1";
     private static final int CODE_LENGTH = 6;
     private static final int TIME_STEP = 30; // 30 seconds
@@ -74,6 +75,7 @@ public class MfaService {
         user.setMfaEnabled(true);
 
         userRepository.save(user);
+        statisticsService.adjustMfaEnabledUsers(1);
 
         log.info("MFA enabled successfully for user: {}", userId);
         return secret;
@@ -100,6 +102,7 @@ public class MfaService {
         user.setMfaEnabled(false);
 
         userRepository.save(user);
+        statisticsService.adjustMfaEnabledUsers(-1);
 
         log.info("MFA disabled successfully for user: {}", userId);
     }
@@ -8,6 +8,7 @@ import com.stock.authservice.entity.Permission;
 import com.stock.authservice.exception.DuplicateResourceException;
 import com.stock.authservice.exception.ResourceNotFoundException;
 import com.stock.authservice.repository.PermissionRepository;
+import com.stock.authservice.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -26,6 +27,7 @@ import java.util.stream.Collectors;
 public class PermissionService {
 
     private final PermissionRepository permissionRepository;
+    private final PrincipalCache principalCache;
 
     // ==================== CRUD OPERATIONS ====================
 
@@ -147,6 +149,7 @@ public class PermissionService {
         permission.setResourceType(request.getResourceType());
 
         permission = permissionRepository.save(permission);
+        principalCache.evictAll();
 
         log.info("Permission updated successfully: {}", permission.getName());
         return ApiResponse.success("Permission updated successfully", mapToPermissionResponse(permission));
@@ -170,6 +173,7 @@ public class PermissionService {
         }
 
         permissionRepository.delete(permission);
+        principalCache.evictAll();
 
         log.info("Permission deleted successfully: {}", permission.getName());
         return ApiResponse.success("Permission deleted successfully", null);
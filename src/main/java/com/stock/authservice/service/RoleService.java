@@ -12,6 +12,7 @@ import com.stock.authservice.exception.DuplicateResourceException;
 import com.stock.authservice.exception.ResourceNotFoundException;
 import com.stock.authservice.repository.PermissionRepository;
 import com.stock.authservice.repository.RoleRepository;
+import com.stock.authservice.security.PrincipalCache;
 import com.stock.authservice.security.SecurityContextHelper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +34,7 @@ import java.util.stream.Collectors;
 public class RoleService {
 
     private final RoleRepository roleRepository;
+    private final PrincipalCache principalCache;
     private final PermissionRepository permissionRepository;
     private final SecurityContextHelper securityContextHelper;
 
@@ -161,6 +163,7 @@ public class RoleService {
         }
 
         role = roleRepository.save(role);
+        principalCache.evictAll();
 
         log.info("Role updated successfully: {}", role.getName());
         return ApiResponse.success("Role updated successfully", mapToRoleResponse(role));
@@ -184,6 +187,7 @@ public class RoleService {
         }
 
         roleRepository.delete(role);
+        principalCache.evictAll();
 
         log.info("Role deleted successfully: {}", role.getName());
         return ApiResponse.success("Role deleted successfully", null);
@@ -208,6 +212,7 @@ public class RoleService {
 
         role.getPermissions().addAll(permissions);
         role = roleRepository.save(role);
+        principalCache.evictAll();
 
         log.info("Permissions assigned successfully to role: {}", role.getName());
         return ApiResponse.success("Permissions assigned successfully", mapToRoleResponse(role));
@@ -225,6 +230,7 @@ public class RoleService {
 
         role.getPermissions().remove(permission);
         role = roleRepository.save(role);
+        principalCache.evictAll();
 
         log.info("Permission removed successfully from role: {}", role.getName());
         return ApiResponse.success("Permission removed successfully", mapToRoleResponse(role));
@@ -253,6 +259,7 @@ public class RoleService {
 
         role.setIsActive(true);
         roleRepository.save(role);
+        principalCache.evictAll();
 
         log.info("Role activated successfully: {}", role.getName());
         return ApiResponse.success("Role activated successfully", null);
@@ -272,6 +279,7 @@ public class RoleService {
 
         role.setIsActive(false);
         roleRepository.save(role);
+        principalCache.evictAll();
 
         log.info("Role deactivated successfully: {}", role.getName());
         return ApiResponse.success("Role deactivated successfully", null);
@@ -5,10 +5,12 @@ import com.stock.authservice.dto.response.SessionResponse;
 import com.stock.authservice.entity.User;
 import com.stock.authservice.entity.UserSession;
 import com.stock.authservice.event.AuthEventPublisher;
-import com.stock.authservice.event.dto.SessionCreatedEvent;
+import com.stock.authservice.event.dto.SessionBatchTerminatedEvent;
 import com.stock.authservice.event.dto.SessionTerminatedEvent;
 import com.stock.authservice.exception.ResourceNotFoundException;
 import com.stock.authservice.repository.UserSessionRepository;
+import com.stock.authservice.scheduler.ExpiryTracker;
+import com.stock.authservice.store.SessionStore;
 import com.stock.authservice.util.DateTimeUtil;
 import com.stock.authservice.util.RandomTokenGenerator;
 import lombok.RequiredArgsConstructor;
@@ -17,7 +19,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,28 +31,18 @@ import java.util.stream.Collectors;
 public class SessionService {
 
     private final UserSessionRepository sessionRepository;
+    private final SessionStore sessionStore;
     private final AuthEventPublisher authEventPublisher;
+    private final ExpiryTracker expiryTracker;
+    private final StatisticsService statisticsService;
 
     // ==================== CREATE SESSION ====================
+    // The caller publishes the session together with the login (see AuthEventPublisher#publishUserLogin)
 
     @Transactional
     public UserSession createSession(User user, String accessToken, String ipAddress, String userAgent, String deviceType) {
         log.info("Creating session for user: {}", user.getUsername());
 
-        // Check max concurrent sessions
-        List<UserSession> activeSessions = sessionRepository.findByUserIdAndIsActive(user.getId(), true);
-        if (activeSessions.size() >= SecurityConstants.MAX_CONCURRENT_SESSIONS) {
-            // Terminate oldest session
-            UserSession oldestSession = activeSessions.stream()
-                    .min((s1, s2) -> s1.getCreatedAt().compareTo(s2.getCreatedAt()))
-                    .orElse(null);
-
-            if (oldestSession != null) {
-                log.info("Max concurrent sessions reached. Terminating oldest session: {}", oldestSession.getId());
-                terminateSession(oldestSession.getId(), "MAX_SESSIONS_EXCEEDED");
-            }
-        }
-
         String sessionToken = RandomTokenGenerator.generateSessionToken();
 
         UserSession session = UserSession.builder()
@@ -61,19 +56,17 @@ public class SessionService {
                 .expiresAt(DateTimeUtil.addMinutes(LocalDateTime.now(), SecurityConstants.SESSION_INACTIVITY_TIMEOUT_MINUTES))
                 .build();
 
-        session = sessionRepository.save(session);
-
-        // Publish event
-        authEventPublisher.publishSessionCreated(SessionCreatedEvent.builder()
-                .sessionId(session.getId())
-                .userId(user.getId())
-                .username(user.getUsername())
-                .ipAddress(ipAddress)
-                .userAgent(userAgent)
-                .deviceType(deviceType)
-                .createdAt(LocalDateTime.now())
-                .expiresAt(session.getExpiresAt())
-                .build());
+        // Insert and cap enforcement are atomic per user; the oldest sessions beyond the limit are terminated
+        List<String> evictedSessionIds = sessionStore.create(session, SecurityConstants.MAX_CONCURRENT_SESSIONS);
+        expiryTracker.trackSession(session.getId(), session.getExpiresAt());
+        statisticsService.adjustActiveSessions(1 - evictedSessionIds.size());
+        if (!evictedSessionIds.isEmpty()) {
+            evictedSessionIds.forEach(expiryTracker::untrackSession);
+            log.info("Max concurrent sessions reached. Terminated oldest sessions: {}", evictedSessionIds);
+            publishSessionsTerminated(evictedSessionIds,
+                    Collections.nCopies(evictedSessionIds.size(), user.getId()),
+                    "MAX_SESSIONS_EXCEEDED", LocalDateTime.now());
+        }
 
         log.info("Session created successfully for user: {} with session ID: {}", user.getUsername(), session.getId());
         return session;
@@ -85,29 +78,25 @@ public class SessionService {
     public void updateSessionActivity(String sessionId) {
         log.debug("Updating session activity for session: {}", sessionId);
 
-        sessionRepository.findById(sessionId).ifPresent(session -> {
-            if (session.getIsActive() && !session.isExpired()) {
-                session.setLastActivity(LocalDateTime.now());
-                session.setExpiresAt(DateTimeUtil.addMinutes(LocalDateTime.now(),
-                        SecurityConstants.SESSION_INACTIVITY_TIMEOUT_MINUTES));
-                sessionRepository.save(session);
-                log.debug("Session activity updated for session: {}", sessionId);
-            } else {
-                log.warn("Attempted to update inactive or expired session: {}", sessionId);
-            }
-        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = DateTimeUtil.addMinutes(now, SecurityConstants.SESSION_INACTIVITY_TIMEOUT_MINUTES);
+        if (sessionStore.touch(sessionId, now, expiresAt)) {
+            expiryTracker.trackSession(sessionId, expiresAt);
+            log.debug("Session activity updated for session: {}", sessionId);
+        } else {
+            log.warn("Attempted to update inactive or expired session: {}", sessionId);
+        }
     }
 
     @Transactional
     public void updateSessionActivityByToken(String sessionToken) {
         log.debug("Updating session activity by token");
 
-        sessionRepository.findBySessionToken(sessionToken).ifPresent(session -> {
-            if (session.getIsActive() && !session.isExpired()) {
-                session.setLastActivity(LocalDateTime.now());
-                session.setExpiresAt(DateTimeUtil.addMinutes(LocalDateTime.now(),
-                        SecurityConstants.SESSION_INACTIVITY_TIMEOUT_MINUTES));
-                sessionRepository.save(session);
+        sessionStore.findByToken(sessionToken).ifPresent(session -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = DateTimeUtil.addMinutes(now, SecurityConstants.SESSION_INACTIVITY_TIMEOUT_MINUTES);
+            if (sessionStore.touch(session.getId(), now, expiresAt)) {
+                expiryTracker.trackSession(session.getId(), expiresAt);
                 log.debug("Session activity updated for session: {}", session.getId());
             }
         });
@@ -119,7 +108,7 @@ public class SessionService {
     public void terminateSession(String sessionId, String reason) {
         log.info("Terminating session: {} - Reason: {}", sessionId, reason);
 
-        UserSession session = sessionRepository.findById(sessionId)
+        UserSession session = sessionStore.findById(sessionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Session", "id", sessionId));
 
         if (!session.getIsActive()) {
@@ -127,8 +116,9 @@ public class SessionService {
             return;
         }
 
-        session.terminate(reason);
-        sessionRepository.save(session);
+        sessionStore.terminate(session, reason);
+        expiryTracker.untrackSession(sessionId);
+        statisticsService.adjustActiveSessions(-1);
 
         // Publish event
         authEventPublisher.publishSessionTerminated(SessionTerminatedEvent.builder()
@@ -146,20 +136,39 @@ public class SessionService {
     public void terminateSessionByToken(String sessionToken, String reason) {
         log.info("Terminating session by token - Reason: {}", reason);
 
-        sessionRepository.findBySessionToken(sessionToken).ifPresent(session -> {
+        sessionStore.findByToken(sessionToken).ifPresent(session -> {
             terminateSession(session.getId(), reason);
         });
     }
 
     @Transactional
-    public void terminateAllUserSessions(String userId, String reason) {
+    public int terminateAllUserSessions(String userId, String reason) {
         log.info("Terminating all sessions for user: {} - Reason: {}", userId, reason);
 
-        List<UserSession> activeSessions = sessionRepository.findByUserIdAndIsActive(userId, true);
+        int terminated = publishBulkTermination(sessionStore.terminateByUserId(userId, reason), reason);
+
+        log.info("Terminated {} active sessions for user: {}", terminated, userId);
+        return terminated;
+    }
+
+    @Transactional
+    public int terminateSessionsByIpAddress(String ipAddress, String reason) {
+        log.info("Terminating all sessions from IP: {} - Reason: {}", ipAddress, reason);
+
+        int terminated = publishBulkTermination(sessionStore.terminateByIpAddress(ipAddress, reason), reason);
+
+        log.info("Terminated {} active sessions from IP: {}", terminated, ipAddress);
+        return terminated;
+    }
+
+    @Transactional
+    public int terminateSessionsByDeviceType(String deviceType, String reason) {
+        log.info("Terminating all sessions for device type: {} - Reason: {}", deviceType, reason);
 
-        activeSessions.forEach(session -> terminateSession(session.getId(), reason));
+        int terminated = publishBulkTermination(sessionStore.terminateByDeviceType(deviceType, reason), reason);
 
-        log.info("Terminated {} active sessions for user: {}", activeSessions.size(), userId);
+        log.info("Terminated {} active sessions for device type: {}", terminated, deviceType);
+        return terminated;
     }
 
     @Transactional
@@ -173,7 +182,7 @@ public class SessionService {
     public SessionResponse getSessionById(String sessionId) {
         log.debug("Getting session by ID: {}", sessionId);
 
-        UserSession session = sessionRepository.findById(sessionId)
+        UserSession session = sessionStore.findById(sessionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Session", "id", sessionId));
 
         return mapToSessionResponse(session);
@@ -183,7 +192,7 @@ public class SessionService {
     public SessionResponse getSessionByToken(String sessionToken) {
         log.debug("Getting session by token");
 
-        UserSession session = sessionRepository.findBySessionToken(sessionToken)
+        UserSession session = sessionStore.findByToken(sessionToken)
                 .orElseThrow(() -> new ResourceNotFoundException("Session", "token", "***"));
 
         return mapToSessionResponse(session);
@@ -193,7 +202,7 @@ public class SessionService {
     public List<SessionResponse> getUserSessions(String userId) {
         log.debug("Getting all sessions for user: {}", userId);
 
-        List<UserSession> sessions = sessionRepository.findByUserId(userId);
+        List<UserSession> sessions = sessionStore.findAllByUserId(userId);
 
         return sessions.stream()
                 .map(this::mapToSessionResponse)
@@ -204,7 +213,7 @@ public class SessionService {
     public List<SessionResponse> getActiveSessions(String userId) {
         log.debug("Getting active sessions for user: {}", userId);
 
-        List<UserSession> sessions = sessionRepository.findActiveSessionsByUserId(userId, LocalDateTime.now());
+        List<UserSession> sessions = sessionStore.findActiveByUserId(userId);
 
         return sessions.stream()
                 .map(this::mapToSessionResponse)
@@ -218,7 +227,7 @@ public class SessionService {
         List<UserSession> sessions = sessionRepository.findByUserIdAndIsActive(null, true);
 
         return sessions.stream()
-                .filter(session -> !session.isExpired())
+                .filter(sessionStore::isValid)
                 .map(this::mapToSessionResponse)
                 .collect(Collectors.toList());
     }
@@ -227,36 +236,45 @@ public class SessionService {
 
     @Transactional(readOnly = true)
     public boolean isSessionValid(String sessionId) {
-        return sessionRepository.findById(sessionId)
-                .map(UserSession::isValid)
+        return sessionStore.findById(sessionId)
+                .map(sessionStore::isValid)
                 .orElse(false);
     }
 
     @Transactional(readOnly = true)
     public boolean isSessionOwner(String sessionId, String userId) {
-        return sessionRepository.findById(sessionId)
+        return sessionStore.findById(sessionId)
                 .map(session -> session.getUserId().equals(userId))
                 .orElse(false);
     }
 
     // ==================== SESSION CLEANUP ====================
 
+    /**
+     * Expires at most {@code batchSize} sessions in one statement and publishes a single
+     * batched termination event for them. Callers loop until fewer than batchSize rows come back.
+     */
     @Transactional
-    public void cleanupExpiredSessions() {
-        log.info("Cleaning up expired sessions");
-
+    public int expireSessionsBatch(int batchSize) {
         LocalDateTime now = LocalDateTime.now();
-        List<UserSession> expiredSessions = sessionRepository.findByUserIdAndIsActive(null, true).stream()
-                .filter(session -> session.getExpiresAt().isBefore(now))
-                .collect(Collectors.toList());
+        Map<String, String> expired = sessionStore.expireBatch(now, batchSize);
 
-        expiredSessions.forEach(session -> {
-            session.terminate("SESSION_EXPIRED");
-            sessionRepository.save(session);
-            log.debug("Expired session terminated: {}", session.getId());
-        });
+        if (expired.isEmpty()) {
+            return 0;
+        }
 
-        log.info("Cleaned up {} expired sessions", expiredSessions.size());
+        expired.keySet().forEach(expiryTracker::untrackSession);
+        statisticsService.adjustActiveSessions(-expired.size());
+        publishSessionsTerminated(new ArrayList<>(expired.keySet()), new ArrayList<>(expired.values()),
+                "SESSION_EXPIRED", now);
+
+        log.debug("Expired {} sessions", expired.size());
+        return expired.size();
+    }
+
+    @Transactional
+    public int purgeInactiveSessionsBatch(LocalDateTime cutoffDate, int batchSize) {
+        return sessionRepository.deleteInactiveSessionsBatch(cutoffDate, batchSize);
     }
 
     @Transactional
@@ -271,16 +289,13 @@ public class SessionService {
 
     // ==================== SESSION STATISTICS ====================
 
-    @Transactional(readOnly = true)
     public long countActiveSessions() {
-        return sessionRepository.findByUserIdAndIsActive(null, true).stream()
-                .filter(session -> !session.isExpired())
-                .count();
+        return statisticsService.getActiveSessions();
     }
 
     @Transactional(readOnly = true)
     public long countUserActiveSessions(String userId) {
-        return sessionRepository.findActiveSessionsByUserId(userId, LocalDateTime.now()).size();
+        return sessionStore.findActiveByUserId(userId).size();
     }
 
     @Transactional(readOnly = true)
@@ -290,10 +305,30 @@ public class SessionService {
 
     // ==================== HELPER METHODS ====================
 
+    private int publishBulkTermination(Map<String, String> terminated, String reason) {
+        if (!terminated.isEmpty()) {
+            terminated.keySet().forEach(expiryTracker::untrackSession);
+            statisticsService.adjustActiveSessions(-terminated.size());
+            publishSessionsTerminated(new ArrayList<>(terminated.keySet()), new ArrayList<>(terminated.values()),
+                    reason, LocalDateTime.now());
+        }
+        return terminated.size();
+    }
+
+    private void publishSessionsTerminated(List<String> sessionIds, List<String> userIds,
+                                           String reason, LocalDateTime terminatedAt) {
+        authEventPublisher.publishSessionsTerminated(SessionBatchTerminatedEvent.builder()
+                .sessionIds(sessionIds)
+                .userIds(userIds)
+                .count(sessionIds.size())
+                .terminatedAt(terminatedAt)
+                .reason(reason)
+                .build());
+    }
+
     private SessionResponse mapToSessionResponse(UserSession session) {
         return SessionResponse.builder()
                 .id(session.getId())
-                .sessionToken(session.getSessionToken())
                 .ipAddress(session.getIpAddress())
                 .userAgent(session.getUserAgent())
                 .deviceType(session.getDeviceType())
@@ -0,0 +1,137 @@
+package com.stock.authservice.service;
+
+import com.stock.authservice.dto.response.StatisticsResponse;
+import com.stock.authservice.repository.PermissionRepository;
+import com.stock.authservice.repository.RoleRepository;
+import com.stock.authservice.repository.UserRepository;
+import com.stock.authservice.store.SessionStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory user and session gauges. Services report every state transition as a delta
+ * (applied after their transaction commits); a scheduled job reconciles the counters against
+ * the DB to correct drift from other nodes or missed transitions. Reads never touch the DB.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatisticsService {
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final SessionStore sessionStore;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong totalUsers = new AtomicLong();
+    private final AtomicLong activeUsers = new AtomicLong();
+    private final AtomicLong lockedUsers = new AtomicLong();
+    private final AtomicLong mfaEnabledUsers = new AtomicLong();
+    private final AtomicLong activeSessions = new AtomicLong();
+    private final AtomicLong totalRoles = new AtomicLong();
+    private final AtomicLong totalPermissions = new AtomicLong();
+
+    @PostConstruct
+    public void registerGauges() {
+        Gauge.builder("auth.users.total", totalUsers, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("auth.users.active", activeUsers, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("auth.users.locked", lockedUsers, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("auth.users.mfa_enabled", mfaEnabledUsers, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("auth.sessions.active", activeSessions, AtomicLong::get).register(meterRegistry);
+    }
+
+    // ==================== STATE TRANSITIONS ====================
+
+    public void adjustTotalUsers(long delta) {
+        apply(totalUsers, delta);
+    }
+
+    public void adjustActiveUsers(long delta) {
+        apply(activeUsers, delta);
+    }
+
+    public void adjustLockedUsers(long delta) {
+        apply(lockedUsers, delta);
+    }
+
+    public void adjustMfaEnabledUsers(long delta) {
+        apply(mfaEnabledUsers, delta);
+    }
+
+    public void adjustActiveSessions(long delta) {
+        apply(activeSessions, delta);
+    }
+
+    // ==================== READ ====================
+
+    public long getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public StatisticsResponse getStatistics() {
+        return StatisticsResponse.builder()
+                .totalUsers(totalUsers.get())
+                .activeUsers(activeUsers.get())
+                .lockedAccounts(lockedUsers.get())
+                .mfaEnabledUsers(mfaEnabledUsers.get())
+                .totalRoles(totalRoles.get())
+                .totalPermissions(totalPermissions.get())
+                .activeSessionsCount(activeSessions.get())
+                .build();
+    }
+
+    // ==================== RECONCILIATION ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${statistics.reconcile-interval-ms:300000}",
+            initialDelayString = "${statistics.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        try {
+            totalUsers.set(userRepository.count());
+            activeUsers.set(userRepository.countActiveUsers());
+            lockedUsers.set(userRepository.countLockedUsers());
+            mfaEnabledUsers.set(userRepository.countMfaEnabledUsers());
+            activeSessions.set(sessionStore.countActive(LocalDateTime.now()));
+            totalRoles.set(roleRepository.count());
+            totalPermissions.set(permissionRepository.count());
+            log.debug("Statistics reconciled: {} users, {} active sessions", totalUsers.get(), activeSessions.get());
+        } catch (Exception e) {
+            log.error("Failed to reconcile statistics", e);
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void apply(AtomicLong counter, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.addAndGet(delta);
+                }
+            });
+        } else {
+            counter.addAndGet(delta);
+        }
+    }
+}
@@ -7,48 +7,125 @@ import com.stock.authservice.exception.TokenInvalidException;
 import com.stock.authservice.repository.RefreshTokenRepository;
 import com.stock.authservice.security.JwtTokenProvider;
 import com.stock.authservice.util.DateTimeUtil;
+import com.stock.authservice.util.HashUtil;
 import com.stock.authservice.util.RandomTokenGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
-
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Refresh tokens live in one slot per (user, device). Login starts a new family in the slot,
+ * refresh rotates the slot in place, and presenting an already rotated token revokes the family.
+ * A token is {@code <slot id>.<secret>}, so every lookup goes by primary key and the digests
+ * need no index. A token naming a slot whose live digest it doesn't match was rotated away,
+ * however far back; the one exception is the immediate predecessor within a short grace
+ * period, which is what two concurrent refreshes from the same client look like.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TokenService {
 
+    private static final int REFRESH_TOKEN_VALIDITY_DAYS = 7;
+    private static final int ROTATION_GRACE_SECONDS = 30;
+
     private final RefreshTokenRepository refreshTokenRepository;
     private final JwtTokenProvider jwtTokenProvider;
 
     @Transactional
-    public RefreshToken createRefreshToken(User user, String ipAddress, String userAgent) {
+    public RefreshToken createRefreshToken(User user, String deviceId, String deviceType,
+                                           String ipAddress, String userAgent) {
         log.info("Creating refresh token for user: {}", user.getUsername());
 
-        // Invalidate old refresh tokens for this user (optional: keep last N tokens)
-        refreshTokenRepository.deleteByUserId(user.getId());
-
-        String token = RandomTokenGenerator.generateSecureToken(64);
-
+        LocalDateTime now = LocalDateTime.now();
+        String slotId = UUID.randomUUID().toString();
         RefreshToken refreshToken = RefreshToken.builder()
-                .token(token)
+                .id(slotId)
+                .token(newToken(slotId))
                 .userId(user.getId())
-                .expiresAt(DateTimeUtil.addDays(LocalDateTime.now(), 7))
+                .deviceId(resolveDeviceId(deviceId, userAgent))
+                .familyId(UUID.randomUUID().toString())
+                .generation(0)
+                .expiresAt(DateTimeUtil.addDays(now, REFRESH_TOKEN_VALIDITY_DAYS))
+                .deviceInfo(deviceType)
                 .ipAddress(ipAddress)
                 .userAgent(userAgent)
                 .isRevoked(false)
+                .createdAt(now)
                 .build();
+        refreshToken.hashToken();
+
+        // Other devices keep their slots; this device's slot is overwritten in place
+        refreshTokenRepository.upsertSlot(refreshToken.getId(), refreshToken.getUserId(), refreshToken.getDeviceId(),
+                refreshToken.getTokenHash(), refreshToken.getFamilyId(), refreshToken.getExpiresAt(),
+                deviceType, ipAddress, userAgent, now);
 
-        return refreshTokenRepository.save(refreshToken);
+        return refreshToken;
+    }
+
+    /**
+     * Validates {@code token} and replaces it in its slot with a fresh token in a single
+     * conditional UPDATE. The returned instance carries the new raw token and is not attached
+     * to the persistence context.
+     * <p>
+     * Only when that statement matches nothing is the slot read, to tell expired, revoked and
+     * rotated-away tokens apart. A token that was already rotated away revokes its whole family,
+     * since either the client or an attacker holds a copy; that revocation is committed even
+     * though the call fails. The token replaced last is refused without revoking anything for
+     * {@code ROTATION_GRACE_SECONDS} after its rotation.
+     */
+    @Transactional(noRollbackFor = TokenInvalidException.class)
+    public RefreshToken rotateRefreshToken(String token, String ipAddress, String userAgent) {
+        log.debug("Rotating refresh token");
+
+        String slotId = slotIdOf(token);
+        if (slotId == null) {
+            throw new TokenInvalidException("Invalid refresh token");
+        }
+
+        byte[] currentHash = HashUtil.sha256Bytes(token);
+        String newToken = newToken(slotId);
+        byte[] newHash = HashUtil.sha256Bytes(newToken);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = DateTimeUtil.addDays(now, REFRESH_TOKEN_VALIDITY_DAYS);
+
+        List<Object[]> rotated = refreshTokenRepository.rotateSlot(slotId, currentHash, newHash,
+                expiresAt, ipAddress, userAgent, now);
+        if (rotated.isEmpty()) {
+            throw rotationFailure(slotId, currentHash);
+        }
+
+        Object[] row = rotated.get(0);
+        return RefreshToken.builder()
+                .id(slotId)
+                .token(newToken)
+                .tokenHash(newHash)
+                .previousTokenHash(currentHash)
+                .rotatedAt(now)
+                .userId((String) row[0])
+                .deviceId((String) row[1])
+                .familyId((String) row[2])
+                .generation(((Number) row[3]).intValue())
+                .deviceInfo((String) row[4])
+                .expiresAt(expiresAt)
+                .ipAddress(ipAddress)
+                .userAgent(userAgent)
+                .isRevoked(false)
+                .build();
     }
 
     @Transactional(readOnly = true)
     public RefreshToken validateRefreshToken(String token) {
         log.debug("Validating refresh token");
 
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(token)
+        RefreshToken refreshToken = findLive(token)
                 .orElseThrow(() -> new TokenInvalidException("Invalid refresh token"));
 
         if (refreshToken.isExpired()) {
@@ -66,7 +143,7 @@ public class TokenService {
     public void revokeRefreshToken(String token) {
         log.debug("Revoking refresh token");
 
-        refreshTokenRepository.findByToken(token).ifPresent(refreshToken -> {
+        findLive(token).ifPresent(refreshToken -> {
             refreshToken.revoke();
             refreshTokenRepository.save(refreshToken);
         });
@@ -78,9 +155,89 @@ public class TokenService {
         refreshTokenRepository.revokeAllUserTokens(userId, LocalDateTime.now());
     }
 
+    /**
+     * Slots are rotated in place, so only abandoned devices ever expire; they are removed in
+     * bounded chunks rather than with one table-wide DELETE.
+     */
+    @Transactional
+    public int purgeExpiredTokensBatch(int batchSize) {
+        return refreshTokenRepository.deleteExpiredTokensBatch(LocalDateTime.now(), batchSize);
+    }
+
     @Transactional
     public void cleanupExpiredTokens() {
         log.info("Cleaning up expired refresh tokens");
         refreshTokenRepository.deleteExpiredTokens(LocalDateTime.now());
     }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Clients that don't send a device id get one derived from their user agent, so repeated
+     * logins from the same browser reuse one slot.
+     */
+    private String resolveDeviceId(String deviceId, String userAgent) {
+        if (deviceId != null && !deviceId.isBlank()) {
+            return deviceId.length() <= 64 ? deviceId : HashUtil.sha256(deviceId);
+        }
+        return HashUtil.sha256(userAgent != null ? userAgent : "unknown");
+    }
+
+    private static String newToken(String slotId) {
+        return slotId + "." + RandomTokenGenerator.generateSecureToken(64);
+    }
+
+    // The slot id ahead of the first '.'; the secret is URL-safe base64 and never contains one
+    private static String slotIdOf(String token) {
+        int separator = token != null ? token.indexOf('.') : -1;
+        return separator > 0 ? token.substring(0, separator) : null;
+    }
+
+    private Optional<RefreshToken> findLive(String token) {
+        String slotId = slotIdOf(token);
+        if (slotId == null) {
+            return Optional.empty();
+        }
+        byte[] tokenHash = HashUtil.sha256Bytes(token);
+        return refreshTokenRepository.findById(slotId)
+                .filter(slot -> MessageDigest.isEqual(slot.getTokenHash(), tokenHash));
+    }
+
+    private RuntimeException rotationFailure(String slotId, byte[] tokenHash) {
+        Optional<RefreshToken> found = refreshTokenRepository.findById(slotId);
+        if (found.isEmpty()) {
+            // Never issued, or the device has logged in again since
+            return new TokenInvalidException("Invalid refresh token");
+        }
+
+        RefreshToken slot = found.get();
+        if (MessageDigest.isEqual(slot.getTokenHash(), tokenHash)) {
+            if (slot.getIsRevoked()) {
+                return new TokenInvalidException("Refresh token has been revoked");
+            }
+            return new TokenExpiredException("Refresh token has expired");
+        }
+
+        if (isConcurrentRefresh(slot, tokenHash)) {
+            log.debug("Refresh token rotated concurrently for user: {}", slot.getUserId());
+            return new TokenInvalidException("Refresh token has already been rotated");
+        }
+        return reuseDetected(slot);
+    }
+
+    // The previous token, presented again right after it was rotated away: a lost race, not a replay
+    private static boolean isConcurrentRefresh(RefreshToken slot, byte[] tokenHash) {
+        return !slot.getIsRevoked()
+                && MessageDigest.isEqual(slot.getPreviousTokenHash(), tokenHash)
+                && slot.getRotatedAt() != null
+                && slot.getRotatedAt().isAfter(LocalDateTime.now().minusSeconds(ROTATION_GRACE_SECONDS));
+    }
+
+    // The slot id is only ever handed out inside its tokens, so any other secret for it is a copied one
+    private TokenInvalidException reuseDetected(RefreshToken slot) {
+        int revoked = refreshTokenRepository.revokeFamily(slot.getFamilyId(), LocalDateTime.now());
+        log.warn("Refresh token reuse detected for user: {} - token older than generation {} presented, " +
+                "revoked family {} ({} slots)", slot.getUserId(), slot.getGeneration(), slot.getFamilyId(), revoked);
+        return new TokenInvalidException("Refresh token has already been used");
+    }
 }
@@ -14,6 +14,7 @@ import com.stock.authservice.exception.DuplicateResourceException;
 import com.stock.authservice.exception.ResourceNotFoundException;
 import com.stock.authservice.repository.RoleRepository;
 import com.stock.authservice.repository.UserRepository;
+import com.stock.authservice.security.PrincipalCache;
 import com.stock.authservice.security.SecurityContextHelper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +42,8 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final UserEventPublisher userEventPublisher;
     private final SecurityContextHelper securityContextHelper;
+    private final StatisticsService statisticsService;
+    private final PrincipalCache principalCache;
 
     // ==================== CREATE USER ====================
 
@@ -82,6 +85,10 @@ public class UserService {
         }
 
         user = userRepository.save(user);
+        statisticsService.adjustTotalUsers(1);
+        if (user.getIsActive()) {
+            statisticsService.adjustActiveUsers(1);
+        }
 
         // Publish event
         userEventPublisher.publishUserCreated(UserCreatedEvent.builder()
@@ -195,6 +202,7 @@ public class UserService {
         if (request.getProfileImageUrl() != null) user.setProfileImageUrl(request.getProfileImageUrl());
 
         user = userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("User updated successfully: {}", user.getUsername());
 
@@ -211,9 +219,13 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
         // Soft delete
+        if (user.getIsActive()) {
+            statisticsService.adjustActiveUsers(-1);
+        }
         user.setIsActive(false);
         user.setDeletedAt(LocalDateTime.now());
         userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("User deleted successfully: {}", user.getUsername());
 
@@ -229,9 +241,13 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
+        if (!user.getIsActive()) {
+            statisticsService.adjustActiveUsers(1);
+        }
         user.setIsActive(true);
         user.setDeletedAt(null);
         userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("User activated successfully: {}", user.getUsername());
 
@@ -245,8 +261,12 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
+        if (user.getIsActive()) {
+            statisticsService.adjustActiveUsers(-1);
+        }
         user.setIsActive(false);
         userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("User deactivated successfully: {}", user.getUsername());
 
@@ -262,8 +282,12 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
+        if (!user.getIsLocked()) {
+            statisticsService.adjustLockedUsers(1);
+        }
         user.lock(0); // Lock indefinitely
         userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("User locked successfully: {}", user.getUsername());
 
@@ -277,8 +301,12 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
+        if (user.getIsLocked()) {
+            statisticsService.adjustLockedUsers(-1);
+        }
         user.unlock();
         userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("User unlocked successfully: {}", user.getUsername());
 
@@ -302,6 +330,7 @@ public class UserService {
 
         user.getRoles().addAll(roles);
         user = userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("Roles assigned successfully to user: {}", user.getUsername());
 
@@ -320,6 +349,7 @@ public class UserService {
 
         user.getRoles().remove(role);
         user = userRepository.save(user);
+        principalCache.evict(user.getId());
 
         log.info("Role removed successfully from user: {}", user.getUsername());
 
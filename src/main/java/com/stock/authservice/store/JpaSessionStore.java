@@ -0,0 +1,133 @@
+package com.stock.authservice.store;
+
+import com.stock.authservice.config.SessionConfig;
+import com.stock.authservice.entity.UserSession;
+import com.stock.authservice.repository.UserSessionRepository;
+import com.stock.authservice.util.HashUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "session.store", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaSessionStore implements SessionStore {
+
+    private final UserSessionRepository sessionRepository;
+    private final SessionActivityBuffer activityBuffer;
+    private final SessionConfig sessionConfig;
+
+    @Override
+    public List<String> create(UserSession session, int maxConcurrentSessions) {
+        // Serializes logins of the same user until the surrounding transaction ends
+        sessionRepository.lockUserSessions(session.getUserId());
+        sessionRepository.saveAndFlush(session);
+        return sessionRepository.terminateSessionsBeyondLimit(session.getUserId(), LocalDateTime.now(),
+                "MAX_SESSIONS_EXCEEDED", maxConcurrentSessions);
+    }
+
+    @Override
+    public Optional<UserSession> findById(String sessionId) {
+        return sessionRepository.findBySessionId(sessionId);
+    }
+
+    @Override
+    public Optional<UserSession> findByToken(String sessionToken) {
+        return sessionRepository.findBySessionTokenHash(HashUtil.sha256Bytes(sessionToken));
+    }
+
+    @Override
+    public List<UserSession> findActiveByUserId(String userId) {
+        return sessionRepository.findActiveSessionsByUserId(userId, LocalDateTime.now());
+    }
+
+    @Override
+    public List<UserSession> findAllByUserId(String userId) {
+        return sessionRepository.findByUserId(userId);
+    }
+
+    @Override
+    public boolean touch(String sessionId, LocalDateTime lastActivity, LocalDateTime expiresAt) {
+        if (sessionConfig.getActivity().isWriteBehind()) {
+            // Refused here for dead sessions; otherwise applied by the next flush
+            return activityBuffer.record(sessionId, lastActivity);
+        }
+        return sessionRepository.touchSession(sessionId, lastActivity, expiresAt) > 0;
+    }
+
+    @Override
+    public boolean isValid(UserSession session) {
+        if (!session.getIsActive()) {
+            return false;
+        }
+        // The stored expiry lags buffered touches by up to one flush interval
+        LocalDateTime bufferedDeadline = activityBuffer.deadlineOf(session.getId());
+        return session.isValid() || (bufferedDeadline != null && bufferedDeadline.isAfter(LocalDateTime.now()));
+    }
+
+    @Override
+    public void terminate(UserSession session, String reason) {
+        session.terminate(reason);
+        sessionRepository.save(session);
+        activityBuffer.forget(session.getId());
+    }
+
+    @Override
+    public Map<String, String> terminateByUserId(String userId, String reason) {
+        return forgetAll(toSessionUserMap(
+                sessionRepository.terminateActiveSessionsByUserId(userId, LocalDateTime.now(), reason)));
+    }
+
+    @Override
+    public Map<String, String> terminateByIpAddress(String ipAddress, String reason) {
+        return forgetAll(toSessionUserMap(
+                sessionRepository.terminateActiveSessionsByIpAddress(ipAddress, LocalDateTime.now(), reason)));
+    }
+
+    @Override
+    public Map<String, String> terminateByDeviceType(String deviceType, String reason) {
+        return forgetAll(toSessionUserMap(
+                sessionRepository.terminateActiveSessionsByDeviceType(deviceType, LocalDateTime.now(), reason)));
+    }
+
+    @Override
+    public Map<String, String> expireBatch(LocalDateTime now, int batchSize) {
+        // Don't expire sessions whose latest activity is still buffered
+        activityBuffer.flush();
+
+        return forgetAll(toSessionUserMap(sessionRepository.expireSessionsBatch(now, "SESSION_EXPIRED", batchSize)));
+    }
+
+    @Override
+    public Map<String, String> expireByIds(Collection<String> sessionIds, LocalDateTime now) {
+        activityBuffer.flush();
+        return forgetAll(toSessionUserMap(sessionRepository.expireSessionsByIds(sessionIds, now, "SESSION_EXPIRED")));
+    }
+
+    @Override
+    public long countActive(LocalDateTime now) {
+        return sessionRepository.countActiveSessions(now);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Map<String, String> forgetAll(Map<String, String> sessions) {
+        sessions.keySet().forEach(activityBuffer::forget);
+        return sessions;
+    }
+
+    private static Map<String, String> toSessionUserMap(List<Object[]> rows) {
+        Map<String, String> sessions = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            sessions.put((String) row[0], (String) row[1]);
+        }
+        return sessions;
+    }
+}
@@ -0,0 +1,649 @@
+package com.stock.authservice.store;
+
+import com.stock.authservice.config.SessionConfig;
+import com.stock.authservice.entity.UserSession;
+import com.stock.authservice.repository.UserSessionRepository;
+import com.stock.authservice.util.DateTimeUtil;
+import com.stock.authservice.util.HashUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps active sessions in Redis. The keys a script touches all carry the user's {@code {userId}}
+ * hash tag, so they sit in one cluster slot:
+ * <ul>
+ *     <li>{@code session:{userId}:<id>} - hash with the session fields, TTL = expiry + grace</li>
+ *     <li>{@code session:user:{userId}} - sorted set of the user's session ids scored by creation time</li>
+ * </ul>
+ * Lookups and indexes that span users hold {@code userId:sessionId} references and are written
+ * next to the scripts, one key per command:
+ * <ul>
+ *     <li>{@code session:id:<id>} - user id, same TTL as the hash</li>
+ *     <li>{@code session:token:<sha256 hex>} - reference, same TTL</li>
+ *     <li>{@code session:expiry} - sorted set of references scored by expiry, drained by the sweeper</li>
+ *     <li>{@code session:ip:<ip>}, {@code session:device:<type>} - sets of references for bulk
+ *     termination; each expires with its longest-lived member, and references whose hash is gone
+ *     are pruned when a bulk termination finds them</li>
+ * </ul>
+ * A session is ended by whichever caller deletes its isActive field first, and only that caller
+ * persists and reports it. Only terminal state (terminated or expired) is written to user_sessions.
+ */
+@Component
+@ConditionalOnProperty(name = "session.store", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisSessionStore implements SessionStore {
+
+    private static final String SESSION_KEY = "session:";
+    private static final String ID_KEY = "session:id:";
+    private static final String TOKEN_KEY = "session:token:";
+    private static final String USER_SESSIONS_KEY = "session:user:";
+    private static final String EXPIRY_KEY = "session:expiry";
+    private static final String IP_SESSIONS_KEY = "session:ip:";
+    private static final String DEVICE_SESSIONS_KEY = "session:device:";
+
+    // Outcomes of CLAIM_SCRIPT; any other value is the expiry of a session that isn't due yet
+    private static final long CLAIMED = 1L;
+    private static final long UNCLAIMED = 0L;
+
+    // KEYS: session hash, user set; ARGV: lastActivity ms, expiresAt ms, ttl ms
+    // Returns token hash, ip and device ('' if unset) for the caller to extend the keys named by
+    // them, or nothing if the session is unknown, claimed or already expired
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TOUCH_SCRIPT = new DefaultRedisScript<>(
+            "local expiresAt = redis.call('HGET', KEYS[1], 'expiresAt') " +
+            "if (not expiresAt) or tonumber(expiresAt) <= tonumber(ARGV[1]) " +
+            "or redis.call('HGET', KEYS[1], 'isActive') ~= 'true' then return {} end " +
+            "redis.call('HSET', KEYS[1], 'lastActivity', ARGV[1], 'expiresAt', ARGV[2]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "if redis.call('PTTL', KEYS[2]) < tonumber(ARGV[3]) then redis.call('PEXPIRE', KEYS[2], ARGV[3]) end " +
+            "return {redis.call('HGET', KEYS[1], 'sessionTokenHash'), " +
+            "redis.call('HGET', KEYS[1], 'ipAddress') or '', redis.call('HGET', KEYS[1], 'deviceType') or ''}",
+            List.class);
+
+    // KEYS: session hash, user set; ARGV: session id, createdAt ms, max sessions, ttl ms, then the
+    // hash's field/value pairs
+    // Stores the session and pops the user's oldest sessions beyond the limit in one step. The
+    // popped ids still have to be claimed: one may have expired or been ended meanwhile.
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> ADD_WITH_LIMIT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 5)) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[4]) " +
+            "redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1]) " +
+            "if redis.call('PTTL', KEYS[2]) < tonumber(ARGV[4]) then redis.call('PEXPIRE', KEYS[2], ARGV[4]) end " +
+            "local overflow = redis.call('ZCARD', KEYS[2]) - tonumber(ARGV[3]) " +
+            "if overflow <= 0 then return {} end " +
+            "local popped = redis.call('ZRANGE', KEYS[2], 0, overflow - 1) " +
+            "redis.call('ZREMRANGEBYRANK', KEYS[2], 0, overflow - 1) " +
+            "return popped",
+            List.class);
+
+    // The two below are sent with EVAL inside pipelines, where EVALSHA's NOSCRIPT fallback can't run
+
+    // KEYS: session hash; ARGV: deadline ms, or '' to claim regardless of expiry
+    // Deletes isActive and returns CLAIMED if this call ended the session, UNCLAIMED if it was
+    // already ended or is gone, or its expiry if it was touched past the deadline
+    private static final String CLAIM_SCRIPT =
+            "if ARGV[1] ~= '' then " +
+            "  local expiresAt = redis.call('HGET', KEYS[1], 'expiresAt') " +
+            "  if expiresAt and tonumber(expiresAt) > tonumber(ARGV[1]) " +
+            "  and redis.call('HEXISTS', KEYS[1], 'isActive') == 1 then return tonumber(expiresAt) end " +
+            "end " +
+            "return redis.call('HDEL', KEYS[1], 'isActive')";
+
+    // KEYS: index key; ARGV: ttl ms. Only ever lengthens the TTL, so the longest-lived member wins
+    private static final String EXTEND_TTL_SCRIPT =
+            "if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[1]) then return redis.call('PEXPIRE', KEYS[1], ARGV[1]) end " +
+            "return 0";
+
+    // The conflict target has to match the primary key: (id) on the plain table, (id, created_at)
+    // once SessionPartitionMaintainer has converted it
+    private static final String PERSIST_TERMINAL_SQL =
+            "INSERT INTO user_sessions (id, session_token_hash, user_id, ip_address, user_agent, device_type, " +
+            "is_active, last_activity, expires_at, terminated_at, termination_reason, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, false, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (%s) DO UPDATE SET is_active = false, last_activity = EXCLUDED.last_activity, " +
+            "expires_at = EXCLUDED.expires_at, terminated_at = EXCLUDED.terminated_at, " +
+            "termination_reason = EXCLUDED.termination_reason, updated_at = EXCLUDED.updated_at";
+    private static final String PERSIST_TERMINAL_PLAIN_SQL = String.format(PERSIST_TERMINAL_SQL, "id");
+    private static final String PERSIST_TERMINAL_PARTITIONED_SQL = String.format(PERSIST_TERMINAL_SQL, "id, created_at");
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserSessionRepository sessionRepository;
+    private final SessionConfig sessionConfig;
+
+    // The conversion only ever goes one way, so a positive answer is cached
+    private volatile boolean partitioned;
+
+    // ==================== CREATE ====================
+
+    @Override
+    public List<String> create(UserSession session, int maxConcurrentSessions) {
+        LocalDateTime now = LocalDateTime.now();
+        session.setId(UUID.randomUUID().toString());
+        session.setCreatedAt(now);
+        session.setUpdatedAt(now);
+        session.hashSessionToken();
+
+        SessionRef ref = new SessionRef(session.getUserId(), session.getId());
+        long ttlMs = ttlFor(session.getExpiresAt()).toMillis();
+
+        // Lookups and indexes go first; until the script below stores the hash they resolve to nothing
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().set(raw(ID_KEY + session.getId()), raw(session.getUserId()),
+                    Expiration.milliseconds(ttlMs), SetOption.upsert());
+            connection.stringCommands().set(raw(TOKEN_KEY + tokenKeyOf(session)), raw(ref.toString()),
+                    Expiration.milliseconds(ttlMs), SetOption.upsert());
+            connection.zSetCommands().zAdd(raw(EXPIRY_KEY),
+                    DateTimeUtil.toEpochMilli(session.getExpiresAt()), raw(ref.toString()));
+            addToIndex(connection, IP_SESSIONS_KEY, session.getIpAddress(), ref, ttlMs);
+            addToIndex(connection, DEVICE_SESSIONS_KEY, session.getDeviceType(), ref, ttlMs);
+            return null;
+        });
+
+        List<String> args = new ArrayList<>(List.of(
+                session.getId(),
+                String.valueOf(DateTimeUtil.toEpochMilli(now)),
+                String.valueOf(maxConcurrentSessions),
+                String.valueOf(ttlMs)));
+        toHash(session).forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        List<String> poppedIds = toStringList(redisTemplate.execute(ADD_WITH_LIMIT_SCRIPT,
+                List.of(ref.key(), userSessionsKey(session.getUserId())), args.toArray()));
+        if (poppedIds.isEmpty()) {
+            return poppedIds;
+        }
+
+        List<SessionRef> popped = poppedIds.stream()
+                .map(id -> new SessionRef(session.getUserId(), id))
+                .collect(Collectors.toList());
+        return new ArrayList<>(terminateClaimed(claimed(popped, claim(popped, "")), "MAX_SESSIONS_EXCEEDED").keySet());
+    }
+
+    // ==================== READ ====================
+
+    @Override
+    public Optional<UserSession> findById(String sessionId) {
+        String userId = redisTemplate.opsForValue().get(ID_KEY + sessionId);
+        if (userId != null) {
+            Map<Object, Object> hash = redisTemplate.opsForHash().entries(new SessionRef(userId, sessionId).key());
+            if (!hash.isEmpty()) {
+                return Optional.of(fromHash(hash));
+            }
+        }
+        // Terminated sessions are only kept in Postgres
+        return sessionRepository.findBySessionId(sessionId);
+    }
+
+    @Override
+    public Optional<UserSession> findByToken(String sessionToken) {
+        byte[] tokenHash = HashUtil.sha256Bytes(sessionToken);
+        String ref = redisTemplate.opsForValue().get(TOKEN_KEY + HexFormat.of().formatHex(tokenHash));
+        if (ref != null) {
+            Map<Object, Object> hash = redisTemplate.opsForHash().entries(SessionRef.parse(ref).key());
+            if (!hash.isEmpty()) {
+                return Optional.of(fromHash(hash));
+            }
+        }
+        return sessionRepository.findBySessionTokenHash(tokenHash);
+    }
+
+    @Override
+    public List<UserSession> findActiveByUserId(String userId) {
+        Set<String> sessionIds = redisTemplate.opsForZSet().range(userSessionsKey(userId), 0, -1);
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return loadAll(sessionIds.stream().map(id -> new SessionRef(userId, id)).collect(Collectors.toList()))
+                .stream()
+                .filter(UserSession::isValid)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<UserSession> findAllByUserId(String userId) {
+        List<UserSession> sessions = findActiveByUserId(userId);
+        sessions.addAll(sessionRepository.findByUserId(userId));
+        return sessions;
+    }
+
+    // ==================== ACTIVITY ====================
+
+    @Override
+    public boolean touch(String sessionId, LocalDateTime lastActivity, LocalDateTime expiresAt) {
+        String userId = redisTemplate.opsForValue().get(ID_KEY + sessionId);
+        if (userId == null) {
+            return false;
+        }
+
+        SessionRef ref = new SessionRef(userId, sessionId);
+        long expiresAtMs = DateTimeUtil.toEpochMilli(expiresAt);
+        long ttlMs = ttlFor(expiresAt).toMillis();
+        List<String> fields = toStringList(redisTemplate.execute(TOUCH_SCRIPT,
+                List.of(ref.key(), userSessionsKey(userId)),
+                String.valueOf(DateTimeUtil.toEpochMilli(lastActivity)),
+                String.valueOf(expiresAtMs),
+                String.valueOf(ttlMs)));
+        if (fields.isEmpty()) {
+            return false;
+        }
+
+        // If this is lost, the sweeper re-scores the session when it finds it early
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().pExpire(raw(ID_KEY + sessionId), ttlMs);
+            connection.keyCommands().pExpire(raw(TOKEN_KEY + fields.get(0)), ttlMs);
+            connection.zSetCommands().zAdd(raw(EXPIRY_KEY), expiresAtMs, raw(ref.toString()));
+            if (!fields.get(1).isEmpty()) {
+                extendTtl(connection, IP_SESSIONS_KEY + fields.get(1), ttlMs);
+            }
+            if (!fields.get(2).isEmpty()) {
+                extendTtl(connection, DEVICE_SESSIONS_KEY + fields.get(2), ttlMs);
+            }
+            return null;
+        });
+        return true;
+    }
+
+    // ==================== TERMINATE ====================
+
+    @Override
+    public void terminate(UserSession session, String reason) {
+        SessionRef ref = new SessionRef(session.getUserId(), session.getId());
+        if (claim(List.of(ref), "").get(0) != CLAIMED) {
+            // Ended concurrently; whoever claimed it persists it
+            return;
+        }
+        session.terminate(reason);
+        persistTerminal(List.of(session));
+        evict(List.of(session));
+    }
+
+    @Override
+    public Map<String, String> terminateByUserId(String userId, String reason) {
+        String userKey = userSessionsKey(userId);
+        return terminateIndexed(redisTemplate.opsForZSet().range(userKey, 0, -1),
+                id -> new SessionRef(userId, id), reason,
+                dead -> redisTemplate.opsForZSet().remove(userKey, dead));
+    }
+
+    @Override
+    public Map<String, String> terminateByIpAddress(String ipAddress, String reason) {
+        String indexKey = IP_SESSIONS_KEY + ipAddress;
+        return terminateIndexed(redisTemplate.opsForSet().members(indexKey), SessionRef::parse, reason,
+                dead -> redisTemplate.opsForSet().remove(indexKey, dead));
+    }
+
+    @Override
+    public Map<String, String> terminateByDeviceType(String deviceType, String reason) {
+        String indexKey = DEVICE_SESSIONS_KEY + deviceType;
+        return terminateIndexed(redisTemplate.opsForSet().members(indexKey), SessionRef::parse, reason,
+                dead -> redisTemplate.opsForSet().remove(indexKey, dead));
+    }
+
+    @Override
+    public Map<String, String> expireBatch(LocalDateTime now, int batchSize) {
+        long nowMs = DateTimeUtil.toEpochMilli(now);
+        Set<String> due = redisTemplate.opsForZSet().rangeByScore(EXPIRY_KEY, 0, nowMs, 0, batchSize);
+        if (due == null || due.isEmpty()) {
+            return Map.of();
+        }
+
+        List<String> members = new ArrayList<>(due);
+        List<SessionRef> refs = members.stream().map(SessionRef::parse).collect(Collectors.toList());
+        List<Long> outcomes = claim(refs, String.valueOf(nowMs));
+
+        List<SessionRef> claimed = new ArrayList<>();
+        List<String> dead = new ArrayList<>();
+        Map<String, Long> touched = new LinkedHashMap<>();
+        for (int i = 0; i < members.size(); i++) {
+            long outcome = outcomes.get(i);
+            if (outcome == CLAIMED) {
+                claimed.add(refs.get(i));
+            } else if (outcome == UNCLAIMED) {
+                // Ended elsewhere, or the hash is gone; nothing is left to persist
+                dead.add(members.get(i));
+            } else {
+                touched.put(members.get(i), outcome);
+            }
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            dead.forEach(member -> connection.zSetCommands().zRem(raw(EXPIRY_KEY), raw(member)));
+            touched.forEach((member, expiresAt) ->
+                    connection.zSetCommands().zAdd(raw(EXPIRY_KEY), expiresAt, raw(member)));
+            return null;
+        });
+        return terminateClaimed(claimed, "SESSION_EXPIRED");
+    }
+
+    @Override
+    public Map<String, String> expireByIds(Collection<String> sessionIds, LocalDateTime now) {
+        List<SessionRef> refs = resolve(sessionIds);
+        return terminateClaimed(claimed(refs, claim(refs, String.valueOf(DateTimeUtil.toEpochMilli(now)))),
+                "SESSION_EXPIRED");
+    }
+
+    @Override
+    public long countActive(LocalDateTime now) {
+        Long count = redisTemplate.opsForZSet()
+                .count(EXPIRY_KEY, DateTimeUtil.toEpochMilli(now) + 1, Double.POSITIVE_INFINITY);
+        return count != null ? count : 0L;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Claims and terminates the sessions behind {@code members} of one index. Members whose
+     * session was already ended or has expired away are pruned from the index.
+     */
+    private Map<String, String> terminateIndexed(Set<String> members, Function<String, SessionRef> toRef,
+                                                 String reason, Consumer<Object[]> prune) {
+        if (members == null || members.isEmpty()) {
+            return Map.of();
+        }
+
+        List<String> memberList = new ArrayList<>(members);
+        List<SessionRef> refs = memberList.stream().map(toRef).collect(Collectors.toList());
+        List<Long> outcomes = claim(refs, "");
+
+        List<SessionRef> claimed = new ArrayList<>();
+        List<String> dead = new ArrayList<>();
+        for (int i = 0; i < memberList.size(); i++) {
+            if (outcomes.get(i) == CLAIMED) {
+                claimed.add(refs.get(i));
+            } else {
+                dead.add(memberList.get(i));
+            }
+        }
+        if (!dead.isEmpty()) {
+            prune.accept(dead.toArray());
+        }
+        return terminateClaimed(claimed, reason);
+    }
+
+    // Returns one CLAIM_SCRIPT outcome per ref, in order
+    private List<Long> claim(List<SessionRef> refs, String deadline) {
+        if (refs.isEmpty()) {
+            return List.of();
+        }
+        byte[] script = raw(CLAIM_SCRIPT);
+        byte[] deadlineArg = raw(deadline);
+        List<Object> outcomes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (SessionRef ref : refs) {
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER, 1, raw(ref.key()), deadlineArg);
+            }
+            return null;
+        });
+        return outcomes.stream().map(outcome -> ((Number) outcome).longValue()).collect(Collectors.toList());
+    }
+
+    private static List<SessionRef> claimed(List<SessionRef> refs, List<Long> outcomes) {
+        List<SessionRef> claimed = new ArrayList<>();
+        for (int i = 0; i < refs.size(); i++) {
+            if (outcomes.get(i) == CLAIMED) {
+                claimed.add(refs.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    private Map<String, String> terminateClaimed(List<SessionRef> claimed, String reason) {
+        // A claimed hash can still expire before it is read; only what was loaded is persisted
+        List<UserSession> sessions = loadAll(claimed);
+        sessions.forEach(session -> session.terminate(reason));
+        persistTerminal(sessions);
+        evict(sessions);
+
+        Map<String, String> result = new LinkedHashMap<>();
+        sessions.forEach(session -> result.put(session.getId(), session.getUserId()));
+        return result;
+    }
+
+    // Session ids whose lookup key has expired are dropped
+    private List<SessionRef> resolve(Collection<String> sessionIds) {
+        List<String> ids = new ArrayList<>(sessionIds);
+        List<Object> userIds = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            ids.forEach(id -> connection.stringCommands().get(raw(ID_KEY + id)));
+            return null;
+        });
+
+        List<SessionRef> refs = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (userIds.get(i) != null) {
+                refs.add(new SessionRef(userIds.get(i).toString(), ids.get(i)));
+            }
+        }
+        return refs;
+    }
+
+    private static List<String> toStringList(List<?> values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            values.forEach(value -> result.add(value.toString()));
+        }
+        return result;
+    }
+
+    private List<UserSession> loadAll(List<SessionRef> refs) {
+        if (refs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> hashes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                refs.forEach(ref -> ops.opsForHash().entries(ref.key()));
+                return null;
+            }
+        });
+
+        List<UserSession> sessions = new ArrayList<>(hashes.size());
+        for (Object hash : hashes) {
+            if (hash instanceof Map<?, ?> map && !map.isEmpty()) {
+                sessions.add(fromHash(map));
+            }
+        }
+        return sessions;
+    }
+
+    private void persistTerminal(List<UserSession> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = sessions.stream()
+                .map(session -> new Object[]{
+                        session.getId(),
+                        session.getSessionTokenHash(),
+                        session.getUserId(),
+                        session.getIpAddress(),
+                        session.getUserAgent(),
+                        session.getDeviceType(),
+                        Timestamp.valueOf(session.getLastActivity()),
+                        Timestamp.valueOf(session.getExpiresAt()),
+                        Timestamp.valueOf(session.getTerminatedAt()),
+                        session.getTerminationReason(),
+                        Timestamp.valueOf(session.getCreatedAt()),
+                        now
+                })
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(isPartitioned() ? PERSIST_TERMINAL_PARTITIONED_SQL : PERSIST_TERMINAL_PLAIN_SQL, rows);
+    }
+
+    private boolean isPartitioned() {
+        if (!partitioned) {
+            partitioned = "p".equals(jdbcTemplate.queryForObject(
+                    "SELECT relkind::text FROM pg_class WHERE oid = to_regclass('user_sessions')", String.class));
+        }
+        return partitioned;
+    }
+
+    // Keys that span slots are deleted one per command
+    private void evict(List<UserSession> sessions) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (UserSession session : sessions) {
+                    SessionRef ref = new SessionRef(session.getUserId(), session.getId());
+                    ops.delete(ref.key());
+                    ops.delete(ID_KEY + session.getId());
+                    ops.delete(TOKEN_KEY + tokenKeyOf(session));
+                    ops.opsForZSet().remove(userSessionsKey(session.getUserId()), session.getId());
+                    ops.opsForZSet().remove(EXPIRY_KEY, ref.toString());
+                    if (session.getIpAddress() != null) {
+                        ops.opsForSet().remove(IP_SESSIONS_KEY + session.getIpAddress(), ref.toString());
+                    }
+                    if (session.getDeviceType() != null) {
+                        ops.opsForSet().remove(DEVICE_SESSIONS_KEY + session.getDeviceType(), ref.toString());
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    private static void addToIndex(RedisConnection connection, String prefix, String value, SessionRef ref, long ttlMs) {
+        if (value != null) {
+            connection.setCommands().sAdd(raw(prefix + value), raw(ref.toString()));
+            extendTtl(connection, prefix + value, ttlMs);
+        }
+    }
+
+    private static void extendTtl(RedisConnection connection, String key, long ttlMs) {
+        connection.scriptingCommands().eval(raw(EXTEND_TTL_SCRIPT), ReturnType.INTEGER, 1,
+                raw(key), raw(String.valueOf(ttlMs)));
+    }
+
+    private static String userSessionsKey(String userId) {
+        return USER_SESSIONS_KEY + "{" + userId + "}";
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Duration ttlFor(LocalDateTime expiresAt) {
+        long millis = DateTimeUtil.toEpochMilli(expiresAt) - System.currentTimeMillis();
+        return Duration.ofMillis(Math.max(millis, 0))
+                .plusSeconds(sessionConfig.getRedis().getExpiredGraceSeconds());
+    }
+
+    private Map<String, String> toHash(UserSession session) {
+        Map<String, String> hash = new HashMap<>();
+        hash.put("id", session.getId());
+        hash.put("sessionTokenHash", tokenKeyOf(session));
+        hash.put("userId", session.getUserId());
+        putIfNotNull(hash, "ipAddress", session.getIpAddress());
+        putIfNotNull(hash, "userAgent", session.getUserAgent());
+        putIfNotNull(hash, "deviceType", session.getDeviceType());
+        hash.put("isActive", String.valueOf(session.getIsActive()));
+        hash.put("lastActivity", String.valueOf(DateTimeUtil.toEpochMilli(session.getLastActivity())));
+        hash.put("expiresAt", String.valueOf(DateTimeUtil.toEpochMilli(session.getExpiresAt())));
+        hash.put("createdAt", String.valueOf(DateTimeUtil.toEpochMilli(session.getCreatedAt())));
+        return hash;
+    }
+
+    private UserSession fromHash(Map<?, ?> hash) {
+        return UserSession.builder()
+                .id(stringValue(hash, "id"))
+                .sessionTokenHash(HexFormat.of().parseHex(stringValue(hash, "sessionTokenHash")))
+                .userId(stringValue(hash, "userId"))
+                .ipAddress(stringValue(hash, "ipAddress"))
+                .userAgent(stringValue(hash, "userAgent"))
+                .deviceType(stringValue(hash, "deviceType"))
+                .isActive(Boolean.parseBoolean(stringValue(hash, "isActive")))
+                .lastActivity(timeValue(hash, "lastActivity"))
+                .expiresAt(timeValue(hash, "expiresAt"))
+                .createdAt(timeValue(hash, "createdAt"))
+                .updatedAt(timeValue(hash, "lastActivity"))
+                .build();
+    }
+
+    private static String tokenKeyOf(UserSession session) {
+        return HexFormat.of().formatHex(session.getSessionTokenHash());
+    }
+
+    private static void putIfNotNull(Map<String, String> hash, String field, String value) {
+        if (value != null) {
+            hash.put(field, value);
+        }
+    }
+
+    private static String stringValue(Map<?, ?> hash, String field) {
+        Object value = hash.get(field);
+        return value != null ? value.toString() : null;
+    }
+
+    private static LocalDateTime timeValue(Map<?, ?> hash, String field) {
+        String value = stringValue(hash, field);
+        return value != null ? DateTimeUtil.fromEpochMilli(Long.parseLong(value)) : null;
+    }
+
+    /**
+     * A session named by user and id, as held in the indexes that span users. Members that don't
+     * parse (written before the {userId} key layout) resolve to no hash and get pruned.
+     */
+    private static final class SessionRef {
+
+        private final String userId;
+        private final String sessionId;
+
+        private SessionRef(String userId, String sessionId) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+        }
+
+        // Session ids are UUIDs, so the last ':' separates the two
+        private static SessionRef parse(String member) {
+            int separator = member.lastIndexOf(':');
+            return separator < 0
+                    ? new SessionRef("", member)
+                    : new SessionRef(member.substring(0, separator), member.substring(separator + 1));
+        }
+
+        private String key() {
+            return SESSION_KEY + "{" + userId + "}:" + sessionId;
+        }
+
+        @Override
+        public String toString() {
+            return userId + ":" + sessionId;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.stock.authservice.store;
+
+import com.stock.authservice.constants.SecurityConstants;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for session activity. Touches only record the latest timestamp per
+ * session; every {@code session.activity.max-staleness-ms} the pending entries are written
+ * as one JDBC batch, so many touches of the same session collapse into a single UPDATE.
+ * <p>
+ * The buffer also caches the deadline of each session it has accepted a touch for, so a touch
+ * can be refused for a dead session without a query per request. The cache is filled from
+ * user_sessions on a miss or once the cached deadline has passed, and entries are dropped when
+ * the session is terminated here or when a flush finds the row no longer active. A session
+ * terminated on another node can therefore keep accepting touches until the next flush.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SessionActivityBuffer {
+
+    private static final String DEADLINE_SQL =
+            "SELECT expires_at FROM user_sessions WHERE id = ? AND is_active = true " +
+            "AND created_at = (SELECT created_at FROM user_session_keys WHERE session_id = ?)";
+
+    private static final String TOUCH_SQL =
+            "UPDATE user_sessions SET last_activity = ?, expires_at = ?, updated_at = ? " +
+            "WHERE id = ? AND is_active = true AND expires_at > ? AND last_activity < ? " +
+            "AND created_at = (SELECT created_at FROM user_session_keys WHERE session_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentMap<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LocalDateTime> deadlines = new ConcurrentHashMap<>();
+    private final AtomicLong recordedTouches = new AtomicLong();
+
+    /**
+     * Buffers a touch. Returns false, without buffering, if the session is unknown, inactive
+     * or already expired at {@code lastActivity}.
+     */
+    public boolean record(String sessionId, LocalDateTime lastActivity) {
+        LocalDateTime deadline = deadlines.get(sessionId);
+        if (deadline == null || !deadline.isAfter(lastActivity)) {
+            // Another node may have extended it since, so a passed deadline is checked again
+            deadline = loadDeadline(sessionId);
+            if (deadline == null || !deadline.isAfter(lastActivity)) {
+                forget(sessionId);
+                return false;
+            }
+        }
+
+        pending.merge(sessionId, lastActivity, SessionActivityBuffer::latest);
+        deadlines.merge(sessionId, latest(deadline, deadlineAfter(lastActivity)), SessionActivityBuffer::latest);
+        recordedTouches.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Deadline of the session including activity that is not flushed yet, or null if this
+     * node has not accepted a touch for it.
+     */
+    public LocalDateTime deadlineOf(String sessionId) {
+        return deadlines.get(sessionId);
+    }
+
+    // Called when the session is terminated or expired on this node
+    public void forget(String sessionId) {
+        deadlines.remove(sessionId);
+        pending.remove(sessionId);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${session.activity.max-staleness-ms:30000}")
+    public void flush() {
+        LocalDateTime now = LocalDateTime.now();
+        deadlines.values().removeIf(deadline -> !deadline.isAfter(now));
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        for (String sessionId : pending.keySet()) {
+            // Removing per key keeps concurrent touches: anything recorded after the remove goes to the next flush
+            LocalDateTime lastActivity = pending.remove(sessionId);
+            if (lastActivity == null) {
+                continue;
+            }
+            Timestamp activity = Timestamp.valueOf(lastActivity);
+            Timestamp expiresAt = Timestamp.valueOf(deadlineAfter(lastActivity));
+            rows.add(new Object[]{activity, expiresAt, activity, sessionId, activity, activity, sessionId});
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            int[] updated = jdbcTemplate.batchUpdate(TOUCH_SQL, rows);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    // Ended elsewhere, or another node already wrote newer activity; the next touch reloads it
+                    deadlines.remove((String) rows.get(i)[3]);
+                }
+            }
+            log.debug("Flushed activity for {} sessions ({} touches recorded)",
+                    rows.size(), recordedTouches.getAndSet(0));
+        } catch (Exception e) {
+            // Activity is best-effort: re-queue without overwriting newer touches and retry next interval
+            log.error("Failed to flush session activity for {} sessions", rows.size(), e);
+            rows.forEach(row -> pending.merge((String) row[3], ((Timestamp) row[0]).toLocalDateTime(),
+                    SessionActivityBuffer::latest));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing {} pending session activity updates before shutdown", pending.size());
+        flush();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private LocalDateTime loadDeadline(String sessionId) {
+        List<Timestamp> expiresAt = jdbcTemplate.queryForList(DEADLINE_SQL, Timestamp.class, sessionId, sessionId);
+        return expiresAt.isEmpty() ? null : expiresAt.get(0).toLocalDateTime();
+    }
+
+    private static LocalDateTime deadlineAfter(LocalDateTime lastActivity) {
+        return lastActivity.plusMinutes(SecurityConstants.SESSION_INACTIVITY_TIMEOUT_MINUTES);
+    }
+
+    private static LocalDateTime latest(LocalDateTime current, LocalDateTime next) {
+        return next.isAfter(current) ? next : current;
+    }
+}
@@ -0,0 +1,74 @@
+package com.stock.authservice.store;
+
+import com.stock.authservice.entity.UserSession;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage for session state. Active sessions may live outside Postgres (see
+ * {@link RedisSessionStore}); terminated sessions always end up in user_sessions.
+ * Selected with {@code session.store} (jpa | redis).
+ */
+public interface SessionStore {
+
+    /**
+     * Stores a new session, then terminates the user's oldest active sessions so that at most
+     * {@code maxConcurrentSessions} remain. Both steps are atomic per user, so parallel logins
+     * cannot overshoot the limit. Returns the ids of the terminated sessions.
+     */
+    List<String> create(UserSession session, int maxConcurrentSessions);
+
+    Optional<UserSession> findById(String sessionId);
+
+    Optional<UserSession> findByToken(String sessionToken);
+
+    List<UserSession> findActiveByUserId(String userId);
+
+    // Active sessions plus terminated history
+    List<UserSession> findAllByUserId(String userId);
+
+    /**
+     * Bumps activity on an active, unexpired session.
+     * Returns false if the session is unknown, inactive or already expired. Implementations
+     * may apply the update asynchronously, in which case they return true once it is accepted.
+     */
+    boolean touch(String sessionId, LocalDateTime lastActivity, LocalDateTime expiresAt);
+
+    /**
+     * Whether the session is active and unexpired, counting touches the store has accepted
+     * but not yet written to it.
+     */
+    default boolean isValid(UserSession session) {
+        return session.isValid();
+    }
+
+    void terminate(UserSession session, String reason);
+
+    // Bulk termination; each returns sessionId -> userId for the sessions that were terminated
+    Map<String, String> terminateByUserId(String userId, String reason);
+
+    Map<String, String> terminateByIpAddress(String ipAddress, String reason);
+
+    Map<String, String> terminateByDeviceType(String deviceType, String reason);
+
+    /**
+     * Terminates up to {@code batchSize} sessions whose expiry is before {@code now}.
+     * Returns sessionId -> userId for the sessions that were expired.
+     */
+    Map<String, String> expireBatch(LocalDateTime now, int batchSize);
+
+    /**
+     * Terminates the given sessions if they are still active and expired at {@code now}.
+     * Returns sessionId -> userId for the sessions that were expired.
+     */
+    Map<String, String> expireByIds(Collection<String> sessionIds, LocalDateTime now);
+
+    /**
+     * Number of active, unexpired sessions. Used to reconcile in-memory gauges, not on hot paths.
+     */
+    long countActive(LocalDateTime now);
+}
@@ -27,6 +27,18 @@ public final class HashUtil {
         }
     }
 
+    /**
+     * Raw 32-byte SHA-256 digest, used as the stored form of bearer tokens.
+     */
+    public static byte[] sha256Bytes(String input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return digest.digest(input.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not found", e);
+        }
+    }
+
     public static String sha256Base64(String input) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
@@ -0,0 +1,78 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.config.AuditConfig;
+import com.stock.authservice.entity.AuditLog;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Builds archive segments from in-memory entries, for tests in and outside this package.
+ */
+public final class AuditArchiveFixtures {
+
+    private AuditArchiveFixtures() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Writes each list of entries as one segment under {@code directory} and loads an archive
+     * over them. The archive never syncs, so its database collaborators are not touched.
+     */
+    public static AuditArchive archiveOf(Path directory, int rowGroupSize, List<List<AuditLog>> segments)
+            throws IOException {
+        for (int i = 0; i < segments.size(); i++) {
+            writeSegment(directory.resolve("audit-archive-audit_logs_p" + i + ".seg"), rowGroupSize, segments.get(i));
+        }
+
+        AuditConfig auditConfig = new AuditConfig();
+        auditConfig.getArchive().setDirectory(directory.toString());
+        auditConfig.getArchive().setRowGroupSize(rowGroupSize);
+
+        AuditArchive archive = new AuditArchive(mock(JdbcTemplate.class), mock(PlatformTransactionManager.class),
+                auditConfig);
+        archive.load();
+        return archive;
+    }
+
+    public static AuditLog entry(String id, LocalDateTime timestamp) {
+        return AuditLog.builder()
+                .id(id)
+                .userId("user-1")
+                .username("alice")
+                .action("LOGIN")
+                .ipAddress("10.0.0.1")
+                .status("SUCCESS")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    static AuditArchiveSegment writeSegment(Path path, int rowGroupSize, List<AuditLog> entries) throws IOException {
+        List<AuditLog> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId));
+
+        try (AuditArchiveSegment.Writer writer = new AuditArchiveSegment.Writer(path, rowGroupSize,
+                distinct(sorted, AuditLog::getUserId), distinct(sorted, AuditLog::getAction),
+                distinct(sorted, AuditLog::getIpAddress))) {
+            for (AuditLog entry : sorted) {
+                writer.add(entry);
+            }
+            writer.finish();
+        }
+        return AuditArchiveSegment.open(path);
+    }
+
+    private static long distinct(List<AuditLog> entries, Function<AuditLog, String> column) {
+        return entries.stream().map(column).filter(Objects::nonNull).distinct().count();
+    }
+}
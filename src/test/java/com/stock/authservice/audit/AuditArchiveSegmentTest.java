@@ -0,0 +1,111 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.repository.AuditLogCriteria;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditArchiveSegmentTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0, 0, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsEntriesBackAcrossRowGroups() throws IOException {
+        List<AuditLog> entries = entries(10);
+
+        AuditArchiveSegment segment = write(entries);
+
+        assertThat(segment.getRowCount()).isEqualTo(10L);
+        assertThat(segment.getMinTimestamp()).isEqualTo(START);
+        assertThat(segment.getMaxTimestamp()).isEqualTo(START.plusMinutes(9));
+        assertThat(segment.getRowGroups().stream().map(AuditArchiveSegment.RowGroup::getRows).collect(Collectors.toList()))
+                .containsExactly(4, 4, 2);
+        assertThat(readAll(segment)).isEqualTo(entries);
+    }
+
+    @Test
+    void keepsNullColumnsAndFreeText() throws IOException {
+        AuditLog entry = AuditLog.builder()
+                .id("id-1")
+                .action("PASSWORD_RESET")
+                .status("FAILURE")
+                .errorMessage("Token expired, request a new link")
+                .details("{\"attempt\":3}")
+                .timestamp(START)
+                .build();
+
+        AuditArchiveSegment segment = write(List.of(entry));
+
+        assertThat(readAll(segment)).containsExactly(entry);
+    }
+
+    @Test
+    void rowGroupsCoverTheirTimestampRange() throws IOException {
+        AuditArchiveSegment segment = write(entries(10));
+
+        AuditArchiveSegment.RowGroup second = segment.getRowGroups().get(1);
+
+        assertThat(second.getMinTimestamp()).isEqualTo(START.plusMinutes(4));
+        assertThat(second.getMaxTimestamp()).isEqualTo(START.plusMinutes(7));
+    }
+
+    @Test
+    void mightMatchRulesOutByTimeRangeAndFilters() throws IOException {
+        AuditArchiveSegment segment = write(entries(10));
+
+        assertThat(segment.mightMatch(AuditLogCriteria.all())).isTrue();
+        assertThat(segment.mightMatch(AuditLogCriteria.builder().userId("user-2").build())).isTrue();
+        assertThat(segment.mightMatch(AuditLogCriteria.builder().userId("user-9").build())).isFalse();
+        assertThat(segment.mightMatch(AuditLogCriteria.builder().ipAddress("192.168.0.1").build())).isFalse();
+        assertThat(segment.mightMatch(AuditLogCriteria.builder().actions(List.of("MFA_ENABLED", "LOGOUT")).build()))
+                .isTrue();
+        assertThat(segment.mightMatch(AuditLogCriteria.builder().actions(List.of("MFA_ENABLED")).build())).isFalse();
+        assertThat(segment.mightMatch(AuditLogCriteria.builder().startDate(START.plusHours(1)).build())).isFalse();
+        assertThat(segment.mightMatch(AuditLogCriteria.builder().endDate(START.minusSeconds(1)).build())).isFalse();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private AuditArchiveSegment write(List<AuditLog> entries) throws IOException {
+        return AuditArchiveFixtures.writeSegment(directory.resolve("audit-archive-test.seg"), 4, entries);
+    }
+
+    private static List<AuditLog> readAll(AuditArchiveSegment segment) throws IOException {
+        List<AuditLog> entries = new ArrayList<>();
+        for (AuditArchiveSegment.RowGroup group : segment.getRowGroups()) {
+            entries.addAll(segment.readRowGroup(group));
+        }
+        return entries;
+    }
+
+    private static List<AuditLog> entries(int count) {
+        List<AuditLog> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(AuditLog.builder()
+                    .id(String.format("id-%03d", i))
+                    .userId("user-" + i % 3)
+                    .username("user" + i % 3)
+                    .action(i % 2 == 0 ? "LOGIN" : "LOGOUT")
+                    .resourceType("SESSION")
+                    .resourceId("session-" + i)
+                    .ipAddress("10.0.0." + i % 4)
+                    .userAgent("Mozilla/5.0")
+                    .status("SUCCESS")
+                    .timestamp(START.plusMinutes(i))
+                    .build());
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,165 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.repository.AuditLogCriteria;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.stock.authservice.audit.AuditArchiveFixtures.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditArchiveTest {
+
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime DAY_TWO = DAY_ONE.plusDays(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pagesDescendingAcrossSegments() throws IOException {
+        AuditArchive archive = twoDays();
+
+        List<String> ids = pageThrough(archive, AuditLogCriteria.all(), false, 3);
+
+        assertThat(ids).isEqualTo(descending());
+    }
+
+    @Test
+    void pagesAscendingAcrossSegments() throws IOException {
+        AuditArchive archive = twoDays();
+
+        List<String> ids = pageThrough(archive, AuditLogCriteria.all(), true, 4);
+
+        assertThat(ids).isEqualTo(ascending());
+    }
+
+    @Test
+    void breaksTimestampTiesById() throws IOException {
+        List<AuditLog> tied = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tied.add(entry("tie-" + i, DAY_ONE));
+        }
+        AuditArchive archive = AuditArchiveFixtures.archiveOf(directory, 2, List.of(tied));
+
+        assertThat(pageThrough(archive, AuditLogCriteria.all(), true, 2))
+                .containsExactly("tie-0", "tie-1", "tie-2", "tie-3", "tie-4");
+        assertThat(pageThrough(archive, AuditLogCriteria.all(), false, 2))
+                .containsExactly("tie-4", "tie-3", "tie-2", "tie-1", "tie-0");
+    }
+
+    @Test
+    void appliesCriteriaToArchivedEntries() throws IOException {
+        List<AuditLog> entries = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            AuditLog entry = entry("id-" + i, DAY_ONE.plusMinutes(i));
+            entry.setUserId(i % 2 == 0 ? "user-1" : "user-2");
+            entry.setDetails(i == 3 ? "{\"reason\":\"password expired\"}" : null);
+            entries.add(entry);
+        }
+        AuditArchive archive = AuditArchiveFixtures.archiveOf(directory, 4, List.of(entries));
+
+        assertThat(pageThrough(archive, AuditLogCriteria.builder().userId("user-2").build(), true, 2))
+                .containsExactly("id-1", "id-3", "id-5");
+        assertThat(pageThrough(archive, AuditLogCriteria.builder().text("password expired").build(), true, 2))
+                .containsExactly("id-3");
+        assertThat(pageThrough(archive, AuditLogCriteria.builder().userId("user-3").build(), true, 2)).isEmpty();
+    }
+
+    @Test
+    void skipsEntriesPastTheBound() throws IOException {
+        AuditArchive archive = twoDays();
+
+        // A full database page ending on day two leaves no room for day one
+        List<AuditLog> page = archive.search(AuditLogCriteria.all(), null, null, false, 4, DAY_TWO.plusHours(1));
+        assertThat(page).isEmpty();
+
+        List<AuditLog> overlapping = archive.search(AuditLogCriteria.all(), null, null, false, 4,
+                DAY_TWO.plusMinutes(8));
+        // Only the row group reaching the bound is read
+        assertThat(overlapping.stream().map(AuditLog::getId).collect(Collectors.toList())).containsExactly("b-09", "b-08");
+    }
+
+    @Test
+    void countsMatchingEntries() throws IOException {
+        AuditArchive archive = twoDays();
+
+        assertThat(archive.count(AuditLogCriteria.all())).isEqualTo(20L);
+        assertThat(archive.count(AuditLogCriteria.builder().startDate(DAY_TWO).build())).isEqualTo(10L);
+        assertThat(archive.count(AuditLogCriteria.builder()
+                .startDate(DAY_ONE.plusMinutes(5)).endDate(DAY_TWO.plusMinutes(4)).build())).isEqualTo(10L);
+        assertThat(archive.count(AuditLogCriteria.builder().userId("user-1").build())).isEqualTo(20L);
+        assertThat(archive.count(AuditLogCriteria.builder().userId("user-9").build())).isEqualTo(0L);
+    }
+
+    @Test
+    void visitsEveryMatchInAscendingOrder() throws IOException {
+        AuditArchive archive = twoDays();
+
+        List<String> visited = new ArrayList<>();
+        archive.forEachMatching(AuditLogCriteria.all(), entry -> visited.add(entry.getId()));
+
+        assertThat(visited).isEqualTo(ascending());
+    }
+
+    @Test
+    void isEmptyWithoutSegments() throws IOException {
+        assertThat(AuditArchiveFixtures.archiveOf(directory, 4, List.of()).isEmpty()).isTrue();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // Day one and day two in separate segments, row groups of four
+    private AuditArchive twoDays() throws IOException {
+        return AuditArchiveFixtures.archiveOf(directory, 4, List.of(entries(DAY_ONE, "a"), entries(DAY_TWO, "b")));
+    }
+
+    private static List<AuditLog> entries(LocalDateTime start, String prefix) {
+        List<AuditLog> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(entry(String.format("%s-%02d", prefix, i), start.plusMinutes(i)));
+        }
+        return entries;
+    }
+
+    private static List<String> descending() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 9; i >= 0; i--) {
+            ids.add(String.format("b-%02d", i));
+        }
+        for (int i = 9; i >= 0; i--) {
+            ids.add(String.format("a-%02d", i));
+        }
+        return ids;
+    }
+
+    private static List<String> ascending() {
+        List<String> ids = new ArrayList<>(descending());
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    // Follows the cursor the way AuditLogService does until a short page comes back
+    private static List<String> pageThrough(AuditArchive archive, AuditLogCriteria criteria, boolean ascending,
+                                            int pageSize) {
+        List<String> ids = new ArrayList<>();
+        AuditLog last = null;
+        while (true) {
+            List<AuditLog> page = archive.search(criteria, last != null ? last.getTimestamp() : null,
+                    last != null ? last.getId() : null, ascending, pageSize, null);
+            page.forEach(entry -> ids.add(entry.getId()));
+            if (page.size() < pageSize) {
+                return ids;
+            }
+            last = page.get(page.size() - 1);
+        }
+    }
+}
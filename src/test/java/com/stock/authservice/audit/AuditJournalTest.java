@@ -0,0 +1,228 @@
+package com.stock.authservice.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditJournalTest {
+
+    // Two 20-byte records (28 bytes framed) fit in a segment
+    private static final int SEGMENT_SIZE = 64;
+    private static final int MAX_SEGMENTS = 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsBackAcrossSegments() throws IOException {
+        try (AuditJournal journal = open()) {
+            for (int i = 0; i < 5; i++) {
+                assertThat(journal.append(record(i))).isTrue();
+            }
+
+            List<byte[]> records = new ArrayList<>();
+            long next = journal.read(0, 10, records);
+
+            assertThat(texts(records)).containsExactly(text(0), text(1), text(2), text(3), text(4));
+            assertThat(journal.lag()).isEqualTo(next);
+            assertThat(segmentFiles()).hasSize(3);
+        }
+    }
+
+    @Test
+    void readStopsAtMaxRecordsAndResumes() throws IOException {
+        try (AuditJournal journal = open()) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(record(i));
+            }
+
+            List<byte[]> first = new ArrayList<>();
+            long next = journal.read(0, 2, first);
+            List<byte[]> rest = new ArrayList<>();
+            journal.read(next, 10, rest);
+
+            assertThat(texts(first)).containsExactly(text(0), text(1));
+            assertThat(texts(rest)).containsExactly(text(2));
+        }
+    }
+
+    @Test
+    void replaysUnshippedRecordsAfterReopen() throws IOException {
+        try (AuditJournal journal = open()) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(record(i));
+            }
+            List<byte[]> shipped = new ArrayList<>();
+            journal.checkpoint(journal.read(0, 1, shipped));
+        }
+
+        try (AuditJournal journal = open()) {
+            List<byte[]> records = new ArrayList<>();
+            journal.read(journal.checkpointPosition(), 10, records);
+
+            assertThat(texts(records)).containsExactly(text(1), text(2));
+        }
+    }
+
+    @Test
+    void discardsTornTailOnRecovery() throws IOException {
+        try (AuditJournal journal = open()) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(record(i));
+            }
+        }
+
+        // The third record is alone in the second segment; damage its payload as a crash would
+        Path tail = segmentFiles().get(1);
+        try (FileChannel channel = FileChannel.open(tail, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#', '#', '#'}), 10);
+        }
+
+        try (AuditJournal journal = open()) {
+            List<byte[]> records = new ArrayList<>();
+            journal.read(0, 10, records);
+            assertThat(texts(records)).containsExactly(text(0), text(1));
+
+            // The next append takes the place of the torn record
+            assertThat(journal.append(record(7))).isTrue();
+        }
+
+        try (AuditJournal journal = open()) {
+            List<byte[]> records = new ArrayList<>();
+            journal.read(0, 10, records);
+            assertThat(texts(records)).containsExactly(text(0), text(1), text(7));
+        }
+    }
+
+    @Test
+    void ignoresLengthWrittenWithoutPayload() throws IOException {
+        try (AuditJournal journal = open()) {
+            journal.append(record(0));
+        }
+
+        // A length pointing at zeroed bytes fails the CRC check
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 20), 28);
+        }
+
+        try (AuditJournal journal = open()) {
+            List<byte[]> records = new ArrayList<>();
+            journal.read(0, 10, records);
+            assertThat(texts(records)).containsExactly(text(0));
+            assertThat(journal.lag()).isEqualTo(28);
+        }
+    }
+
+    @Test
+    void checkpointDeletesShippedSegments() throws IOException {
+        try (AuditJournal journal = open()) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(record(i));
+            }
+
+            // Ends inside the second segment, so only the first one goes
+            List<byte[]> shipped = new ArrayList<>();
+            journal.checkpoint(journal.read(0, 4, shipped));
+
+            assertThat(segmentFiles()).hasSize(2);
+        }
+
+        try (AuditJournal journal = open()) {
+            List<byte[]> records = new ArrayList<>();
+            journal.read(journal.checkpointPosition(), 10, records);
+            assertThat(texts(records)).containsExactly(text(4));
+        }
+    }
+
+    @Test
+    void appendsAfterSegmentFilledExactly() throws IOException {
+        try (AuditJournal journal = open()) {
+            // Two 24-byte records (32 bytes framed) end exactly on the segment boundary
+            for (int i = 0; i < 3; i++) {
+                assertThat(journal.append(fullRecord(i))).isTrue();
+            }
+
+            List<byte[]> records = new ArrayList<>();
+            journal.read(0, 10, records);
+            assertThat(texts(records)).containsExactly(fullText(0), fullText(1), fullText(2));
+            assertThat(segmentFiles()).hasSize(2);
+        }
+    }
+
+    @Test
+    void appendsAfterRecoveringExactlyFullTail() throws IOException {
+        try (AuditJournal journal = open()) {
+            journal.append(fullRecord(0));
+            journal.append(fullRecord(1));
+        }
+
+        try (AuditJournal journal = open()) {
+            assertThat(journal.lag()).isEqualTo(SEGMENT_SIZE);
+            assertThat(journal.append(fullRecord(2))).isTrue();
+        }
+
+        try (AuditJournal journal = open()) {
+            List<byte[]> records = new ArrayList<>();
+            journal.read(0, 10, records);
+            assertThat(texts(records)).containsExactly(fullText(0), fullText(1), fullText(2));
+        }
+    }
+
+    @Test
+    void rejectsRecordsItCannotHold() throws IOException {
+        try (AuditJournal journal = open()) {
+            assertThat(journal.append(new byte[0])).isFalse();
+            assertThat(journal.append(new byte[SEGMENT_SIZE])).isFalse();
+
+            for (int i = 0; i < MAX_SEGMENTS * 2; i++) {
+                assertThat(journal.append(record(i))).isTrue();
+            }
+            assertThat(journal.append(record(99))).isFalse();
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private AuditJournal open() throws IOException {
+        return AuditJournal.open(directory, SEGMENT_SIZE, MAX_SEGMENTS);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] record(int i) {
+        return text(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(int i) {
+        return String.format("audit-record-%07d", i);
+    }
+
+    private static byte[] fullRecord(int i) {
+        return fullText(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String fullText(int i) {
+        return String.format("audit-record-full-%06d", i);
+    }
+
+    private static List<String> texts(List<byte[]> records) {
+        return records.stream().map(bytes -> new String(bytes, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+}
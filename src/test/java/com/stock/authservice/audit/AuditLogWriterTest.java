@@ -0,0 +1,126 @@
+package com.stock.authservice.audit;
+
+import com.stock.authservice.config.AuditConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.stock.authservice.audit.AuditArchiveFixtures.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuditLogWriterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    // Ids of the rows the writer inserted, in insert order
+    private final List<String> inserted = Collections.synchronizedList(new ArrayList<>());
+
+    private AuditLogWriter writer;
+
+    @AfterEach
+    void stopWriter() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void replayRunningAlongsideSpillsLosesNothing() throws Exception {
+        writer = writer();
+        int entries = 2000;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> spilling = executor.submit(() -> {
+                for (int i = 0; i < entries; i++) {
+                    writer.spill(List.of(entry(id(i), NOW)));
+                }
+            });
+            while (!spilling.isDone()) {
+                writer.replaySpillFiles();
+            }
+            spilling.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        // Rotates the file the last spills went to and replays it
+        writer.replaySpillFiles();
+
+        assertThat(inserted).containsExactlyInAnyOrderElementsOf(
+                IntStream.range(0, entries).mapToObj(AuditLogWriterTest::id).collect(Collectors.toList()));
+        assertThat(spillFiles()).isEmpty();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    @SuppressWarnings("unchecked")
+    private AuditLogWriter writer() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(mock(ResultSet.class));
+        when(connection.createArrayOf(anyString(), any())).thenAnswer(invocation -> {
+            // The id column is the only one holding spill ids
+            for (Object value : (Object[]) invocation.getArgument(1)) {
+                if (value instanceof String text && text.startsWith("spill-")) {
+                    inserted.add(text);
+                }
+            }
+            return mock(Array.class);
+        });
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(invocation ->
+                invocation.<ConnectionCallback<Object>>getArgument(0).doInConnection(connection));
+
+        // No journal and no replays from the writer thread; the test drives replay itself
+        AuditConfig auditConfig = new AuditConfig();
+        auditConfig.getJournal().setEnabled(false);
+        auditConfig.getWriter().setSpillDirectory(directory.toString());
+        auditConfig.getWriter().setReplayIntervalMs(Long.MAX_VALUE);
+
+        AuditLogWriter auditLogWriter = new AuditLogWriter(jdbcTemplate, auditConfig, new SimpleMeterRegistry(),
+                mock(AuditLogBroadcaster.class));
+        auditLogWriter.start();
+        return auditLogWriter;
+    }
+
+    private List<Path> spillFiles() throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.collect(Collectors.toList());
+        }
+    }
+
+    private static String id(int i) {
+        return String.format("spill-%05d", i);
+    }
+}
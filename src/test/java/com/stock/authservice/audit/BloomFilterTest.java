@@ -0,0 +1,72 @@
+package com.stock.authservice.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    private static final int ENTRIES = 1000;
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter filter = filled();
+
+        for (int i = 0; i < ENTRIES; i++) {
+            assertThat(filter.mightContain("user-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    void keepsFalsePositivesNearOnePercent() {
+        BloomFilter filter = filled();
+
+        int falsePositives = 0;
+        int probes = 10_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(probes * 3 / 100);
+    }
+
+    @Test
+    void survivesSerialization() throws IOException {
+        BloomFilter filter = filled();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+
+        BloomFilter copy = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        for (int i = 0; i < ENTRIES; i++) {
+            assertThat(copy.mightContain("user-" + i)).isTrue();
+            assertThat(copy.mightContain("absent-" + i)).isEqualTo(filter.mightContain("absent-" + i));
+        }
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.forExpectedEntries(0);
+
+        assertThat(filter.mightContain("user-1")).isFalse();
+        assertThat(filter.mightContain("")).isFalse();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static BloomFilter filled() {
+        BloomFilter filter = BloomFilter.forExpectedEntries(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            filter.add("user-" + i);
+        }
+        return filter;
+    }
+}
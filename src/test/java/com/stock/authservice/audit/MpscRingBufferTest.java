@@ -0,0 +1,122 @@
+package com.stock.authservice.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscRingBufferTest {
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertThat(new MpscRingBuffer<String>(5).capacity()).isEqualTo(8);
+        assertThat(new MpscRingBuffer<String>(8).capacity()).isEqualTo(8);
+        assertThat(new MpscRingBuffer<String>(1000).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void drainsInOfferOrder() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.size()).isEqualTo(5);
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drainTo(drained, 3)).isEqualTo(3);
+        assertThat(buffer.drainTo(drained, 10)).isEqualTo(2);
+
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4);
+        assertThat(buffer.size()).isEqualTo(0);
+        assertThat(buffer.drainTo(drained, 10)).isEqualTo(0);
+    }
+
+    @Test
+    void refusesOffersWhenFullUntilDrained() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        assertThat(buffer.offer(4)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained, 1);
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(buffer.offer(5)).isFalse();
+
+        buffer.drainTo(drained, 10);
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void wrapsAroundManyLaps() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+            if (i % 3 == 2) {
+                buffer.drainTo(drained, 10);
+            }
+        }
+        buffer.drainTo(drained, 10);
+
+        assertThat(drained).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(drained.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void deliversEveryElementOnceUnderConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(256);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(new long[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+        start.countDown();
+
+        long[] nextExpected = new long[producers];
+        List<long[]> batch = new ArrayList<>();
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer && System.nanoTime() < deadline) {
+            batch.clear();
+            buffer.drainTo(batch, 512);
+            for (long[] element : batch) {
+                // Each producer's elements arrive in the order it offered them
+                assertThat(element[1]).isEqualTo(nextExpected[(int) element[0]]);
+                nextExpected[(int) element[0]]++;
+            }
+            received += batch.size();
+        }
+        executor.shutdownNow();
+
+        assertThat(received).isEqualTo(producers * perProducer);
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+}
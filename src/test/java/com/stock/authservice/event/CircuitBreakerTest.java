@@ -0,0 +1,72 @@
+package com.stock.authservice.event;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, 60_000);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertThat(breaker.allowRequest()).isTrue();
+
+        breaker.recordFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, 60_000);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void probesOnceTheOpenPeriodHasPassed() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 0);
+        breaker.recordFailure();
+
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.recordSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeOpensTheCircuitAgain() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, 0);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        assertThat(breaker.allowRequest()).isTrue();
+
+        // A single failure is enough while half-open
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void staysOpenForTheOpenPeriod() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 60_000);
+        breaker.recordFailure();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(breaker.allowRequest()).isFalse();
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,178 @@
+package com.stock.authservice.event;
+
+import com.stock.authservice.config.EventConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Testcontainers(disabledWithoutDocker = true)
+class OutboxRelayTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static final String TOPIC = "auth-events";
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    // Records handed to the producer, in send order
+    private final List<ProducerRecord<String, byte[]>> sent = Collections.synchronizedList(new ArrayList<>());
+    // Outbox ids whose next send the broker rejects
+    private final Set<Long> failNext = Collections.synchronizedSet(new HashSet<>());
+
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @BeforeAll
+    static void createTable() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE outbox_events (id bigserial PRIMARY KEY, topic varchar(255) NOT NULL, " +
+                "event_key varchar(255), event_type varchar(100) NOT NULL, payload bytea NOT NULL, " +
+                "created_at timestamp NOT NULL, claimed_until timestamp)");
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE outbox_events RESTART IDENTITY");
+        kafkaTemplate = recordingKafkaTemplate();
+    }
+
+    @Test
+    void eachKeyIsPublishedInOutboxOrderAcrossBatches() {
+        for (int i = 0; i < 10; i++) {
+            append("user-" + (i % 3));
+        }
+
+        relay(4).relay();
+
+        assertThat(sent).hasSize(10);
+        Map<String, List<Long>> idsByKey = sent.stream().collect(Collectors.groupingBy(ProducerRecord::key,
+                Collectors.mapping(OutboxRelayTest::outboxId, Collectors.toList())));
+        assertThat(idsByKey.get("user-0")).containsExactly(1L, 4L, 7L, 10L);
+        assertThat(idsByKey.get("user-1")).containsExactly(2L, 5L, 8L);
+        assertThat(idsByKey.get("user-2")).containsExactly(3L, 6L, 9L);
+        assertThat(remainingIds()).isEmpty();
+    }
+
+    @Test
+    void failedSendDeletesTheAcknowledgedPrefixAndReleasesTheRest() {
+        for (int i = 0; i < 5; i++) {
+            append("user-1");
+        }
+        failNext.add(3L);
+        OutboxRelay relay = relay(10);
+
+        relay.relay();
+        assertThat(remainingIds()).containsExactly(3L, 4L, 5L);
+        assertThat(claimedCount()).isZero();
+
+        // The retry starts at the failed event, so the key's order survives the failure
+        sent.clear();
+        relay.relay();
+        assertThat(sent).extracting(OutboxRelayTest::outboxId).containsExactly(3L, 4L, 5L);
+        assertThat(remainingIds()).isEmpty();
+    }
+
+    @Test
+    void batchOfACrashedRelayIsReclaimedOnceItsLeaseExpires() {
+        for (int i = 0; i < 3; i++) {
+            append("user-1");
+        }
+
+        // The first relay dies after claiming the batch, before it can release or delete anything
+        doThrow(new Error("relay died")).when(kafkaTemplate).send(any(ProducerRecord.class));
+        assertThatThrownBy(() -> relay(10).relay()).isInstanceOf(Error.class);
+        assertThat(claimedCount()).isEqualTo(3);
+
+        // Another node leaves the batch alone while the lease is live
+        kafkaTemplate = recordingKafkaTemplate();
+        OutboxRelay survivor = relay(10);
+        survivor.relay();
+        assertThat(sent).isEmpty();
+
+        jdbcTemplate.update("UPDATE outbox_events SET claimed_until = now() - interval '1 second'");
+        survivor.relay();
+        assertThat(sent).extracting(OutboxRelayTest::outboxId).containsExactly(1L, 2L, 3L);
+        assertThat(remainingIds()).isEmpty();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // Acknowledges every send except those listed in failNext
+    @SuppressWarnings("unchecked")
+    private KafkaTemplate<String, byte[]> recordingKafkaTemplate() {
+        KafkaTemplate<String, byte[]> template = mock(KafkaTemplate.class);
+        when(template.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, byte[]> record = invocation.getArgument(0);
+            sent.add(record);
+            if (failNext.remove(outboxId(record))) {
+                return CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"));
+            }
+            return CompletableFuture.<SendResult<String, byte[]>>completedFuture(null);
+        });
+        return template;
+    }
+
+    private OutboxRelay relay(int batchSize) {
+        EventConfig eventConfig = new EventConfig();
+        eventConfig.getOutbox().setBatchSize(batchSize);
+        eventConfig.getOutbox().setSendTimeoutMs(2000);
+        // Long enough a lease that it cannot run out during a test
+        eventConfig.getProducer().setMaxBlockMs(60000);
+
+        OutboxRelay relay = new OutboxRelay(jdbcTemplate, transactionTemplate, kafkaTemplate, eventConfig,
+                new SimpleMeterRegistry());
+        relay.init();
+        return relay;
+    }
+
+    private void append(String key) {
+        jdbcTemplate.update("INSERT INTO outbox_events (topic, event_key, event_type, payload, created_at) " +
+                "VALUES (?, ?, 'TestEvent', ?, now())", TOPIC, key, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Long> remainingIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM outbox_events ORDER BY id", Long.class);
+    }
+
+    private Integer claimedCount() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_events WHERE claimed_until > now()", Integer.class);
+    }
+
+    private static long outboxId(ProducerRecord<String, byte[]> record) {
+        return Long.parseLong(new String(
+                record.headers().lastHeader(OutboxRelay.OUTBOX_ID_HEADER).value(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,156 @@
+package com.stock.authservice.event.codec;
+
+import com.stock.authservice.config.EventConfig;
+import com.stock.authservice.event.dto.SessionBatchTerminatedEvent;
+import com.stock.authservice.event.dto.SessionCreatedEvent;
+import com.stock.authservice.event.dto.SessionTerminatedEvent;
+import com.stock.authservice.event.dto.UserLoginEnvelope;
+import com.stock.authservice.event.dto.UserLoginEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventCodecTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+
+    private EventConfig eventConfig;
+    private EventCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        eventConfig = new EventConfig();
+        codec = new EventCodec(eventConfig);
+    }
+
+    @Test
+    void roundTripsNestedMessages() {
+        UserLoginEnvelope envelope = UserLoginEnvelope.builder()
+                .schemaVersion(1)
+                .userId("user-1")
+                .login(UserLoginEvent.builder()
+                        .userId("user-1")
+                        .username("alice")
+                        .email("alice@example.com")
+                        .ipAddress("10.0.0.1")
+                        .loginTime(TIME)
+                        .mfaUsed(true)
+                        .sessionId("session-1")
+                        .build())
+                .session(SessionCreatedEvent.builder()
+                        .sessionId("session-1")
+                        .userId("user-1")
+                        .createdAt(TIME)
+                        .expiresAt(TIME.plusHours(8))
+                        .build())
+                .build();
+
+        byte[] payload = codec.encode(envelope);
+
+        assertThat(EventCodec.isBinary(payload)).isTrue();
+        assertThat(codec.decode(payload, UserLoginEnvelope.class)).isEqualTo(envelope);
+    }
+
+    @Test
+    void roundTripsListsAndLeavesMissingFieldsNull() {
+        SessionBatchTerminatedEvent event = SessionBatchTerminatedEvent.builder()
+                .sessionIds(List.of("s1", "s2", "s3"))
+                .userIds(List.of("u1", "u1", "u2"))
+                .count(3)
+                .terminatedAt(TIME)
+                .build();
+
+        SessionBatchTerminatedEvent decoded = codec.decode(codec.encode(event), SessionBatchTerminatedEvent.class);
+
+        assertThat(decoded).isEqualTo(event);
+        assertThat(decoded.getReason()).isNull();
+    }
+
+    @Test
+    void roundTripsTimestampsBeforeTheEpoch() {
+        SessionTerminatedEvent event = terminatedEvent();
+        event.setTerminatedAt(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000));
+
+        assertThat(codec.decode(codec.encode(event), SessionTerminatedEvent.class)).isEqualTo(event);
+    }
+
+    @Test
+    void skipsUnknownTags() {
+        SessionTerminatedEvent event = terminatedEvent();
+        byte[] payload = codec.encode(event);
+
+        // Fields a newer producer might add, plus a known tag with an unexpected wire type
+        WireOutput extra = new WireOutput(32);
+        extra.writeKey(99, WireOutput.VARINT);
+        extra.writeVarint(300);
+        extra.writeKey(100, WireOutput.LENGTH_DELIMITED);
+        extra.writeString("added later");
+        extra.writeKey(1, WireOutput.VARINT);
+        extra.writeVarint(7);
+        byte[] suffix = extra.toByteArray();
+
+        byte[] extended = Arrays.copyOf(payload, payload.length + suffix.length);
+        System.arraycopy(suffix, 0, extended, payload.length, suffix.length);
+
+        assertThat(codec.decode(extended, SessionTerminatedEvent.class)).isEqualTo(event);
+    }
+
+    @Test
+    void decodesJsonPayloads() {
+        eventConfig.getCodec().setFormat(EventCodec.FORMAT_JSON);
+        SessionTerminatedEvent event = terminatedEvent();
+
+        byte[] payload = codec.encode(event);
+
+        assertThat(EventCodec.isBinary(payload)).isFalse();
+        assertThat(EventCodec.contentType(payload)).isEqualTo(EventCodec.CONTENT_TYPE_JSON);
+        assertThat(codec.decode(payload, SessionTerminatedEvent.class)).isEqualTo(event);
+    }
+
+    @Test
+    void rejectsNewerSchemaVersions() {
+        WireOutput out = new WireOutput(16);
+        out.writeByte(EventCodec.MAGIC);
+        out.writeVarint(EventSchemas.SESSION_TERMINATED.getId());
+        out.writeVarint(EventSchemas.SESSION_TERMINATED.getVersion() + 1);
+
+        assertThatThrownBy(() -> codec.decode(out.toByteArray(), SessionTerminatedEvent.class))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("newer");
+    }
+
+    @Test
+    void rejectsPayloadsOfAnotherSchema() {
+        byte[] payload = codec.encode(terminatedEvent());
+
+        assertThatThrownBy(() -> codec.decode(payload, SessionCreatedEvent.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTruncatedPayloads() {
+        byte[] payload = codec.encode(terminatedEvent());
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 1);
+
+        assertThatThrownBy(() -> codec.decode(truncated, SessionTerminatedEvent.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private SessionTerminatedEvent terminatedEvent() {
+        return SessionTerminatedEvent.builder()
+                .sessionId("session-1")
+                .userId("user-1")
+                .username("alice")
+                .terminatedAt(TIME)
+                .reason("LOGOUT")
+                .build();
+    }
+}
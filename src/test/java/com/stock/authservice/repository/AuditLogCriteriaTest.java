@@ -0,0 +1,106 @@
+package com.stock.authservice.repository;
+
+import com.stock.authservice.entity.AuditLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogCriteriaTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void nullFieldsMatchAnything() {
+        assertThat(AuditLogCriteria.all().matches(entry("anything", null))).isTrue();
+        assertThat(AuditLogCriteria.all().isTimeRangeOnly()).isTrue();
+    }
+
+    @Test
+    void matchesFieldsAndInclusiveTimeRange() {
+        AuditLog entry = entry(null, null);
+
+        assertThat(AuditLogCriteria.builder().userId("user-1").actions(List.of("LOGIN", "LOGOUT")).build()
+                .matches(entry)).isTrue();
+        assertThat(AuditLogCriteria.builder().status("FAILURE").build().matches(entry)).isFalse();
+        assertThat(AuditLogCriteria.builder().startDate(TIME).endDate(TIME).build().matches(entry)).isTrue();
+        assertThat(AuditLogCriteria.builder().startDate(TIME.plusSeconds(1)).build().matches(entry)).isFalse();
+        assertThat(AuditLogCriteria.builder().startDate(TIME).build().isTimeRangeOnly()).isTrue();
+        assertThat(AuditLogCriteria.builder().userId("user-1").build().isTimeRangeOnly()).isFalse();
+    }
+
+    @Test
+    void textNeedsEveryWordInAnyOrder() {
+        AuditLog entry = entry("{\"reason\":\"Password has EXPIRED\"}", null);
+
+        assertThat(text("password expired").matches(entry)).isTrue();
+        assertThat(text("expired password").matches(entry)).isTrue();
+        assertThat(text("password locked").matches(entry)).isFalse();
+    }
+
+    @Test
+    void textSearchesTheErrorMessageToo() {
+        AuditLog entry = entry(null, "Account locked after 5 attempts");
+
+        assertThat(text("locked attempts").matches(entry)).isTrue();
+    }
+
+    @Test
+    void quotedTextIsAPhrase() {
+        AuditLog entry = entry("password expired yesterday", null);
+
+        assertThat(text("\"password expired\"").matches(entry)).isTrue();
+        assertThat(text("\"expired password\"").matches(entry)).isFalse();
+    }
+
+    @Test
+    void punctuatedTermsMatchConsecutiveWords() {
+        AuditLog entry = entry("{\"ip\":\"10.0.0.12\"}", null);
+
+        assertThat(text("10.0.0.12").matches(entry)).isTrue();
+        assertThat(text("10.0.0.1").matches(entry)).isFalse();
+    }
+
+    @Test
+    void minusExcludesATerm() {
+        AuditLog entry = entry("login from new device", null);
+
+        assertThat(text("login -failed").matches(entry)).isTrue();
+        assertThat(text("login -device").matches(entry)).isFalse();
+    }
+
+    @Test
+    void orSeparatesAlternatives() {
+        AuditLog entry = entry("account disabled by admin", null);
+
+        assertThat(text("locked or disabled").matches(entry)).isTrue();
+        assertThat(text("locked or expired").matches(entry)).isFalse();
+        // Each alternative needs all of its own terms
+        assertThat(text("account locked or admin expired").matches(entry)).isFalse();
+    }
+
+    @Test
+    void textWithoutWordsMatchesNothing() {
+        assertThat(text("!!!").matches(entry("anything", null))).isFalse();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static AuditLogCriteria text(String text) {
+        return AuditLogCriteria.builder().text(text).build();
+    }
+
+    private static AuditLog entry(String details, String errorMessage) {
+        return AuditLog.builder()
+                .id("id-1")
+                .userId("user-1")
+                .action("LOGIN")
+                .status("SUCCESS")
+                .details(details)
+                .errorMessage(errorMessage)
+                .timestamp(TIME)
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.stock.authservice.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogSpecificationsTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void whereClauseIsEmptyWithoutFilters() {
+        List<Object> params = new ArrayList<>();
+
+        assertThat(AuditLogSpecifications.whereClause(AuditLogCriteria.all(), params)).isEmpty();
+        assertThat(params).isEmpty();
+    }
+
+    @Test
+    void whereClauseBindsEveryFilterInPlaceholderOrder() {
+        AuditLogCriteria criteria = AuditLogCriteria.builder()
+                .userId("user-1")
+                .ipAddress("10.0.0.1")
+                .actions(List.of("LOGIN", "LOGOUT"))
+                .startDate(TIME)
+                .endDate(TIME.plusDays(1))
+                .text("password expired")
+                .build();
+        List<Object> params = new ArrayList<>();
+
+        String where = AuditLogSpecifications.whereClause(criteria, params);
+
+        assertThat(where).isEqualTo(" WHERE user_id = ? AND ip_address = ? AND action IN (?, ?)"
+                + " AND timestamp >= ? AND timestamp <= ?"
+                + " AND to_tsvector('simple', coalesce(details, '') || ' ' || coalesce(error_message, ''))"
+                + " @@ websearch_to_tsquery('simple', ?)");
+        assertThat(params).containsExactly("user-1", "10.0.0.1", "LOGIN", "LOGOUT",
+                Timestamp.valueOf(TIME), Timestamp.valueOf(TIME.plusDays(1)), "password expired");
+    }
+
+    @Test
+    void emptyActionListMatchesNothing() {
+        List<Object> params = new ArrayList<>();
+
+        assertThat(AuditLogSpecifications.whereClause(AuditLogCriteria.builder().actions(List.of()).build(), params))
+                .isEqualTo(" WHERE FALSE");
+        assertThat(params).isEmpty();
+    }
+}
@@ -0,0 +1,102 @@
+package com.stock.authservice.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    // Levels span 80 ms, 640 ms and 5120 ms
+    private final TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, 3, 0);
+
+    @Test
+    void firesAtTheDeadlineAtMostOneTickLate() {
+        wheel.add("a", 25);
+
+        assertThat(wheel.advance(20)).isEmpty();
+        assertThat(wheel.advance(29)).isEmpty();
+        assertThat(wheel.advance(30)).containsExactly("a");
+        assertThat(wheel.advance(100)).isEmpty();
+    }
+
+    @Test
+    void cascadesFromHigherLevels() {
+        Map<String, Long> deadlines = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            String key = "key-" + i;
+            long deadline = random.nextInt(5000);
+            deadlines.put(key, deadline);
+            wheel.add(key, deadline);
+        }
+
+        Map<String, Long> firedAt = runUntil(6000, 1);
+
+        assertThat(firedAt.keySet()).isEqualTo(deadlines.keySet());
+        deadlines.forEach((key, deadline) ->
+                assertThat(firedAt.get(key)).isBetween(deadline, deadline + TICK));
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    void replacesDeadlinesBeyondTheTopLevel() {
+        wheel.add("far", 100_000);
+        wheel.add("farther", 250_005);
+
+        Map<String, Long> firedAt = runUntil(300_000, TICK);
+
+        assertThat(firedAt.get("far")).isBetween(100_000L, 100_000L + TICK);
+        assertThat(firedAt.get("farther")).isBetween(250_005L, 250_005L + TICK);
+    }
+
+    @Test
+    void firesOverdueEntriesOnTheNextAdvance() {
+        wheel.advance(1000);
+
+        wheel.add("late", 500);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(1000)).containsExactly("late");
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    void keepsEntriesAddedAfterLargeJumps() {
+        wheel.add("early", 50);
+        assertThat(wheel.advance(10_000)).containsExactly("early");
+
+        wheel.add("next", 10_035);
+        assertThat(wheel.advance(10_030)).isEmpty();
+        assertThat(wheel.advance(10_040)).containsExactly("next");
+    }
+
+    @Test
+    void firesDuplicateKeysOncePerAdd() {
+        wheel.add("a", 15);
+        wheel.add("a", 40);
+
+        assertThat(wheel.size()).isEqualTo(2);
+        assertThat(wheel.advance(20)).containsExactly("a");
+        assertThat(wheel.advance(50)).containsExactly("a");
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Map<String, Long> runUntil(long endMs, long stepMs) {
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = stepMs; now <= endMs; now += stepMs) {
+            List<String> expired = wheel.advance(now);
+            for (String key : expired) {
+                assertThat(firedAt.put(key, now)).isNull();
+            }
+        }
+        return firedAt;
+    }
+}
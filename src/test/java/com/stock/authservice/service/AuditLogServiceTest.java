@@ -0,0 +1,180 @@
+package com.stock.authservice.service;
+
+import com.stock.authservice.audit.AuditArchiveFixtures;
+import com.stock.authservice.audit.AuditLogBroadcaster;
+import com.stock.authservice.audit.AuditLogWriter;
+import com.stock.authservice.dto.response.AuditLogResponse;
+import com.stock.authservice.dto.response.CursorPageResponse;
+import com.stock.authservice.entity.AuditLog;
+import com.stock.authservice.exception.InvalidCursorException;
+import com.stock.authservice.repository.AuditActionRollupRepository;
+import com.stock.authservice.repository.AuditLogRepository;
+import com.stock.authservice.repository.AuditUserRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.stock.authservice.audit.AuditArchiveFixtures.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogServiceTest {
+
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime DAY_TWO = DAY_ONE.plusDays(1);
+    private static final LocalDateTime RECENT = DAY_ONE.plusDays(100);
+
+    private static final Comparator<AuditLog> ASCENDING =
+            Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+    @Mock
+    private AuditLogWriter auditLogWriter;
+    @Mock
+    private AuditLogBroadcaster auditLogBroadcaster;
+    @Mock
+    private AuditActionRollupRepository auditActionRollupRepository;
+    @Mock
+    private AuditUserRollupRepository auditUserRollupRepository;
+
+    // Rows still in audit_logs; the repository mock serves keyset pages from them
+    private final List<AuditLog> database = new ArrayList<>();
+
+    @Test
+    void pagesDescendingFromDatabaseIntoArchive() throws IOException {
+        database.addAll(entries(RECENT, "db", 5));
+        AuditLogService service = service(List.of(entries(DAY_ONE, "a", 4), entries(DAY_TWO, "b", 4)));
+
+        List<CursorPageResponse<AuditLogResponse>> pages = pageThrough(service, false, 4);
+
+        assertThat(ids(pages)).containsExactly(
+                "db-04", "db-03", "db-02", "db-01", "db-00",
+                "b-03", "b-02", "b-01", "b-00",
+                "a-03", "a-02", "a-01", "a-00");
+        assertThat(pages.stream().map(page -> page.getContent().size()).collect(Collectors.toList()))
+                .containsExactly(4, 4, 4, 1);
+        CursorPageResponse<AuditLogResponse> last = pages.get(pages.size() - 1);
+        assertThat(last.getHasMore()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+    }
+
+    @Test
+    void pagesAscendingThroughInterleavedRows() throws IOException {
+        // A late insert that sorts between archived rows
+        database.add(entry("db-late", DAY_ONE.plusSeconds(90)));
+        database.addAll(entries(RECENT, "db", 2));
+        AuditLogService service = service(List.of(entries(DAY_ONE, "a", 4)));
+
+        List<CursorPageResponse<AuditLogResponse>> pages = pageThrough(service, true, 3);
+
+        assertThat(ids(pages)).containsExactly("a-00", "a-01", "db-late", "a-02", "a-03", "db-00", "db-01");
+    }
+
+    @Test
+    void pagesThroughTimestampTiesAcrossTiers() throws IOException {
+        database.add(entry("tie-1", DAY_ONE));
+        database.add(entry("tie-3", DAY_ONE));
+        AuditLogService service = service(List.of(List.of(
+                entry("tie-0", DAY_ONE), entry("tie-2", DAY_ONE), entry("tie-4", DAY_ONE))));
+
+        assertThat(ids(pageThrough(service, true, 2))).containsExactly("tie-0", "tie-1", "tie-2", "tie-3", "tie-4");
+    }
+
+    @Test
+    void totalIncludesArchivedEntries() throws IOException {
+        database.addAll(entries(RECENT, "db", 5));
+        AuditLogService service = service(List.of(entries(DAY_ONE, "a", 4), entries(DAY_TWO, "b", 4)));
+        stubDatabasePage(null, false, 10);
+        when(auditLogRepository.count(any(Specification.class))).thenReturn(5L);
+
+        CursorPageResponse<AuditLogResponse> page = service.getAllAuditLogs(null, 10, "DESC", true);
+
+        assertThat(page.getTotalElements()).isEqualTo(13L);
+        assertThat(page.getHasMore()).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedCursors() throws IOException {
+        AuditLogService service = service(List.of());
+        String noSeparator = Base64.getUrlEncoder().encodeToString("not-a-cursor".getBytes(StandardCharsets.UTF_8));
+        String badTimestamp = Base64.getUrlEncoder().encodeToString("yesterday|id-1".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> service.getAllAuditLogs(noSeparator, 4, "DESC", false))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> service.getAllAuditLogs(badTimestamp, 4, "DESC", false))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> service.getAllAuditLogs("%%%", 4, "DESC", false))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private AuditLogService service(List<List<AuditLog>> archived) throws IOException {
+        return new AuditLogService(auditLogRepository, auditLogWriter,
+                AuditArchiveFixtures.archiveOf(directory, 2, archived), auditLogBroadcaster,
+                auditActionRollupRepository, auditUserRollupRepository);
+    }
+
+    // Follows nextCursor the way a client does, serving each database page from the last row seen
+    private List<CursorPageResponse<AuditLogResponse>> pageThrough(AuditLogService service, boolean ascending,
+                                                                   int size) {
+        List<CursorPageResponse<AuditLogResponse>> pages = new ArrayList<>();
+        String cursor = null;
+        AuditLogResponse last = null;
+        do {
+            stubDatabasePage(last, ascending, size);
+            CursorPageResponse<AuditLogResponse> page =
+                    service.getAllAuditLogs(cursor, size, ascending ? "ASC" : "DESC", false);
+            pages.add(page);
+            last = page.getContent().isEmpty() ? last : page.getContent().get(page.getContent().size() - 1);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+
+    private void stubDatabasePage(AuditLogResponse after, boolean ascending, int size) {
+        Comparator<AuditLog> order = ascending ? ASCENDING : ASCENDING.reversed();
+        AuditLog position = after == null ? null : entry(after.getId(), after.getTimestamp());
+        List<AuditLog> rows = database.stream()
+                .filter(row -> position == null || order.compare(row, position) > 0)
+                .sorted(order)
+                .limit(size + 1)
+                .collect(Collectors.toList());
+        when(auditLogRepository.findBy(any(Specification.class), any())).thenReturn(rows);
+    }
+
+    private static List<AuditLog> entries(LocalDateTime start, String prefix, int count) {
+        List<AuditLog> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(entry(String.format("%s-%02d", prefix, i), start.plusMinutes(i)));
+        }
+        return entries;
+    }
+
+    private static List<String> ids(List<CursorPageResponse<AuditLogResponse>> pages) {
+        return pages.stream()
+                .flatMap(page -> page.getContent().stream())
+                .map(AuditLogResponse::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,208 @@
+package com.stock.authservice.service;
+
+import com.stock.authservice.entity.RefreshToken;
+import com.stock.authservice.entity.User;
+import com.stock.authservice.exception.TokenExpiredException;
+import com.stock.authservice.exception.TokenInvalidException;
+import com.stock.authservice.repository.RefreshTokenRepository;
+import com.stock.authservice.security.JwtTokenProvider;
+import com.stock.authservice.util.HashUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenServiceTest {
+
+    private static final String SLOT = "slot-1";
+    private static final String PRESENTED = SLOT + ".presented-secret";
+    private static final String FAMILY = "family-1";
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+    @Mock
+    private JwtTokenProvider jwtTokenProvider;
+
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = new TokenService(refreshTokenRepository, jwtTokenProvider);
+    }
+
+    // ==================== CREATE ====================
+
+    @Test
+    void createStartsANewFamilyInTheDeviceSlot() {
+        User user = User.builder().id("user-1").username("alice").build();
+
+        RefreshToken token = tokenService.createRefreshToken(user, null, "WEB", "10.0.0.1", "Mozilla/5.0");
+
+        assertThat(token.getToken()).startsWith(token.getId() + ".");
+        assertThat(token.getTokenHash()).isEqualTo(HashUtil.sha256Bytes(token.getToken()));
+        assertThat(token.getGeneration()).isEqualTo(0);
+        // Without a device id the slot is keyed by the user agent
+        assertThat(token.getDeviceId()).isEqualTo(HashUtil.sha256("Mozilla/5.0"));
+        verify(refreshTokenRepository).upsertSlot(eq(token.getId()), eq("user-1"), eq(token.getDeviceId()),
+                eq(token.getTokenHash()), eq(token.getFamilyId()), any(), eq("WEB"), eq("10.0.0.1"),
+                eq("Mozilla/5.0"), any());
+    }
+
+    // ==================== ROTATE ====================
+
+    @Test
+    void rotationReturnsTheNextTokenOfTheSlot() {
+        when(refreshTokenRepository.rotateSlot(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{"user-1", "device-1", FAMILY, 3, "WEB"}));
+
+        RefreshToken rotated = tokenService.rotateRefreshToken(PRESENTED, "10.0.0.1", "Mozilla/5.0");
+
+        assertThat(rotated.getToken()).isNotEqualTo(PRESENTED).startsWith(SLOT + ".");
+        assertThat(rotated.getTokenHash()).isEqualTo(HashUtil.sha256Bytes(rotated.getToken()));
+        assertThat(rotated.getFamilyId()).isEqualTo(FAMILY);
+        assertThat(rotated.getGeneration()).isEqualTo(3);
+        verify(refreshTokenRepository).rotateSlot(eq(SLOT), eq(HashUtil.sha256Bytes(PRESENTED)),
+                eq(rotated.getTokenHash()), eq(rotated.getExpiresAt()), eq("10.0.0.1"), eq("Mozilla/5.0"), any());
+    }
+
+    @Test
+    void tokenWithoutASlotIdIsInvalid() {
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken("no-slot-id", null, null))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessage("Invalid refresh token");
+        verify(refreshTokenRepository, never()).rotateSlot(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void expiredLiveTokenIsReportedAsExpired() {
+        rotationMisses(slot(3, false, HashUtil.sha256Bytes(PRESENTED), null, null));
+
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken(PRESENTED, null, null))
+                .isInstanceOf(TokenExpiredException.class);
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void revokedLiveTokenIsRefused() {
+        rotationMisses(slot(3, true, HashUtil.sha256Bytes(PRESENTED), null, null));
+
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken(PRESENTED, null, null))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessageContaining("revoked");
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void unknownSlotIsInvalid() {
+        // Never issued, or the device logged in again and the slot took a new id
+        rotationMisses(null);
+
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken(PRESENTED, null, null))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessage("Invalid refresh token");
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    // ==================== VALIDATE ====================
+
+    @Test
+    void validationMatchesTheLiveDigestOfTheNamedSlot() {
+        RefreshToken live = slot(3, false, HashUtil.sha256Bytes(PRESENTED), null, null);
+        live.setExpiresAt(LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findById(SLOT)).thenReturn(Optional.of(live));
+
+        assertThat(tokenService.validateRefreshToken(PRESENTED)).isSameAs(live);
+        assertThatThrownBy(() -> tokenService.validateRefreshToken(SLOT + ".other-secret"))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessage("Invalid refresh token");
+    }
+
+    // ==================== REUSE DETECTION ====================
+
+    @Test
+    void predecessorWithinGraceIsRefusedWithoutRevoking() {
+        rotationMisses(predecessorOf(LocalDateTime.now().minusSeconds(5), false));
+
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken(PRESENTED, null, null))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessageContaining("already been rotated");
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void predecessorPastGraceRevokesTheFamily() {
+        rotationMisses(predecessorOf(LocalDateTime.now().minusMinutes(5), false));
+
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken(PRESENTED, null, null))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessageContaining("already been used");
+        verify(refreshTokenRepository).revokeFamily(eq(FAMILY), any());
+    }
+
+    @Test
+    void olderGenerationRevokesTheFamilyEvenWithinGrace() {
+        // Neither the live nor the previous digest: rotated away more than one generation ago
+        rotationMisses(slot(3, false, HashUtil.sha256Bytes("current"), HashUtil.sha256Bytes("previous"),
+                LocalDateTime.now().minusSeconds(5)));
+
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken(PRESENTED, null, null))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessageContaining("already been used");
+        verify(refreshTokenRepository).revokeFamily(eq(FAMILY), any());
+    }
+
+    @Test
+    void predecessorOfARevokedFamilyIsTreatedAsReuse() {
+        rotationMisses(predecessorOf(LocalDateTime.now().minusSeconds(5), true));
+
+        assertThatThrownBy(() -> tokenService.rotateRefreshToken(PRESENTED, null, null))
+                .isInstanceOf(TokenInvalidException.class)
+                .hasMessageContaining("already been used");
+        verify(refreshTokenRepository).revokeFamily(eq(FAMILY), any());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // The rotation matches nothing, and the slot PRESENTED names is current (or gone)
+    private void rotationMisses(RefreshToken current) {
+        when(refreshTokenRepository.rotateSlot(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Collections.emptyList());
+        when(refreshTokenRepository.findById(SLOT)).thenReturn(Optional.ofNullable(current));
+    }
+
+    // PRESENTED was rotated away by the slot's last rotation
+    private static RefreshToken predecessorOf(LocalDateTime rotatedAt, boolean revoked) {
+        return slot(3, revoked, HashUtil.sha256Bytes("current"), HashUtil.sha256Bytes(PRESENTED), rotatedAt);
+    }
+
+    private static RefreshToken slot(int generation, boolean revoked, byte[] tokenHash,
+                                     byte[] previousTokenHash, LocalDateTime rotatedAt) {
+        return RefreshToken.builder()
+                .id(SLOT)
+                .userId("user-1")
+                .deviceId("device-1")
+                .familyId(FAMILY)
+                .generation(generation)
+                .tokenHash(tokenHash)
+                .previousTokenHash(previousTokenHash)
+                .rotatedAt(rotatedAt)
+                .isRevoked(revoked)
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+}
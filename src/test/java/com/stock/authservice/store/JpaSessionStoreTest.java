@@ -0,0 +1,141 @@
+package com.stock.authservice.store;
+
+import com.stock.authservice.config.SessionConfig;
+import com.stock.authservice.config.SessionKeyMigration;
+import com.stock.authservice.config.TokenSchemaMigration;
+import com.stock.authservice.entity.User;
+import com.stock.authservice.entity.UserSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({JpaSessionStore.class, SessionActivityBuffer.class, TokenSchemaMigration.class,
+        SessionKeyMigration.class, JpaSessionStoreTest.Config.class})
+class JpaSessionStoreTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        // Touches go straight to the row, so they can be asserted without a flush
+        @Bean
+        SessionConfig sessionConfig() {
+            SessionConfig sessionConfig = new SessionConfig();
+            sessionConfig.getActivity().setWriteBehind(false);
+            return sessionConfig;
+        }
+    }
+
+    @Autowired
+    private JpaSessionStore store;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private String userId;
+
+    @BeforeEach
+    void createUser() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        userId = entityManager.persistAndFlush(User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .passwordHash("hash")
+                .build()).getId();
+    }
+
+    @Test
+    void createBeyondTheLimitTerminatesTheOldestSessions() throws Exception {
+        UserSession first = create(now.plusMinutes(30), 2);
+        UserSession second = create(now.plusMinutes(30), 2);
+
+        UserSession third = session(now.plusMinutes(30));
+        assertThat(store.create(third, 2)).containsExactly(first.getId());
+        entityManager.clear();
+
+        assertThat(store.findActiveByUserId(userId))
+                .extracting(UserSession::getId)
+                .containsExactlyInAnyOrder(second.getId(), third.getId());
+        assertThat(store.findById(first.getId()).map(UserSession::getTerminationReason))
+                .contains("MAX_SESSIONS_EXCEEDED");
+        assertThat(store.findByToken(third.getSessionToken()).map(UserSession::getId)).contains(third.getId());
+    }
+
+    @Test
+    void touchExtendsAnActiveSessionAndIsRefusedOnceItEnded() throws Exception {
+        UserSession session = create(now.plusMinutes(30), 5);
+
+        assertThat(store.touch(session.getId(), now.plusMinutes(1), now.plusMinutes(60))).isTrue();
+
+        store.terminate(store.findById(session.getId()).orElseThrow(), "USER_TERMINATED");
+        entityManager.flush();
+        assertThat(store.touch(session.getId(), now.plusMinutes(2), now.plusMinutes(90))).isFalse();
+        assertThat(store.touch("unknown", now, now.plusMinutes(30))).isFalse();
+    }
+
+    @Test
+    void expiredSessionsAreClaimedOnce() throws Exception {
+        List<String> ids = List.of(create(now.minusSeconds(1), 5).getId(), create(now.minusSeconds(1), 5).getId());
+        UserSession live = create(now.plusMinutes(30), 5);
+
+        assertThat(store.expireByIds(ids, now)).containsOnlyKeys(ids);
+        assertThat(store.expireByIds(ids, now)).isEmpty();
+        assertThat(store.expireBatch(now, 100)).isEmpty();
+        assertThat(store.terminateByUserId(userId, "ADMIN_TERMINATED")).containsOnlyKeys(live.getId());
+        assertThat(store.countActive(now)).isZero();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // Creation times are the limit's order, so consecutive sessions are kept a few ms apart
+    private UserSession create(LocalDateTime expiresAt, int maxSessions) throws InterruptedException {
+        UserSession session = session(expiresAt);
+        assertThat(store.create(session, maxSessions)).isEmpty();
+        Thread.sleep(5);
+        return session;
+    }
+
+    private UserSession session(LocalDateTime expiresAt) {
+        return UserSession.builder()
+                .sessionToken(UUID.randomUUID().toString())
+                .userId(userId)
+                .ipAddress("10.0.0.1")
+                .deviceType("DESKTOP")
+                .isActive(true)
+                .lastActivity(now)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
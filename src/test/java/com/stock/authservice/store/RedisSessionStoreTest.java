@@ -0,0 +1,205 @@
+package com.stock.authservice.store;
+
+import com.stock.authservice.config.SessionConfig;
+import com.stock.authservice.entity.UserSession;
+import com.stock.authservice.repository.UserSessionRepository;
+import com.stock.authservice.util.DateTimeUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Testcontainers(disabledWithoutDocker = true)
+class RedisSessionStoreTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    // Ids of the sessions written to user_sessions, once per write
+    private final List<String> persisted = Collections.synchronizedList(new ArrayList<>());
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private RedisSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn("r");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            rows.forEach(row -> persisted.add((String) row[0]));
+            return new int[rows.size()];
+        });
+
+        store = new RedisSessionStore(redisTemplate, jdbcTemplate, mock(UserSessionRepository.class), new SessionConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void createBeyondTheLimitTerminatesTheOldestSessions() throws Exception {
+        String userId = UUID.randomUUID().toString();
+        UserSession first = create(userId, now.plusMinutes(30), 2);
+        UserSession second = create(userId, now.plusMinutes(30), 2);
+
+        UserSession third = session(userId, now.plusMinutes(30));
+        List<String> evicted = store.create(third, 2);
+
+        assertThat(evicted).containsExactly(first.getId());
+        assertThat(persisted).containsExactly(first.getId());
+        assertThat(store.findActiveByUserId(userId))
+                .extracting(UserSession::getId)
+                .containsExactlyInAnyOrder(second.getId(), third.getId());
+        assertThat(store.findById(first.getId())).isEmpty();
+        assertThat(store.findByToken(third.getSessionToken()).map(UserSession::getId)).contains(third.getId());
+    }
+
+    @Test
+    void touchExtendsAnActiveSessionAndIsRefusedOnceItEnded() throws Exception {
+        UserSession session = create(UUID.randomUUID().toString(), now.plusMinutes(30), 5);
+        LocalDateTime extended = now.plusMinutes(60);
+
+        assertThat(store.touch(session.getId(), now.plusMinutes(1), extended)).isTrue();
+        assertThat(store.findById(session.getId()).map(UserSession::getExpiresAt)).contains(truncated(extended));
+
+        store.terminate(session, "USER_TERMINATED");
+        assertThat(store.touch(session.getId(), now.plusMinutes(2), now.plusMinutes(90))).isFalse();
+        assertThat(store.touch("unknown", now, now.plusMinutes(30))).isFalse();
+    }
+
+    @Test
+    void eachSessionIsClaimedByExactlyOneTerminationOrExpiry() throws Exception {
+        List<String> users = List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add(create(users.get(i % 2), now.minusSeconds(1), 100).getId());
+        }
+
+        List<Callable<Map<String, String>>> racers = List.of(
+                () -> store.expireBatch(now, 100),
+                () -> store.expireBatch(now, 100),
+                () -> store.expireByIds(ids, now),
+                () -> store.terminateByUserId(users.get(0), "ADMIN_TERMINATED"),
+                () -> store.terminateByDeviceType("DESKTOP", "ADMIN_TERMINATED"));
+        ExecutorService executor = Executors.newFixedThreadPool(racers.size());
+        List<String> reported = new ArrayList<>();
+        try {
+            for (Future<Map<String, String>> result : executor.invokeAll(racers)) {
+                reported.addAll(result.get().keySet());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(reported).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(persisted).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(store.countActive(now.minusMinutes(1))).isZero();
+    }
+
+    @Test
+    void terminateLosesToAnEarlierClaim() throws Exception {
+        UserSession session = create(UUID.randomUUID().toString(), now.minusSeconds(1), 5);
+
+        assertThat(store.expireByIds(List.of(session.getId()), now)).containsOnlyKeys(session.getId());
+        store.terminate(session, "USER_TERMINATED");
+
+        assertThat(persisted).containsExactly(session.getId());
+    }
+
+    @Test
+    void expirySkipsAndReschedulesSessionsTouchedPastTheDeadline() throws Exception {
+        UserSession session = create(UUID.randomUUID().toString(), now.plusMinutes(1), 5);
+        assertThat(store.touch(session.getId(), now, now.plusMinutes(30))).isTrue();
+
+        // As if the touch's follow-up write to the expiry set had been lost
+        String member = session.getUserId() + ":" + session.getId();
+        redisTemplate.opsForZSet().add("session:expiry", member, DateTimeUtil.toEpochMilli(now.plusMinutes(1)));
+
+        assertThat(store.expireBatch(now.plusMinutes(2), 100)).isEmpty();
+        assertThat(redisTemplate.opsForZSet().score("session:expiry", member))
+                .isEqualTo((double) DateTimeUtil.toEpochMilli(now.plusMinutes(30)));
+        assertThat(persisted).isEmpty();
+    }
+
+    @Test
+    void indexesExpireAndDropSessionsWhoseHashIsGone() throws Exception {
+        UserSession session = create(UUID.randomUUID().toString(), now.plusMinutes(30), 5);
+        String ipIndex = "session:ip:" + session.getIpAddress();
+        assertThat(redisTemplate.getExpire(ipIndex)).isPositive();
+        assertThat(redisTemplate.getExpire("session:device:DESKTOP")).isPositive();
+
+        // As if the hash had run out its TTL without the sweeper getting to it
+        redisTemplate.delete("session:{" + session.getUserId() + "}:" + session.getId());
+
+        assertThat(store.terminateByIpAddress(session.getIpAddress(), "ADMIN_TERMINATED")).isEmpty();
+        assertThat(redisTemplate.opsForSet().members(ipIndex)).isEmpty();
+        assertThat(persisted).isEmpty();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // Creation times are the limit's order, so consecutive sessions are kept a few ms apart
+    private UserSession create(String userId, LocalDateTime expiresAt, int maxSessions) throws InterruptedException {
+        UserSession session = session(userId, expiresAt);
+        assertThat(store.create(session, maxSessions)).isEmpty();
+        Thread.sleep(5);
+        return session;
+    }
+
+    private UserSession session(String userId, LocalDateTime expiresAt) {
+        return UserSession.builder()
+                .sessionToken(UUID.randomUUID().toString())
+                .userId(userId)
+                .ipAddress("10.0.0.1")
+                .deviceType("DESKTOP")
+                .isActive(true)
+                .lastActivity(now)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    // Redis keeps times as epoch millis
+    private static LocalDateTime truncated(LocalDateTime time) {
+        return DateTimeUtil.fromEpochMilli(DateTimeUtil.toEpochMilli(time));
+    }
+}
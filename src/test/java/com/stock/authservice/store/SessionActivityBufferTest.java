@@ -0,0 +1,123 @@
+package com.stock.authservice.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionActivityBufferTest {
+
+    private static final String SESSION = "session-1";
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private JdbcTemplate jdbcTemplate;
+    private SessionActivityBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        buffer = new SessionActivityBuffer(jdbcTemplate);
+    }
+
+    @Test
+    void refusesTouchesForUnknownOrExpiredSessions() {
+        assertThat(buffer.record(SESSION, now)).isFalse();
+
+        storedDeadline(now.minusSeconds(1));
+        assertThat(buffer.record(SESSION, now)).isFalse();
+
+        assertThat(buffer.pendingCount()).isZero();
+        assertThat(buffer.deadlineOf(SESSION)).isNull();
+    }
+
+    @Test
+    void touchesOfOneSessionCollapseIntoOneUpdateWithTheLatestActivity() {
+        storedDeadline(now.plusMinutes(5));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        assertThat(buffer.record(SESSION, now.plusSeconds(2))).isTrue();
+        assertThat(buffer.record(SESSION, now.plusSeconds(1))).isTrue();
+        assertThat(buffer.record(SESSION, now.plusSeconds(3))).isTrue();
+        buffer.flush();
+
+        List<Object[]> rows = flushedRows(1);
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0)[0]).isEqualTo(Timestamp.valueOf(now.plusSeconds(3)));
+        assertThat(rows.get(0)[3]).isEqualTo(SESSION);
+        assertThat(buffer.pendingCount()).isZero();
+        // The cached deadline is the one only the database had checked, so it is loaded once
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Timestamp.class), eq(SESSION), eq(SESSION));
+    }
+
+    @Test
+    void flushThatMatchesNothingDropsTheCachedDeadline() {
+        storedDeadline(now.plusMinutes(5));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0});
+
+        buffer.record(SESSION, now);
+        assertThat(buffer.deadlineOf(SESSION)).isNotNull();
+        buffer.flush();
+
+        assertThat(buffer.deadlineOf(SESSION)).isNull();
+    }
+
+    @Test
+    void failedFlushKeepsTheTouchesForTheNextOne() {
+        storedDeadline(now.plusMinutes(5));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[]{1});
+
+        buffer.record(SESSION, now);
+        buffer.flush();
+        assertThat(buffer.pendingCount()).isEqualTo(1);
+
+        buffer.flush();
+        List<Object[]> rows = flushedRows(2);
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0)[0]).isEqualTo(Timestamp.valueOf(now));
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void forgottenSessionsAreNotFlushed() {
+        storedDeadline(now.plusMinutes(5));
+
+        buffer.record(SESSION, now);
+        buffer.forget(SESSION);
+        buffer.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void storedDeadline(LocalDateTime deadline) {
+        when(jdbcTemplate.queryForList(anyString(), eq(Timestamp.class), eq(SESSION), eq(SESSION)))
+                .thenReturn(List.of(Timestamp.valueOf(deadline)));
+    }
+
+    // Rows of the last of {@code flushes} batch updates
+    @SuppressWarnings("unchecked")
+    private List<Object[]> flushedRows(int flushes) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(flushes)).batchUpdate(anyString(), rows.capture());
+        return rows.getValue();
+    }
+}